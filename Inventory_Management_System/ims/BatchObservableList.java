@@ -0,0 +1,181 @@
+package ims;
+import javafx.collections.ModifiableObservableListBase;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Array-backed observable list whose changes can be grouped into one notification.
+ * Adds, sets and removes made between beginBatch and endBatch go straight to the
+ * backing array while the batch records what it touched: the original value of each
+ * replaced row, and the rows removed from and added to the end. endBatch reports exactly
+ * those rows in a single change, so tables keep their selection and scroll position and
+ * a batch costs O(rows touched), not O(size).
+ * Adds and removes in the middle of the list are rare; the first one in a batch falls
+ * back to reporting the whole list as replaced.
+ * Batches nest, only the outermost endBatch notifies.
+ * @param <T> - Part or Product
+ */
+class BatchObservableList<T> extends ModifiableObservableListBase<T> {
+    private final ArrayList<T> items = new ArrayList<>();
+    // Nesting depth of open batches
+    private int batchDepth;
+    // Set once the open batch changed something
+    private boolean batchChanged;
+    // Size when the open batch made its first change
+    private int batchStart;
+    // Rows below this still hold the row they held before the batch, or a replacement
+    private int untouchedTail;
+    // Index -> value before the batch, for replaced rows below untouchedTail
+    private final Map<Integer, T> replaced = new TreeMap<>();
+    // Rows from untouchedTail to batchStart as they were before the batch, last row first
+    private final List<T> removedTail = new ArrayList<>();
+    // Contents before the batch, once a change in the middle made ranges useless
+    private List<T> beforeBatch;
+
+    /**
+     * Hold back change notifications until the matching endBatch
+     */
+    void beginBatch() { batchDepth++; }
+
+    /**
+     * Notify listeners of everything changed since the matching beginBatch
+     */
+    void endBatch() {
+        if (--batchDepth > 0 || !batchChanged) { return; }
+        batchChanged = false;
+        beginChange();
+        if (beforeBatch != null) {
+            nextReplace(0, items.size(), beforeBatch);
+            beforeBatch = null;
+        } else {
+            for (Map.Entry<Integer, T> row : replaced.entrySet()) { nextSet(row.getKey(), row.getValue()); }
+            if (!removedTail.isEmpty()) {
+                Collections.reverse(removedTail);
+                nextRemove(untouchedTail, new ArrayList<>(removedTail));
+            }
+            if (items.size() > untouchedTail) { nextAdd(untouchedTail, items.size()); }
+        }
+        replaced.clear();
+        removedTail.clear();
+        endChange();
+    }
+
+    @Override
+    public T get(int index) { return items.get(index); }
+
+    @Override
+    public int size() { return items.size(); }
+
+    @Override
+    public void add(int index, T element) {
+        if (!batched()) {
+            super.add(index, element);
+            return;
+        }
+        if (index != items.size()) { wholeListChanged(); }
+        items.add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        items.ensureCapacity(items.size() + c.size());
+        if (!batched()) { return super.addAll(c); }
+        modCount++;
+        return items.addAll(c);
+    }
+
+    @Override
+    public T set(int index, T element) {
+        if (!batched()) { return super.set(index, element); }
+        T old = items.set(index, element);
+        if (beforeBatch == null && index < untouchedTail) { replaced.putIfAbsent(index, old); }
+        return old;
+    }
+
+    @Override
+    public T remove(int index) {
+        if (!batched()) { return super.remove(index); }
+        modCount++;
+        if (index != items.size() - 1) {
+            wholeListChanged();
+            return items.remove(index);
+        }
+        T removed = items.remove(index);
+        removedFromEnd(index, removed);
+        return removed;
+    }
+
+    /**
+     * Remove a range with one array copy, rather than one shift per removed item
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) { return; }
+        List<T> range = items.subList(fromIndex, toIndex);
+        modCount++;
+        if (batched()) {
+            if (toIndex != items.size()) {
+                wholeListChanged();
+            } else {
+                for (int i = toIndex - 1; i >= fromIndex; i--) { removedFromEnd(i, items.get(i)); }
+            }
+            range.clear();
+            return;
+        }
+        beginChange();
+        nextRemove(fromIndex, new ArrayList<>(range));
+        range.clear();
+        endChange();
+    }
+
+    @Override
+    protected void doAdd(int index, T element) { items.add(index, element); }
+
+    @Override
+    protected T doSet(int index, T element) { return items.set(index, element); }
+
+    @Override
+    protected T doRemove(int index) { return items.remove(index); }
+
+    /**
+     * @return true if a batch is open, starting its record on the first change
+     */
+    private boolean batched() {
+        if (batchDepth == 0) { return false; }
+        if (!batchChanged) {
+            batchChanged = true;
+            batchStart = items.size();
+            untouchedTail = batchStart;
+        }
+        return true;
+    }
+
+    /**
+     * Record that the last row, at index, was removed
+     */
+    private void removedFromEnd(int index, T removed) {
+        if (beforeBatch != null || index >= untouchedTail) { return; }
+        T original = replaced.remove(index);
+        removedTail.add(original != null ? original : removed);
+        untouchedTail = index;
+    }
+
+    /**
+     * Give up on ranges: rebuild the contents before the batch, to report the whole list replaced
+     */
+    private void wholeListChanged() {
+        if (beforeBatch != null) { return; }
+        List<T> before = new ArrayList<>(batchStart);
+        for (int i = 0; i < untouchedTail; i++) { before.add(replaced.getOrDefault(i, items.get(i))); }
+        for (int i = removedTail.size() - 1; i >= 0; i--) { before.add(removedTail.get(i)); }
+        beforeBatch = before;
+        replaced.clear();
+        removedTail.clear();
+    }
+}
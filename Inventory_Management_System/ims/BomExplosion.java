@@ -0,0 +1,277 @@
+package ims;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Bill-of-materials explosion for production planning: given how many of each product to
+ * build, how many of each part are needed and how many are short of current stock.
+ * A product's associated part list is its bill of materials, a part listed twice is needed
+ * twice per unit.
+ *
+ * The order is split across a fork/join pool; each task adds up its products' parts into a
+ * primitive part ID -> units table and the tables are merged on the way back up, so large
+ * orders use every core and no boxed counter is created per part. When the order references
+ * at least as many parts as inventory holds, the table is a plain array indexed by part ID;
+ * otherwise it is a hash table sized to the parts actually used.
+ * Run it on the JavaFX thread, or wherever products are modified, so the part lists hold
+ * still while the workers read them. Stock may keep moving; each part's stock is read once.
+ */
+public final class BomExplosion {
+    // Fewest order lines handled by one task without splitting further
+    static final int LEAF_LINES = 64;
+    // Tasks per pool thread, enough for work stealing to even out uneven products
+    private static final int TASKS_PER_THREAD = 4;
+
+    private BomExplosion() {}
+
+    /**
+     * Explode an order on the common fork/join pool
+     * @param order - product ID -> units to build
+     * @return part requirements and shortfalls
+     * @throws IVException - unknown product or quantity below 1
+     */
+    public static Plan explode(Map<Integer, Integer> order) throws IVException {
+        return explode(order, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Explode an order on the given pool
+     * @param order - product ID -> units to build
+     * @param pool - pool running the explosion
+     * @return part requirements and shortfalls
+     * @throws IVException - unknown product or quantity below 1
+     */
+    public static Plan explode(Map<Integer, Integer> order, ForkJoinPool pool) throws IVException {
+        Product[] products = new Product[order.size()];
+        int[] quantities = new int[order.size()];
+        int n = 0;
+        long references = 0;
+        for (Map.Entry<Integer, Integer> line : order.entrySet()) {
+            Product product = Inventory.lookupProduct(line.getKey());
+            if (product == null) { throw new IVException("Product " + line.getKey() + " is not in inventory."); }
+            if (line.getValue() == null || line.getValue() < 1) {
+                throw new IVException("Quantity of product " + line.getKey() + " must be at least 1.");
+            }
+            products[n] = product;
+            quantities[n++] = line.getValue();
+            references += product.getAssociatedParts().size();
+        }
+        // IDs are allocated densely, so inventory size approximates the highest part ID
+        int parts = Inventory.getInventoryPartCount();
+        int denseSize = references >= parts ? parts : 0;
+        // Every leaf table is merged on the way up, so leaves are few and large
+        int leaves = pool.getParallelism() * (denseSize > 0 ? 1 : TASKS_PER_THREAD);
+        int leafLines = Math.max(LEAF_LINES, n / leaves);
+        PartTotals totals = pool.invoke(new Explode(products, quantities, 0, n, leafLines, denseSize));
+        return new Plan(totals);
+    }
+
+    /**
+     * Adds up the parts of order lines from..to, splitting in halves above leafLines
+     */
+    private static final class Explode extends RecursiveTask<PartTotals> {
+        private static final long serialVersionUID = 1L;
+
+        private final Product[] products;
+        private final int[] quantities;
+        private final int from;
+        private final int to;
+        private final int leafLines;
+        private final int denseSize;
+
+        Explode(Product[] products, int[] quantities, int from, int to, int leafLines, int denseSize) {
+            this.products = products;
+            this.quantities = quantities;
+            this.from = from;
+            this.to = to;
+            this.leafLines = leafLines;
+            this.denseSize = denseSize;
+        }
+
+        @Override
+        protected PartTotals compute() {
+            if (to - from <= leafLines) {
+                PartTotals totals = new PartTotals(denseSize);
+                for (int i = from; i < to; i++) {
+                    List<Part> parts = products[i].getAssociatedParts();
+                    for (int j = 0; j < parts.size(); j++) { totals.add(parts.get(j).getId(), quantities[i]); }
+                }
+                return totals;
+            }
+            int mid = (from + to) >>> 1;
+            Explode left = new Explode(products, quantities, from, mid, leafLines, denseSize);
+            left.fork();
+            PartTotals right = new Explode(products, quantities, mid, to, leafLines, denseSize).compute();
+            return left.join().addAll(right);
+        }
+    }
+
+    /**
+     * Part ID -> units table: an array indexed by ID when dense, else open addressing
+     */
+    private static final class PartTotals {
+        private static final int EMPTY = -1;
+        // Slot keys, null when units is indexed by ID
+        private int[] ids;
+        private long[] units;
+        private int size;
+
+        /**
+         * @param denseSize - expected highest ID + 1 for an ID-indexed table, 0 for a hash table
+         */
+        PartTotals(int denseSize) {
+            ids = denseSize > 0 ? null : newIds(16);
+            units = new long[denseSize > 0 ? denseSize : 16];
+        }
+
+        void add(int id, long count) {
+            if (ids == null) {
+                if (id >= units.length) { units = Arrays.copyOf(units, Math.max(id + 1, units.length * 3 / 2)); }
+                units[id] += count;
+                return;
+            }
+            int mask = ids.length - 1;
+            int slot = slot(id, ids.length);
+            while (ids[slot] != EMPTY && ids[slot] != id) { slot = (slot + 1) & mask; }
+            if (ids[slot] == EMPTY) {
+                ids[slot] = id;
+                if (++size * 2 > ids.length) {
+                    units[slot] = count;
+                    grow();
+                    return;
+                }
+            }
+            units[slot] += count;
+        }
+
+        /**
+         * Merge another table into this one, keeping the larger table
+         */
+        PartTotals addAll(PartTotals other) {
+            if (ids == null) {
+                if (other.units.length > units.length) { return other.addAll(this); }
+                for (int i = 0; i < other.units.length; i++) { units[i] += other.units[i]; }
+                return this;
+            }
+            if (other.size > size) { return other.addAll(this); }
+            for (int i = 0; i < other.ids.length; i++) {
+                if (other.ids[i] != EMPTY) { add(other.ids[i], other.units[i]); }
+            }
+            return this;
+        }
+
+        private void grow() {
+            int[] oldIds = ids;
+            long[] oldUnits = units;
+            ids = newIds(oldIds.length * 2);
+            units = new long[oldIds.length * 2];
+            size = 0;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY) { add(oldIds[i], oldUnits[i]); }
+            }
+        }
+
+        private static int[] newIds(int capacity) {
+            int[] ids = new int[capacity];
+            Arrays.fill(ids, EMPTY);
+            return ids;
+        }
+
+        /**
+         * Fibonacci hashing: the top bits of id * 2^32/phi spread runs of IDs evenly
+         */
+        private static int slot(int id, int capacity) {
+            return (id * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(capacity));
+        }
+    }
+
+    /**
+     * Requirement for one part
+     */
+    public static final class Requirement {
+        private final int partId;
+        private final Part part;
+        private final long required;
+        private final int available;
+
+        private Requirement(int partId, long required) {
+            this.partId = partId;
+            this.part = Inventory.lookupPart(partId);
+            this.required = required;
+            this.available = part == null ? 0 : part.getStock();
+        }
+
+        /**
+         * @return id of part
+         */
+        public int getPartId() { return partId; }
+
+        /**
+         * @return inventoried part, or null if it was deleted
+         */
+        public Part getPart() { return part; }
+
+        /**
+         * @return units needed for the whole order
+         */
+        public long getRequired() { return required; }
+
+        /**
+         * @return units in stock when the plan was made
+         */
+        public int getAvailable() { return available; }
+
+        /**
+         * @return units missing, 0 if stock covers the order
+         */
+        public long getShortfall() { return Math.max(0, required - available); }
+    }
+
+    /**
+     * Outcome of an explosion
+     */
+    public static final class Plan {
+        private final List<Requirement> requirements;
+        private final List<Requirement> shortages = new ArrayList<>();
+
+        private Plan(PartTotals totals) {
+            List<Requirement> all = new ArrayList<>(totals.size);
+            for (int i = 0; i < totals.units.length; i++) {
+                if (totals.ids == null) {
+                    if (totals.units[i] != 0) { all.add(new Requirement(i, totals.units[i])); }
+                } else if (totals.ids[i] != PartTotals.EMPTY) {
+                    all.add(new Requirement(totals.ids[i], totals.units[i]));
+                }
+            }
+            all.sort(Comparator.comparingInt(Requirement::getPartId));
+            for (Requirement requirement : all) {
+                if (requirement.getShortfall() > 0) { shortages.add(requirement); }
+            }
+            shortages.sort(Comparator.comparingLong(Requirement::getShortfall).reversed()
+                    .thenComparingInt(Requirement::getPartId));
+            requirements = Collections.unmodifiableList(all);
+        }
+
+        /**
+         * @return every part the order needs, by part ID
+         */
+        public List<Requirement> getRequirements() { return requirements; }
+
+        /**
+         * @return parts short of the order, biggest shortfall first
+         */
+        public List<Requirement> getShortages() { return Collections.unmodifiableList(shortages); }
+
+        /**
+         * @return true if current stock covers every part of the order
+         */
+        public boolean isBuildable() { return shortages.isEmpty(); }
+    }
+}
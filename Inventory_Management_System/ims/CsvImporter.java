@@ -0,0 +1,401 @@
+package ims;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Streaming CSV importer for parts and products.
+ * One row per record:
+ *   inhouse,id,name,price,stock,min,max,machineId
+ *   outsourced,id,name,price,stock,min,max,companyName
+ *   product,id,name,price,stock,min,max,partId;partId;...
+ * A header row starting with "type" is skipped. A blank id is allocated on import, a known id
+ * replaces the existing item. Fields may be quoted with "" to hold commas, doubled quotes or
+ * line breaks; a record runs on over as many lines as its quoted fields take, and is reported
+ * by the line it starts on.
+ *
+ * The file is read in chunks of CHUNK_ROWS rows. Worker threads parse the chunks and run the
+ * same validatePart rules the part form uses, at most MAX_IN_FLIGHT chunks are held in memory
+ * at once, so reading waits whenever committing falls behind. Chunks are committed in file
+ * order, each as one Inventory batch; products are validated when committed, after the parts
+ * they use are in inventory. Bad rows are reported and skipped, the import carries on.
+ * Rows identical to an inventoried item under another ID, or to an earlier row, count as bad
+ * rows; each is caught with one hash lookup, see DuplicateIndex.
+ */
+class CsvImporter {
+    // Rows parsed and committed together
+    static final int CHUNK_ROWS = 4096;
+    // Row errors kept in a report, further errors are only counted
+    static final int MAX_REPORTED_ERRORS = 10_000;
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int MAX_IN_FLIGHT = 2 * WORKERS;
+
+    private final Executor committer;
+
+    /**
+     * @param committer - runs chunk commits in submission order, e.g. Platform::runLater
+     *                    while the GUI is showing, or Runnable::run before it starts
+     */
+    CsvImporter(Executor committer) { this.committer = committer; }
+
+    /**
+     * Import a CSV file, returning once every valid row is committed
+     * @param file - CSV file
+     * @return imported row count and row errors
+     * @throws IOException - file could not be read
+     */
+    Report importFile(Path file) throws IOException {
+        Report report = new Report();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS, r -> {
+            Thread thread = new Thread(r, "ims-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<Void> committed = CompletableFuture.completedFuture(null);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            List<String> records = new ArrayList<>(CHUNK_ROWS);
+            int[] lineNumbers = new int[CHUNK_ROWS];
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                lineNumbers[records.size()] = lineNumber;
+                if (oddQuotes(line)) {
+                    // A quoted field holds a line break, read on until its quote closes
+                    StringBuilder record = new StringBuilder(line);
+                    boolean open = true;
+                    String next;
+                    while (open && (next = in.readLine()) != null) {
+                        lineNumber++;
+                        record.append('\n').append(next);
+                        open = oddQuotes(next) != open;
+                    }
+                    line = record.toString();
+                }
+                records.add(line);
+                if (records.size() == CHUNK_ROWS) {
+                    committed = submit(records, lineNumbers, report, inFlight, workers, committed);
+                    records = new ArrayList<>(CHUNK_ROWS);
+                    lineNumbers = new int[CHUNK_ROWS];
+                }
+            }
+            if (!records.isEmpty()) { committed = submit(records, lineNumbers, report, inFlight, workers, committed); }
+            committed.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (CompletionException e) {
+            throw new IOException("Import failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        return report;
+    }
+
+    /**
+     * Wait for room, parse a chunk on a worker and chain its commit after the previous chunk's
+     */
+    private CompletableFuture<Void> submit(List<String> records, int[] lineNumbers, Report report, Semaphore inFlight,
+                                           ExecutorService workers, CompletableFuture<Void> previous)
+            throws InterruptedException {
+        inFlight.acquire();
+        CompletableFuture<Chunk> parsed = CompletableFuture.supplyAsync(() -> parse(records, lineNumbers), workers);
+        return previous
+                .thenCombine(parsed, (done, chunk) -> chunk)
+                .thenAcceptAsync(chunk -> commit(chunk, report), committer)
+                .whenComplete((done, failure) -> inFlight.release());
+    }
+
+    /**
+     * Parse and validate one chunk of rows, on a worker thread
+     * @param records - rows, a quoted field may hold line breaks
+     * @param lineNumbers - line each row starts on
+     */
+    private static Chunk parse(List<String> records, int[] lineNumbers) {
+        Chunk chunk = new Chunk();
+        for (int i = 0; i < records.size(); i++) {
+            int lineNumber = lineNumbers[i];
+            String line = records.get(i);
+            if (line.isBlank()) { continue; }
+            List<String> fields = split(line);
+            String type = fields.get(0).trim().toLowerCase();
+            if (lineNumber == 1 && type.equals("type")) { continue; }
+            try {
+                if (fields.size() != 8) {
+                    IVException.fail("import.fieldCount", "Expected 8 fields, found " + fields.size() + ".");
+                }
+                if (type.equals("product")) {
+                    chunk.rows.add(new Row(lineNumber, parseProduct(fields)));
+                } else {
+                    chunk.rows.add(new Row(lineNumber, parsePart(type, fields)));
+                }
+            } catch (IVException e) {
+                chunk.errors.add(new RowError(lineNumber, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    private static Part parsePart(String type, List<String> fields) throws IVException {
+        Part part;
+        if (type.equals("inhouse")) {
+            PartInHouse inHouse = new PartInHouse();
+            inHouse.setMachineId(parseInt(fields.get(7), "Machine ID"));
+            part = inHouse;
+        } else if (type.equals("outsourced")) {
+            PartOutsourced outsourced = new PartOutsourced();
+            outsourced.setCompanyName(fields.get(7).trim());
+            part = outsourced;
+        } else {
+            IVException.fail("import.unknownType", "Unknown record type \"" + type + "\".");
+            return null;
+        }
+        part.setId(parseId(fields.get(1)));
+        part.setName(fields.get(2).trim());
+        part.setPrice(parseDouble(fields.get(3), "Price"));
+        part.setStock(parseInt(fields.get(4), "Inv"));
+        part.setMin(parseInt(fields.get(5), "Min"));
+        part.setMax(parseInt(fields.get(6), "Max"));
+        if (part instanceof PartInHouse) {
+            ((PartInHouse) part).validatePart();
+        } else {
+            ((PartOutsourced) part).validatePart();
+        }
+        return part;
+    }
+
+    private static ProductRow parseProduct(List<String> fields) throws IVException {
+        Product product = new Product();
+        product.setId(parseId(fields.get(1)));
+        product.setName(fields.get(2).trim());
+        product.setPrice(parseDouble(fields.get(3), "Price"));
+        product.setStock(parseInt(fields.get(4), "Inv"));
+        product.setMin(parseInt(fields.get(5), "Min"));
+        product.setMax(parseInt(fields.get(6), "Max"));
+        List<Integer> partIds = new ArrayList<>();
+        for (String partId : fields.get(7).split(";")) {
+            if (!partId.isBlank()) { partIds.add(parseInt(partId, "Part ID")); }
+        }
+        return new ProductRow(product, partIds);
+    }
+
+    /**
+     * Add a parsed chunk to inventory as one batch, on the committer. Parse errors are
+     * reported among the commit errors in line order.
+     */
+    private static void commit(Chunk chunk, Report report) {
+        int parseErrors = 0;
+        Inventory.beginBatch();
+        try {
+            for (Row row : chunk.rows) {
+                while (parseErrors < chunk.errors.size() && chunk.errors.get(parseErrors).lineNumber < row.lineNumber) {
+                    report.add(chunk.errors.get(parseErrors++));
+                }
+                if (row.item instanceof Part) {
+                    Part part = (Part) row.item;
+                    Part duplicate = Inventory.findDuplicatePart(part);
+                    if (duplicate != null) {
+                        InventoryMetrics.validationFailed("part.duplicate");
+                        report.add(new RowError(row.lineNumber, "Identical to part " + duplicate.getId() + "."));
+                        continue;
+                    }
+                    if (part.getId() < 0) { part.setId(Inventory.nextPartId()); }
+                    if (Inventory.lookupPart(part.getId()) != null) {
+                        Inventory.modifyPart(part);
+                    } else {
+                        Inventory.addPart(part);
+                    }
+                    report.imported++;
+                } else {
+                    try {
+                        Product product = ((ProductRow) row.item).resolve();
+                        Inventory.validateProductUnique(product);
+                        if (product.getId() < 0) { product.setId(Inventory.nextProductId()); }
+                        if (Inventory.lookupProduct(product.getId()) != null) {
+                            Inventory.modifyProduct(product);
+                        } else {
+                            Inventory.addProduct(product);
+                        }
+                        report.imported++;
+                    } catch (IVException e) {
+                        report.add(new RowError(row.lineNumber, e.getMessage()));
+                    }
+                }
+            }
+        } finally {
+            Inventory.commit();
+        }
+        while (parseErrors < chunk.errors.size()) { report.add(chunk.errors.get(parseErrors++)); }
+    }
+
+    /**
+     * @return true if a line leaves a quote open, or closes one a previous line opened
+     */
+    private static boolean oddQuotes(String line) {
+        boolean odd = false;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') { odd = !odd; }
+        }
+        return odd;
+    }
+
+    /**
+     * Split a CSV record, honouring "quoted, fields", doubled "" quotes and quoted line breaks
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int parseId(String s) throws IVException { return s.isBlank() ? -1 : parseInt(s, "ID"); }
+
+    private static int parseInt(String s, String column) throws IVException {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            IVException.fail("import.notWholeNumber", column + " must be a whole number.");
+            return 0;
+        }
+    }
+
+    private static double parseDouble(String s, String column) throws IVException {
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            IVException.fail("import.notNumber", column + " must be a number.");
+            return 0;
+        }
+    }
+
+    /**
+     * Parsed rows and row errors of one chunk
+     */
+    private static final class Chunk {
+        final List<Row> rows = new ArrayList<>();
+        final List<RowError> errors = new ArrayList<>();
+    }
+
+    /**
+     * A valid row: a Part, or a ProductRow still to be resolved
+     */
+    private static final class Row {
+        final int lineNumber;
+        final Object item;
+
+        Row(int lineNumber, Object item) {
+            this.lineNumber = lineNumber;
+            this.item = item;
+        }
+    }
+
+    /**
+     * Product row whose part IDs are resolved when it is committed
+     */
+    private static final class ProductRow {
+        final Product product;
+        final List<Integer> partIds;
+
+        ProductRow(Product product, List<Integer> partIds) {
+            this.product = product;
+            this.partIds = partIds;
+        }
+
+        /**
+         * Attach the parts and run the product form's validation
+         * @throws IVException - unknown part or invalid product
+         */
+        Product resolve() throws IVException {
+            for (int partId : partIds) {
+                Part part = Inventory.lookupPart(partId);
+                if (part == null) {
+                    IVException.fail("import.unknownPart", "Part " + partId + " is not in inventory.");
+                }
+                product.addAssociatedPart(part);
+            }
+            product.validateProduct();
+            return product;
+        }
+    }
+
+    /**
+     * A rejected row
+     */
+    static final class RowError {
+        final int lineNumber;
+        final String message;
+
+        RowError(int lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() { return "Line " + lineNumber + ": " + message; }
+    }
+
+    /**
+     * Outcome of an import. Filled in on the committer, read once importFile returns.
+     */
+    static final class Report {
+        private final List<RowError> errors = new ArrayList<>();
+        private final AtomicInteger errorCount = new AtomicInteger();
+        // Only written by the committer
+        private volatile int imported;
+
+        private void add(RowError error) {
+            if (errorCount.getAndIncrement() < MAX_REPORTED_ERRORS) { errors.add(error); }
+        }
+
+        /**
+         * @return number of rows added or updated
+         */
+        int getImported() { return imported; }
+
+        /**
+         * @return number of rejected rows
+         */
+        int getErrorCount() { return errorCount.get(); }
+
+        /**
+         * @return first MAX_REPORTED_ERRORS rejected rows
+         */
+        List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+    }
+}
@@ -0,0 +1,381 @@
+package ims;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiPredicate;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+
+/**
+ * Content-hash index for spotting identical parts or products entered twice.
+ * Every item is reduced to a 64-bit fingerprint of its normalized content: name (trimmed,
+ * inner whitespace collapsed, case ignored), price in cents, min, max and the machine ID or
+ * company name for parts, the associated part IDs in any order for products. ID and stock
+ * are left out, the same item with another count is still the same item.
+ * Finding an item's duplicate is one hash lookup; fingerprints that match are confirmed
+ * field by field, so a hash collision never reports a false duplicate.
+ *
+ * findRepeats() does the same for a plain list of any size, e.g. a freshly imported catalog,
+ * on a fork/join pool: chunks of the list are fingerprinted, the items are partitioned by
+ * the top bits of their fingerprint, and each slice is matched in its own primitive
+ * open-addressing table. Every pass is O(n) in total, and millions of rows are cleaned
+ * without a boxed map entry per row.
+ * Methods are synchronized, bulk loads may index from another thread.
+ * @param <T> - Part or Product
+ */
+class DuplicateIndex<T> {
+    // Smallest chunk of a list fingerprinted by one task
+    static final int LEAF_ITEMS = 8192;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ToIntFunction<T> idOf;
+    private final ToLongFunction<T> fingerprintOf;
+    private final BiPredicate<T, T> sameContent;
+    // Items by fingerprint, a list only where fingerprints are shared
+    private final Map<Long, Object> byFingerprint = new HashMap<>();
+    private final Map<Integer, T> itemsById = new HashMap<>();
+    private final Map<Integer, Long> fingerprintsById = new HashMap<>();
+
+    /**
+     * @param idOf - reads the ID of an item
+     * @param fingerprintOf - content hash, e.g. DuplicateIndex::fingerprint
+     * @param sameContent - confirms two items with equal fingerprints really match
+     */
+    DuplicateIndex(ToIntFunction<T> idOf, ToLongFunction<T> fingerprintOf, BiPredicate<T, T> sameContent) {
+        this.idOf = idOf;
+        this.fingerprintOf = fingerprintOf;
+        this.sameContent = sameContent;
+    }
+
+    /**
+     * Index an item, replacing any item indexed under the same ID
+     * @param item - item to index
+     */
+    synchronized void put(T item) {
+        int id = idOf.applyAsInt(item);
+        remove(id);
+        long fingerprint = fingerprintOf.applyAsLong(item);
+        itemsById.put(id, item);
+        fingerprintsById.put(id, fingerprint);
+        byFingerprint.merge(fingerprint, item, DuplicateIndex::join);
+    }
+
+    /**
+     * @param id - id of item to drop
+     */
+    synchronized void remove(int id) {
+        T item = itemsById.remove(id);
+        if (item == null) { return; }
+        long fingerprint = fingerprintsById.remove(id);
+        Object held = byFingerprint.get(fingerprint);
+        if (held == item) {
+            byFingerprint.remove(fingerprint);
+        } else if (held instanceof List) {
+            List<?> items = (List<?>) held;
+            items.remove(item);
+            if (items.size() == 1) { byFingerprint.put(fingerprint, items.get(0)); }
+        }
+    }
+
+    synchronized void clear() {
+        byFingerprint.clear();
+        itemsById.clear();
+        fingerprintsById.clear();
+    }
+
+    /**
+     * Find an indexed item with the same content as the given one but another ID, O(1)
+     * @param item - new or modified item
+     * @return matching item with the lowest ID, or null if the item is unique
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T find(T item) {
+        Object held = byFingerprint.get(fingerprintOf.applyAsLong(item));
+        if (held == null) { return null; }
+        int id = idOf.applyAsInt(item);
+        T found = null;
+        for (Object other : held instanceof List ? (List<Object>) held : List.of(held)) {
+            T candidate = (T) other;
+            int candidateId = idOf.applyAsInt(candidate);
+            if (candidateId != id && sameContent.test(candidate, item)
+                    && (found == null || candidateId < idOf.applyAsInt(found))) {
+                found = candidate;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return true if some indexed items share a fingerprint, a cheap hint that duplicates may exist
+     */
+    synchronized boolean mayHaveDuplicates() { return byFingerprint.size() < itemsById.size(); }
+
+    @SuppressWarnings("unchecked")
+    private static Object join(Object held, Object added) {
+        List<Object> items;
+        if (held instanceof List) {
+            items = (List<Object>) held;
+        } else {
+            items = new ArrayList<>(2);
+            items.add(held);
+        }
+        items.add(added);
+        return items;
+    }
+
+    /**
+     * Find the items of a list that repeat an earlier item, on the given pool
+     * @param items - items to check, not changed
+     * @param fingerprintOf - content hash
+     * @param sameContent - confirms two items with equal fingerprints really match
+     * @param pool - pool running the pass
+     * @return flags, true for each item with the same content as an item before it
+     */
+    @SuppressWarnings("unchecked")
+    static <T> boolean[] findRepeats(List<T> items, ToLongFunction<T> fingerprintOf, BiPredicate<T, T> sameContent,
+                                     ForkJoinPool pool) {
+        Object[] array = items.toArray();
+        int n = array.length;
+        long[] fingerprints = new long[n];
+        boolean[] repeats = new boolean[n];
+        // A power of two slices of the hash space per thread, so a few busy slices can't hold up the rest
+        int sliceBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, pool.getParallelism() * 4 - 1));
+        int slices = 1 << sliceBits;
+        int chunks = Math.max(1, Math.min((n + LEAF_ITEMS - 1) / LEAF_ITEMS, pool.getParallelism() * 4));
+        int chunkSize = (n + chunks - 1) / chunks;
+        // Fingerprint each chunk, counting its items per slice
+        int[][] starts = new int[chunks][slices];
+        parallel(pool, chunks, chunk -> {
+            for (int i = chunk * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+                fingerprints[i] = fingerprintOf.applyAsLong((T) array[i]);
+                starts[chunk][sliceOf(fingerprints[i], sliceBits)]++;
+            }
+        });
+        // Lay the slices out one after another, each chunk's items in list order
+        int[] sliceStarts = new int[slices + 1];
+        for (int slice = 0, at = 0; slice < slices; slice++) {
+            sliceStarts[slice] = at;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int count = starts[chunk][slice];
+                starts[chunk][slice] = at;
+                at += count;
+            }
+        }
+        sliceStarts[slices] = n;
+        int[] order = new int[n];
+        parallel(pool, chunks, chunk -> {
+            int[] next = starts[chunk];
+            for (int i = chunk * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+                order[next[sliceOf(fingerprints[i], sliceBits)]++] = i;
+            }
+        });
+        // Match within each slice, visiting items in list order so the first of each group is kept
+        parallel(pool, slices, slice -> {
+            int from = sliceStarts[slice];
+            int count = sliceStarts[slice + 1] - from;
+            if (count < 2) { return; }
+            // Open addressing over item indexes, at most half full
+            int[] table = new int[Integer.highestOneBit(count * 2 - 1) << 1];
+            Arrays.fill(table, -1);
+            int mask = table.length - 1;
+            for (int k = from; k < from + count; k++) {
+                int i = order[k];
+                long fingerprint = fingerprints[i];
+                int at = (int) fingerprint & mask;
+                while (table[at] >= 0) {
+                    int kept = table[at];
+                    if (fingerprints[kept] == fingerprint && sameContent.test((T) array[kept], (T) array[i])) {
+                        repeats[i] = true;
+                        break;
+                    }
+                    at = (at + 1) & mask;
+                }
+                if (!repeats[i]) { table[at] = i; }
+            }
+        });
+        return repeats;
+    }
+
+    private static int sliceOf(long fingerprint, int sliceBits) { return (int) (fingerprint >>> (64 - sliceBits)); }
+
+    /**
+     * Run task 0..tasks-1 on the pool, splitting the range in halves
+     */
+    private static void parallel(ForkJoinPool pool, int tasks, IntConsumer task) {
+        pool.invoke(new Spread(task, 0, tasks));
+    }
+
+    private static final class Spread extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer task;
+        private final int from;
+        private final int to;
+
+        Spread(IntConsumer task, int from, int to) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                task.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Spread(task, from, mid), new Spread(task, mid, to));
+        }
+    }
+
+    /**
+     * @param part - part to fingerprint
+     * @return hash of the part's normalized content
+     */
+    static long fingerprint(Part part) {
+        long h = common(part.getName(), part.getPrice(), part.getMin(), part.getMax());
+        if (part instanceof PartInHouse) {
+            h = mix(h, 1);
+            h = mix(h, ((PartInHouse) part).getMachineID());
+        } else if (part instanceof PartOutsourced) {
+            h = mix(h, 2);
+            h = hashName(h, ((PartOutsourced) part).getCompanyName());
+        }
+        return finish(h);
+    }
+
+    /**
+     * @param product - product to fingerprint
+     * @return hash of the product's normalized content, its part IDs in any order
+     */
+    static long fingerprint(Product product) {
+        long h = common(product.getName(), product.getPrice(), product.getMin(), product.getMax());
+        // Sum of mixed IDs: the same whichever order the parts were listed in
+        long parts = 0;
+        for (Part part : product.getAssociatedParts()) { parts += finish(part.getId() + FNV_PRIME); }
+        return finish(mix(h, parts));
+    }
+
+    /**
+     * @return true if the parts hold the same normalized content
+     */
+    static boolean sameContent(Part a, Part b) {
+        if (!sameCommon(a.getName(), a.getPrice(), a.getMin(), a.getMax(),
+                b.getName(), b.getPrice(), b.getMin(), b.getMax())) { return false; }
+        if (a instanceof PartInHouse) {
+            return b instanceof PartInHouse && ((PartInHouse) a).getMachineID() == ((PartInHouse) b).getMachineID();
+        }
+        if (a instanceof PartOutsourced) {
+            if (!(b instanceof PartOutsourced)) { return false; }
+            // Equal codes are equal names, only different spellings need the slow compare
+            PartOutsourced outA = (PartOutsourced) a;
+            PartOutsourced outB = (PartOutsourced) b;
+            return outA.getCompanyCode() == outB.getCompanyCode() || sameName(outA.getCompanyName(), outB.getCompanyName());
+        }
+        return a.getClass() == b.getClass();
+    }
+
+    /**
+     * @return true if the products hold the same normalized content and the same parts, in any order
+     */
+    static boolean sameContent(Product a, Product b) {
+        if (!sameCommon(a.getName(), a.getPrice(), a.getMin(), a.getMax(),
+                b.getName(), b.getPrice(), b.getMin(), b.getMax())) { return false; }
+        if (a.getAssociatedParts().size() != b.getAssociatedParts().size()) { return false; }
+        return Arrays.equals(sortedPartIds(a), sortedPartIds(b));
+    }
+
+    private static int[] sortedPartIds(Product product) {
+        List<Part> parts = product.getAssociatedParts();
+        int[] ids = new int[parts.size()];
+        for (int i = 0; i < ids.length; i++) { ids[i] = parts.get(i).getId(); }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static long common(String name, double price, int min, int max) {
+        long h = hashName(FNV_OFFSET, name);
+        h = mix(h, cents(price));
+        h = mix(h, min);
+        return mix(h, max);
+    }
+
+    private static boolean sameCommon(String nameA, double priceA, int minA, int maxA,
+                                      String nameB, double priceB, int minB, int maxB) {
+        return cents(priceA) == cents(priceB) && minA == minB && maxA == maxB && sameName(nameA, nameB);
+    }
+
+    private static long cents(double price) { return Math.round(price * 100); }
+
+    /**
+     * FNV-1a over the normalized name, read in place instead of building a normalized copy
+     */
+    private static long hashName(long h, String name) {
+        if (name == null) { return mix(h, -1); }
+        boolean space = false;
+        boolean started = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = started;
+                continue;
+            }
+            if (space) { h = (h ^ ' ') * FNV_PRIME; }
+            h = (h ^ Character.toLowerCase(Character.toUpperCase(c))) * FNV_PRIME;
+            space = false;
+            started = true;
+        }
+        return h;
+    }
+
+    /**
+     * @return true if the names match ignoring case, outer whitespace and runs of inner whitespace
+     */
+    static boolean sameName(String a, String b) {
+        if (a == null || b == null) { return a == b; }
+        int i = skipSpace(a, 0);
+        int j = skipSpace(b, 0);
+        while (i < a.length() && j < b.length()) {
+            boolean spaceA = Character.isWhitespace(a.charAt(i));
+            boolean spaceB = Character.isWhitespace(b.charAt(j));
+            if (spaceA || spaceB) {
+                if (!spaceA || !spaceB) { return false; }
+                i = skipSpace(a, i);
+                j = skipSpace(b, j);
+                // Trailing whitespace on one side only still matches
+                if (i == a.length() || j == b.length()) { break; }
+                continue;
+            }
+            char ca = Character.toLowerCase(Character.toUpperCase(a.charAt(i++)));
+            char cb = Character.toLowerCase(Character.toUpperCase(b.charAt(j++)));
+            if (ca != cb) { return false; }
+        }
+        return skipSpace(a, i) == a.length() && skipSpace(b, j) == b.length();
+    }
+
+    private static int skipSpace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) { i++; }
+        return i;
+    }
+
+    private static long mix(long h, long value) { return (h ^ value) * FNV_PRIME + (value >>> 32); }
+
+    /**
+     * Murmur3 finalizer, spreads every input bit over the top bits the slices and tables use
+     */
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb53fe3cd1a49L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -16,4 +16,15 @@ public class IVException extends Exception {
         super(err);
     }
 
+    /**
+     * Count a failed validation rule in InventoryMetrics, then throw
+     * @param rule - rule that failed, e.g. "part.minAboveMax"
+     * @param err - message for the user
+     * @throws IVException - always
+     */
+    static void fail(String rule, String err) throws IVException {
+        InventoryMetrics.validationFailed(rule);
+        throw new IVException(err);
+    }
+
 }
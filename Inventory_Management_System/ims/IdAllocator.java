@@ -0,0 +1,146 @@
+package ims;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+
+/**
+ * Monotonic ID Allocator - hands out increasing part/product IDs that are never reused.
+ * Each thread leases a block of IDs with a single atomic add and then allocates
+ * from its own block without any shared writes, so parallel loaders never contend.
+ * When backed by a store file, a high-water mark well ahead of the leased blocks is
+ * persisted, so IDs handed out before a restart are never handed out again.
+ * When backed by a shared lease source, blocks come from a counter shared with other
+ * processes instead, so processes working on the same inventory never collide. Shared
+ * blocks are small: every leased ID takes a slot of the shared file, and IDs a process
+ * leased but never used are lost when it exits.
+ * Seeding raises a floor every thread checks, so blocks leased before the seed skip the IDs
+ * below it too.
+ */
+class IdAllocator {
+    // IDs leased to a thread at once
+    static final int BLOCK_SIZE = 1024;
+    // IDs leased to a thread at once from a shared lease source
+    static final int SHARED_BLOCK_SIZE = 8;
+    // IDs reserved in the store file per write
+    static final int RESERVE_SIZE = 64 * BLOCK_SIZE;
+    // Next ID not yet leased to any thread
+    private final AtomicInteger ceiling = new AtomicInteger();
+    // Lowest ID that may still be handed out, raised by seed
+    private final AtomicInteger floor = new AtomicInteger();
+    // Per-thread block: [next ID, end of block (exclusive)]
+    private final ThreadLocal<int[]> block = ThreadLocal.withInitial(() -> new int[2]);
+    // Highest ID (exclusive) recorded in the store file
+    private volatile int reserved;
+    private volatile Path store;
+    // Shared block source: takes a block size, returns the block's first ID. Null when leasing locally.
+    private volatile IntUnaryOperator source;
+
+    /**
+     * Allocate the next ID for the calling thread
+     * @return new unique ID
+     */
+    int next() {
+        int[] b = block.get();
+        int min = floor.get();
+        skipTo(b, min);
+        while (b[0] >= b[1]) {
+            lease(b);
+            skipTo(b, min);
+        }
+        return b[0]++;
+    }
+
+    /**
+     * Preview the ID the calling thread will receive from its next allocation
+     * @return next ID for this thread
+     */
+    int peek() {
+        int[] b = block.get();
+        int min = floor.get();
+        if (Math.max(b[0], min) < b[1]) { return Math.max(b[0], min); }
+        IntUnaryOperator shared = source;
+        return Math.max(min, shared == null ? ceiling.get() : shared.applyAsInt(0));
+    }
+
+    /**
+     * Make sure IDs below floor are never allocated, e.g. after loading existing items
+     * @param floor - lowest ID that may still be handed out
+     */
+    void seed(int floor) {
+        if (floor <= this.floor.get()) { return; }
+        this.floor.accumulateAndGet(floor, Math::max);
+        ceiling.accumulateAndGet(floor, Math::max);
+    }
+
+    /**
+     * Back this allocator with a store file, resuming from its recorded high-water mark
+     * @param storeFile - file holding the reserved high-water mark
+     * @throws IOException - store file could not be read
+     */
+    synchronized void open(Path storeFile) throws IOException {
+        Files.createDirectories(storeFile.toAbsolutePath().getParent());
+        store = storeFile;
+        if (Files.exists(storeFile)) {
+            reserved = Integer.parseInt(Files.readString(storeFile, StandardCharsets.UTF_8).trim());
+            seed(reserved);
+        }
+        reserved = Math.max(reserved, ceiling.get());
+    }
+
+    /**
+     * Lease all further blocks from a shared source, e.g. a counter in shared memory.
+     * Call before any ID is allocated, blocks already leased are still used up first.
+     * @param leaseSource - takes a block size and returns the first ID of the block,
+     *                      a size of 0 returns the next ID without leasing
+     */
+    void leaseFrom(IntUnaryOperator leaseSource) { source = leaseSource; }
+
+    /**
+     * Drop the IDs of a block that lie below the floor
+     * @param b - calling thread's block
+     * @param min - current floor
+     */
+    private static void skipTo(int[] b, int min) {
+        if (b[0] < min) { b[0] = Math.min(min, b[1]); }
+    }
+
+    /**
+     * Lease a fresh block of IDs to the calling thread
+     * @param b - calling thread's block
+     */
+    private void lease(int[] b) {
+        IntUnaryOperator shared = source;
+        if (shared != null) {
+            b[0] = shared.applyAsInt(SHARED_BLOCK_SIZE);
+            b[1] = b[0] + SHARED_BLOCK_SIZE;
+            return;
+        }
+        int start = ceiling.getAndAdd(BLOCK_SIZE);
+        b[0] = start;
+        b[1] = start + BLOCK_SIZE;
+        if (store != null && b[1] > reserved) { reserve(b[1]); }
+    }
+
+    /**
+     * Record a new high-water mark ahead of the leased blocks
+     * @param end - end of the block that must be covered
+     */
+    private synchronized void reserve(int end) {
+        if (end <= reserved) { return; }
+        int mark = end + RESERVE_SIZE;
+        try {
+            Path tmp = store.resolveSibling(store.getFileName() + ".tmp");
+            Files.writeString(tmp, Integer.toString(mark), StandardCharsets.UTF_8);
+            Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not record ID high-water mark", e);
+        }
+        reserved = mark;
+    }
+}
@@ -1,7 +1,17 @@
 package ims;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 
 /**
@@ -10,9 +20,44 @@ import javafx.scene.control.Alert;
  * @see MainController ims
  */
 public class Inventory {
-    // Lists for all parts/products in inventory
-    private final static ObservableList<Part> inventoryParts = FXCollections.observableArrayList();
-    private final static ObservableList<Product> inventoryProducts = FXCollections.observableArrayList();
+    /**
+     * Fields parts and products can be sorted and range-queried on
+     */
+    public enum SortKey { ID, NAME, PRICE, STOCK, MIN, MAX }
+
+    // ID-keyed indexes for all parts/products in inventory, each backing an observable list view
+    private final static InventoryIndex<Part> inventoryParts = new InventoryIndex<>(Part::getId);
+    private final static InventoryIndex<Product> inventoryProducts = new InventoryIndex<>(Product::getId);
+    // Name n-gram indexes answering search bar queries
+    private final static NameIndex<Part> partNames = new NameIndex<>(Part::getId, Part::getName, InventoryMetrics.partSearches);
+    private final static NameIndex<Product> productNames = new NameIndex<>(Product::getId, Product::getName, InventoryMetrics.productSearches);
+    // Sorted indexes for range queries, pages and sorted tables, built per key on first use
+    private final static SortedIndex<Part> partsSorted =
+            new SortedIndex<>(Part::getId, Inventory::partKey, inventoryParts::view);
+    private final static SortedIndex<Product> productsSorted =
+            new SortedIndex<>(Product::getId, Inventory::productKey, inventoryProducts::view);
+    // Reverse index from part to the products using it
+    private final static PartUsageIndex partUsage = new PartUsageIndex();
+    // IDs of products priced below the sum of their parts
+    private final static Set<Integer> underpricedProducts = new HashSet<>();
+    // Monotonic ID allocators, IDs are never reused after a delete
+    private final static IdAllocator partIds = new IdAllocator();
+    private final static IdAllocator productIds = new IdAllocator();
+    // Versions of the inventory for undo/redo and named snapshots
+    private final static InventoryHistory history = new InventoryHistory();
+    // Write-ahead journal, null until inventory is opened from disk
+    private static InventoryJournal journal;
+    // Inventory file shared with other local processes, null unless attached
+    private static volatile SharedInventory shared;
+    // Columnar copy of the parts for analytic scans, null unless enabled
+    private static volatile PartColumns partColumns;
+    // Parts and products at or beyond their min/max, ranked by shortfall
+    private final static StockWatchlist watchlist = new StockWatchlist();
+    // Content-hash indexes spotting identical parts/products entered under different IDs
+    private final static DuplicateIndex<Part> partDuplicates =
+            new DuplicateIndex<>(Part::getId, DuplicateIndex::fingerprint, DuplicateIndex::sameContent);
+    private final static DuplicateIndex<Product> productDuplicates =
+            new DuplicateIndex<>(Product::getId, DuplicateIndex::fingerprint, DuplicateIndex::sameContent);
 
     /**
      * Empty Inventory Constructor
@@ -23,50 +68,1110 @@ public class Inventory {
      * Add part to inventory
      * @param newPart - part to create
      */
-    public static void addPart(Part newPart){ inventoryParts.add(newPart); }
+    public static void addPart(Part newPart){
+        long start = System.nanoTime();
+        checkJournal();
+        // Published first, so a part the shared file cannot hold leaves the inventory as it was
+        if (isPublishing()) { shared.publishPart(newPart, null); }
+        partIds.seed(newPart.getId() + 1);
+        inventoryParts.put(newPart);
+        partNames.index(newPart);
+        partDuplicates.put(newPart);
+        if (partColumns != null) { partColumns.put(newPart); }
+        watchlist.update(newPart);
+        partsSorted.put(newPart);
+        recordPart(newPart.getId(), newPart);
+        if (journal != null) { journal.appendPart(InventoryJournal.ADD_PART, newPart); }
+        InventoryMetrics.partAdds.recordSince(start);
+    }
+
+    /**
+     * Bulk load parts read from a snapshot, not journaled.
+     * The part name index is rebuilt in the background so the tables can show right away.
+     * @param parts - parts to load, IDs must not be in inventory yet
+     */
+    static void loadParts(List<Part> parts) {
+        int maxId = -1;
+        for (Part p : parts) { maxId = Math.max(maxId, p.getId()); }
+        partIds.seed(maxId + 1);
+        inventoryParts.putAll(parts);
+        if (partColumns != null) {
+            for (Part p : parts) { partColumns.put(p); }
+        }
+        for (Part p : parts) {
+            partDuplicates.put(p);
+            watchlist.update(p);
+            partsSorted.put(p);
+        }
+        history.partsLoaded(parts);
+        rebuildInBackground(partNames, parts);
+    }
+
+    /**
+     * Bulk load products read from a snapshot, not journaled.
+     * The product name index is rebuilt in the background so the tables can show right away.
+     * @param products - products to load, IDs must not be in inventory yet
+     */
+    static void loadProducts(List<Product> products) {
+        int maxId = -1;
+        for (Product p : products) { maxId = Math.max(maxId, p.getId()); }
+        productIds.seed(maxId + 1);
+        inventoryProducts.putAll(products);
+        for (Product p : products) {
+            partUsage.track(p);
+            checkProductPrice(p);
+            productDuplicates.put(p);
+            watchlist.update(p);
+            productsSorted.put(p);
+        }
+        history.productsLoaded(products);
+        rebuildInBackground(productNames, products);
+    }
+
+    /**
+     * Index loaded items on a background thread. The rebuild is prepared here, so
+     * changes made right after, e.g. by journal replay, are kept.
+     */
+    private static <T> void rebuildInBackground(NameIndex<T> names, List<T> items) {
+        Runnable build = names.prepareRebuild(items);
+        if (build == null) { return; }
+        Thread thread = new Thread(build, "ims-name-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
     /**
      * Add product to inventory
      * @param newProduct - product to create
      */
-    public static void addProduct(Product newProduct){ inventoryProducts.add(newProduct); }
+    public static void addProduct(Product newProduct){
+        long start = System.nanoTime();
+        checkJournal();
+        // Published first, so a product the shared file cannot hold leaves the inventory as it was
+        if (isPublishing()) { shared.publishProduct(newProduct, null); }
+        productIds.seed(newProduct.getId() + 1);
+        inventoryProducts.put(newProduct);
+        productNames.index(newProduct);
+        productDuplicates.put(newProduct);
+        partUsage.track(newProduct);
+        checkProductPrice(newProduct);
+        watchlist.update(newProduct);
+        productsSorted.put(newProduct);
+        recordProduct(newProduct.getId(), newProduct);
+        if (journal != null) { journal.appendProduct(InventoryJournal.ADD_PRODUCT, newProduct); }
+        InventoryMetrics.productAdds.recordSince(start);
+    }
+
+    /**
+     * Add many parts, notifying the inventory lists once
+     * @param newParts - parts to create
+     */
+    public static void addAllParts(Collection<? extends Part> newParts) {
+        beginBatch();
+        try {
+            for (Part part : newParts) { addPart(part); }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Add many products, notifying the inventory lists once
+     * @param newProducts - products to create
+     */
+    public static void addAllProducts(Collection<? extends Product> newProducts) {
+        beginBatch();
+        try {
+            for (Product product : newProducts) { addProduct(product); }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Modify many parts, notifying the inventory lists once
+     * @param modifiedParts - replacement parts, matched by ID
+     */
+    public static void modifyAllParts(Collection<? extends Part> modifiedParts) {
+        beginBatch();
+        try {
+            for (Part part : modifiedParts) { modifyPart(part); }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Modify many products, notifying the inventory lists once
+     * @param modifiedProducts - replacement products, matched by ID
+     */
+    public static void modifyAllProducts(Collection<? extends Product> modifiedProducts) {
+        beginBatch();
+        try {
+            for (Product product : modifiedProducts) { modifyProduct(product); }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Delete many parts by ID, notifying the inventory lists once
+     * @param partIds - ids of parts to be deleted
+     */
+    public static void deleteAllParts(Collection<Integer> partIds) {
+        beginBatch();
+        try {
+            for (int partId : partIds) { deletePart(partId); }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Delete many products by ID, notifying the inventory lists once
+     * @param productIds - ids of products to be deleted
+     */
+    public static void deleteAllProducts(Collection<Integer> productIds) {
+        beginBatch();
+        try {
+            for (int productId : productIds) { deleteProduct(productId); }
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Start a batch of mixed changes. Listeners of the part and product lists hear
+     * nothing until the matching commit, then get one change for the whole batch.
+     * Batches nest, only the outermost commit notifies. Call both on the JavaFX thread.
+     */
+    public static void beginBatch() {
+        history.begin();
+        inventoryParts.beginBatch();
+        inventoryProducts.beginBatch();
+    }
+
+    /**
+     * Finish the batch started by the matching beginBatch and notify list listeners
+     */
+    public static void commit() {
+        inventoryProducts.endBatch();
+        inventoryParts.endBatch();
+        history.end();
+    }
 
     /**
      * @return list of parts in inventory
      */
-    public static ObservableList<Part> getInventoryParts() { return inventoryParts; }
+    public static ObservableList<Part> getInventoryParts() { return inventoryParts.view(); }
 
     /**
      * @return list of inventoried products
      */
-    public static ObservableList<Product> getInventoryProducts() { return inventoryProducts; }
+    public static ObservableList<Product> getInventoryProducts() { return inventoryProducts.view(); }
+
+    /**
+     * Look up a part by its ID
+     * @param partId - id of part to find
+     * @return matching part, or null if no part has that ID
+     */
+    public static Part lookupPart(int partId) { return inventoryParts.get(partId); }
+
+    /**
+     * Look up a product by its ID
+     * @param productId - id of product to find
+     * @return matching product, or null if no product has that ID
+     */
+    public static Product lookupProduct(int productId) { return inventoryProducts.get(productId); }
+
+    /**
+     * Search parts by name substring or exact ID
+     * @param query - search bar input
+     * @return matching parts in ID order
+     */
+    public static List<Part> searchParts(String query) { return partNames.search(query); }
+
+    /**
+     * Search products by name substring or exact ID
+     * @param query - search bar input
+     * @return matching products in ID order
+     */
+    public static List<Product> searchProducts(String query) { return productNames.search(query); }
+
+    /**
+     * @return part name index, for background search services
+     */
+    static NameIndex<Part> getPartNameIndex() { return partNames; }
+
+    /**
+     * @return product name index, for background search services
+     */
+    static NameIndex<Product> getProductNameIndex() { return productNames; }
 
     /**
-     * Tracks count for incrementing part IDs
      * @return total part count
      */
     public static int getInventoryPartCount() { return inventoryParts.size(); }
 
     /**
-     * Tracks count for incrementing product IDs
      * @return total product count
      */
     public static int getInventoryProductCount() { return inventoryProducts.size(); }
 
     /**
-     * Modify inventory part with new user input
+     * Allocate a new part ID, safe to call from many threads at once
+     * @return unique, never reused part ID
+     */
+    public static int nextPartId() { return partIds.next(); }
+
+    /**
+     * @return part ID the calling thread will be given next
+     */
+    public static int peekPartId() { return partIds.peek(); }
+
+    /**
+     * Allocate a new product ID, safe to call from many threads at once
+     * @return unique, never reused product ID
+     */
+    public static int nextProductId() { return productIds.next(); }
+
+    /**
+     * @return product ID the calling thread will be given next
+     */
+    public static int peekProductId() { return productIds.peek(); }
+
+    /**
+     * Persist ID high-water marks in the given directory so IDs survive a restart
+     * @param dataDir - directory holding the ID store files
+     * @throws IOException - ID store files could not be read
+     */
+    public static void openIdStore(Path dataDir) throws IOException {
+        partIds.open(dataDir.resolve("part.ids"));
+        productIds.open(dataDir.resolve("product.ids"));
+    }
+
+    /**
+     * Load inventory from the last snapshot and journal in the given directory,
+     * then journal every following change there
+     * @param dataDir - directory holding the snapshot and journal
+     * @throws IOException - snapshot or journal could not be read
+     */
+    public static void open(Path dataDir) throws IOException {
+        if (journal != null) { return; }
+        journal = InventoryJournal.recover(dataDir);
+        // Replayed changes are the starting point, not steps to undo
+        history.forget();
+        history.onCommitted(journal::versionCommitted);
+    }
+
+    /**
+     * Attach to an inventory file shared by every local process, load its contents and
+     * follow changes made by the other processes. IDs are then leased from the file.
+     * Use instead of openIdStore/open.
+     * @param file - shared inventory file, created if missing
+     * @throws IOException - file could not be created or mapped
+     */
+    public static void openShared(Path file) throws IOException {
+        if (shared != null) { return; }
+        SharedInventory inventory = SharedInventory.attach(file);
+        partIds.leaseFrom(inventory::leasePartIds);
+        productIds.leaseFrom(inventory::leaseProductIds);
+        inventory.start();
+        shared = inventory;
+    }
+
+    /**
+     * Refuse a change before it touches memory if the journal can no longer record it
+     */
+    private static void checkJournal() { if (journal != null) { journal.checkWritable(); } }
+
+    /**
+     * @return true if changes made here must be published to the shared inventory file
+     */
+    private static boolean isPublishing() { return shared != null && !shared.isApplyingRemote(); }
+
+    /**
+     * Remove every part and product without journaling it, e.g. between benchmark runs.
+     * IDs already handed out are still never reused.
+     */
+    public static void clear() {
+        partUsage.clear();
+        underpricedProducts.clear();
+        inventoryProducts.clear();
+        inventoryParts.clear();
+        if (partColumns != null) { partColumns.clear(); }
+        productDuplicates.clear();
+        partDuplicates.clear();
+        watchlist.clear();
+        productsSorted.clear();
+        partsSorted.clear();
+        history.clear();
+        productNames.clear();
+        partNames.clear();
+    }
+
+    /**
+     * Wait until every journaled change is on disk and stop journaling
+     * @throws IOException - a change could not be written
+     */
+    public static void close() throws IOException {
+        try {
+            if (shared != null) { shared.close(); }
+        } finally {
+            shared = null;
+        }
+        if (journal == null) { return; }
+        history.onCommitted(null);
+        try {
+            journal.close();
+        } finally {
+            journal = null;
+        }
+    }
+
+    /**
+     * Modify inventory part with new user input.
+     * The part holding the same ID is replaced in place, and in the same batch every product
+     * using it is replaced by a copy pointing at the new part.
      * @param modifiedPart - part selected for modification
      */
     public static void modifyPart(Part modifiedPart) {
-        inventoryParts.set(modifiedPart.getId(), modifiedPart);
+        long start = System.nanoTime();
+        checkJournal();
+        beginBatch();
+        try {
+            Part replaced = inventoryParts.get(modifiedPart.getId());
+            // Published first, so a part the shared file cannot hold leaves the inventory as it was
+            boolean stockPublished = replaced == null || !isPublishing() || shared.publishPart(modifiedPart, replaced);
+            if (replaced != null && replacePart(replaced, modifiedPart)) {
+                partNames.index(modifiedPart);
+                partDuplicates.put(modifiedPart);
+                if (partColumns != null) { partColumns.put(modifiedPart); }
+                watchlist.update(modifiedPart);
+                partsSorted.put(modifiedPart);
+                recordPart(modifiedPart.getId(), modifiedPart);
+                if (journal != null) { journal.appendPart(InventoryJournal.MODIFY_PART, modifiedPart); }
+                // Another process changed the stock meanwhile, its change wins
+                if (!stockPublished) { followSharedPartStock(modifiedPart.getId()); }
+                // Part lists are shared with snapshots and undo versions, so they are never changed in place
+                for (Product product : getProductsUsingPart(modifiedPart.getId())) { modifyProduct(relinkParts(product), true); }
+            }
+        } finally {
+            commit();
+        }
+        InventoryMetrics.partModifies.recordSince(start);
+    }
+
+    /**
+     * Swap in a part while holding the replaced part's monitor, see onCurrent
+     * @return false if the part was not in inventory
+     */
+    private static boolean replacePart(Part replaced, Part part) {
+        synchronized (replaced) { return inventoryParts.replace(part); }
+    }
+
+    /**
+     * Swap in a product while holding the replaced product's monitor, see onCurrent
+     * @param keepStock - take the replaced product's stock as of the swap, so no concurrent change is lost
+     * @return false if the product was not in inventory
+     */
+    private static boolean replaceProduct(Product replaced, Product product, boolean keepStock) {
+        synchronized (replaced) {
+            if (keepStock) { product.setStock(replaced.getStock()); }
+            return inventoryProducts.replace(product);
+        }
+    }
+
+    /**
+     * Copy a product with each associated part swapped for the part now holding its ID
+     * @param product - product whose parts may have been replaced since it was built
+     * @return copy pointing at the live parts, or the product itself if all of them are live
+     */
+    static Product relinkParts(Product product) {
+        List<Part> parts = product.getAssociatedParts();
+        List<Part> live = new ArrayList<>(parts.size());
+        boolean stale = false;
+        for (Part part : parts) {
+            Part current = inventoryParts.get(part.getId());
+            stale |= current != null && current != part;
+            live.add(current != null ? current : part);
+        }
+        if (!stale) { return product; }
+        Product copy = new Product(product.getId(), product.getName(), product.getPrice(),
+                product.getStock(), product.getMin(), product.getMax());
+        copy.getAssociatedParts().addAll(live);
+        return copy;
     }
 
     /**
-     * Modify inventory product with new user input
+     * Modify inventory product with new user input.
+     * The product holding the same ID is replaced in place.
      * @param modifiedProduct - product selected for modification
      */
-    public static void modifyProduct(Product modifiedProduct) {
-        inventoryProducts.set(modifiedProduct.getId(), modifiedProduct);
+    public static void modifyProduct(Product modifiedProduct) { modifyProduct(modifiedProduct, false); }
+
+    /**
+     * @param modifiedProduct - product replacing the one holding its ID
+     * @param keepStock - carry over the replaced product's stock, for a copy that only relinks parts
+     */
+    private static void modifyProduct(Product modifiedProduct, boolean keepStock) {
+        long start = System.nanoTime();
+        checkJournal();
+        Product replaced = inventoryProducts.get(modifiedProduct.getId());
+        if (replaced != null && keepStock) { modifiedProduct.setStock(replaced.getStock()); }
+        // Published first, so a product the shared file cannot hold leaves the inventory as it was
+        boolean stockPublished = replaced == null || !isPublishing() || shared.publishProduct(modifiedProduct, replaced);
+        if (replaced != null && replaceProduct(replaced, modifiedProduct, keepStock)) {
+            productNames.index(modifiedProduct);
+            productDuplicates.put(modifiedProduct);
+            partUsage.track(modifiedProduct);
+            checkProductPrice(modifiedProduct);
+            watchlist.update(modifiedProduct);
+            productsSorted.put(modifiedProduct);
+            recordProduct(modifiedProduct.getId(), modifiedProduct);
+            if (journal != null) { journal.appendProduct(InventoryJournal.MODIFY_PRODUCT, modifiedProduct); }
+            // Another process changed the stock meanwhile, its change wins
+            if (!stockPublished) { followSharedProductStock(modifiedProduct.getId()); }
+        }
+        InventoryMetrics.productModifies.recordSince(start);
+    }
+
+    /**
+     * Atomically move a part's stock, e.g. from a receiving or picking feed.
+     * Safe to call from many threads at once; without a journal only the item's own monitor is taken. With a shared
+     * inventory file the change is a CAS on the item's slot there, so other processes' changes count too.
+     * @param partId - id of part
+     * @param delta - units received (positive) or taken out (negative)
+     * @return true if applied, false if the part is unknown or the stock would leave min..max
+     */
+    public static boolean adjustPartStock(int partId, int delta) {
+        if (shared != null) {
+            return inventoryParts.get(partId) != null && sharedStockChanged(partId, shared.adjustPartStock(partId, delta));
+        }
+        return onCurrent(inventoryParts, partId, part -> {
+            if (journal == null) { return stockChanged(part, part.adjustStock(delta), delta); }
+            synchronized (journal) {
+                journal.checkWritable();
+                if (!part.adjustStock(delta)) { return false; }
+                journal.appendStock(InventoryJournal.SET_PART_STOCK, partId, part.getStock());
+            }
+            return stockChanged(part, true, delta);
+        });
+    }
+
+    /**
+     * Atomically set a part's stock if it still holds the expected value
+     * @param partId - id of part
+     * @param expected - stock the caller last read
+     * @param newStock - stock to set, must be within min..max
+     * @return true if set, false if the part is unknown, its stock changed meanwhile or newStock is out of bounds
+     */
+    public static boolean compareAndSetPartStock(int partId, int expected, int newStock) {
+        if (shared != null) {
+            return inventoryParts.get(partId) != null
+                    && sharedStockChanged(partId, shared.compareAndSetPartStock(partId, expected, newStock));
+        }
+        return onCurrent(inventoryParts, partId, part -> {
+            if (journal == null) { return stockChanged(part, part.compareAndSetStock(expected, newStock), newStock - expected); }
+            synchronized (journal) {
+                journal.checkWritable();
+                if (!part.compareAndSetStock(expected, newStock)) { return false; }
+                journal.appendStock(InventoryJournal.SET_PART_STOCK, partId, newStock);
+            }
+            return stockChanged(part, true, newStock - expected);
+        });
+    }
+
+    /**
+     * Atomically move a product's stock, e.g. from a production or shipping feed.
+     * Safe to call from many threads at once; without a journal only the item's own monitor is taken. With a shared
+     * inventory file the change is a CAS on the item's slot there, so other processes' changes count too.
+     * @param productId - id of product
+     * @param delta - units built (positive) or shipped (negative)
+     * @return true if applied, false if the product is unknown or the stock would leave min..max
+     */
+    public static boolean adjustProductStock(int productId, int delta) {
+        if (shared != null) {
+            return inventoryProducts.get(productId) != null
+                    && sharedProductStockChanged(productId, shared.adjustProductStock(productId, delta));
+        }
+        return onCurrent(inventoryProducts, productId, product -> {
+            if (journal == null) { return stockChanged(product, product.adjustStock(delta)); }
+            synchronized (journal) {
+                journal.checkWritable();
+                if (!product.adjustStock(delta)) { return false; }
+                journal.appendStock(InventoryJournal.SET_PRODUCT_STOCK, productId, product.getStock());
+            }
+            return stockChanged(product, true);
+        });
+    }
+
+    /**
+     * Atomically set a product's stock if it still holds the expected value
+     * @param productId - id of product
+     * @param expected - stock the caller last read
+     * @param newStock - stock to set, must be within min..max
+     * @return true if set, false if the product is unknown, its stock changed meanwhile or newStock is out of bounds
+     */
+    public static boolean compareAndSetProductStock(int productId, int expected, int newStock) {
+        if (shared != null) {
+            return inventoryProducts.get(productId) != null
+                    && sharedProductStockChanged(productId, shared.compareAndSetProductStock(productId, expected, newStock));
+        }
+        return onCurrent(inventoryProducts, productId, product -> {
+            if (journal == null) { return stockChanged(product, product.compareAndSetStock(expected, newStock)); }
+            synchronized (journal) {
+                journal.checkWritable();
+                if (!product.compareAndSetStock(expected, newStock)) { return false; }
+                journal.appendStock(InventoryJournal.SET_PRODUCT_STOCK, productId, newStock);
+            }
+            return stockChanged(product, true);
+        });
+    }
+
+    /**
+     * Run a stock change on the item now holding an ID, under that item's monitor. Replacing
+     * an item takes the same monitor, so a change never lands on an item just swapped out.
+     * The monitor is only contended while the item is being replaced.
+     * @param change - stock change, returns whether it was applied
+     * @return result of the change, false if no item holds the ID
+     */
+    private static <T> boolean onCurrent(InventoryIndex<T> index, int id, Predicate<T> change) {
+        while (true) {
+            T item = index.get(id);
+            if (item == null) { return false; }
+            synchronized (item) {
+                if (index.get(id) == item) { return change.test(item); }
+            }
+        }
+    }
+
+    /**
+     * Add a part change to the history. Changes from other processes can't be undone
+     * here, and would be rolled back by undoing earlier steps, so they end the history.
+     * @param part - part now holding the ID, or null once deleted
+     */
+    private static void recordPart(int partId, Part part) {
+        history.partChanged(partId, part);
+        if (shared != null && shared.isApplyingRemote()) { history.forget(); }
+    }
+
+    private static void recordProduct(int productId, Product product) {
+        history.productChanged(productId, product);
+        if (shared != null && shared.isApplyingRemote()) { history.forget(); }
+    }
+
+    /**
+     * Undo the last add, modify or delete, or the last batch of them
+     * @return false if there was nothing to undo
+     */
+    public static boolean undo() { return history.undo(); }
+
+    /**
+     * Redo the last undone change
+     * @return false if there was nothing to redo
+     */
+    public static boolean redo() { return history.redo(); }
+
+    /**
+     * @return true if there is a change to undo
+     */
+    public static boolean canUndo() { return history.canUndo(); }
+
+    /**
+     * @return true if there is an undone change to redo
+     */
+    public static boolean canRedo() { return history.canRedo(); }
+
+    /**
+     * Remember the current inventory under a name, in constant time and memory
+     * @param name - snapshot name, replaces any snapshot of that name
+     */
+    public static void saveSnapshot(String name) { history.snapshot(name); }
+
+    /**
+     * Bring inventory back to a named snapshot, as one undoable change.
+     * Only items changed since the snapshot are touched.
+     * @param name - snapshot name
+     * @return false if there is no snapshot of that name
+     */
+    public static boolean restoreSnapshot(String name) { return history.restore(name); }
+
+    /**
+     * @param name - snapshot name
+     * @return false if there was no snapshot of that name
+     */
+    public static boolean deleteSnapshot(String name) { return history.deleteSnapshot(name); }
+
+    /**
+     * @return names of saved snapshots, alphabetically
+     */
+    public static List<String> getSnapshotNames() { return history.snapshotNames(); }
+
+    /**
+     * Pin the inventory as of the last finished change or batch, for reading on any thread
+     * while changes go on. Costs O(1) and copies nothing; close the snapshot when done.
+     * @return consistent snapshot of all parts and products
+     */
+    public static InventorySnapshot pin() { return history.pin(); }
+
+    /**
+     * @return number of pinned snapshots not yet closed
+     */
+    public static int getPinnedSnapshotCount() { return history.pinnedCount(); }
+
+    /**
+     * Carry an applied stock change over to the part columns and the watchlist
+     * @param delta - stock change
+     * @return applied
+     */
+    private static boolean stockChanged(Part part, boolean applied, int delta) {
+        InventoryMetrics.stockUpdated(applied);
+        if (!applied) { return false; }
+        PartColumns columns = partColumns;
+        if (columns != null) { columns.addStock(part.getId(), delta); }
+        watchlist.update(part);
+        partsSorted.reindex(part, SortKey.STOCK);
+        return true;
+    }
+
+    private static boolean stockChanged(Product product, boolean applied) {
+        InventoryMetrics.stockUpdated(applied);
+        if (!applied) { return false; }
+        watchlist.update(product);
+        productsSorted.reindex(product, SortKey.STOCK);
+        return true;
+    }
+
+    /**
+     * Count a stock change made in the shared inventory file and copy the slot's stock over
+     * @return applied
+     */
+    private static boolean sharedStockChanged(int partId, boolean applied) {
+        InventoryMetrics.stockUpdated(applied);
+        if (applied) { followSharedPartStock(partId); }
+        return applied;
+    }
+
+    private static boolean sharedProductStockChanged(int productId, boolean applied) {
+        InventoryMetrics.stockUpdated(applied);
+        if (applied) { followSharedProductStock(productId); }
+        return applied;
+    }
+
+    /**
+     * Copy a part's stock from its shared inventory slot, after this or another process changed it there.
+     * Reads the slot again until it holds still, so of several threads racing here the last
+     * one always leaves the latest stock behind. Safe from any thread.
+     * @param partId - id of part
+     */
+    static void followSharedPartStock(int partId) {
+        Part part = inventoryParts.get(partId);
+        SharedInventory file = shared;
+        if (part == null || file == null) { return; }
+        PartColumns columns = partColumns;
+        int stock;
+        do {
+            stock = file.partStock(partId);
+            part.setStock(stock);
+            if (columns != null) { columns.setStock(partId, stock); }
+        } while (file.partStock(partId) != stock);
+        watchlist.update(part);
+        partsSorted.reindex(part, SortKey.STOCK);
+    }
+
+    /**
+     * Copy a product's stock from its shared inventory slot, after this or another process changed it there.
+     * Safe from any thread, see followSharedPartStock.
+     * @param productId - id of product
+     */
+    static void followSharedProductStock(int productId) {
+        Product product = inventoryProducts.get(productId);
+        SharedInventory file = shared;
+        if (product == null || file == null) { return; }
+        int stock;
+        do {
+            stock = file.productStock(productId);
+            product.setStock(stock);
+        } while (file.productStock(productId) != stock);
+        watchlist.update(product);
+        productsSorted.reindex(product, SortKey.STOCK);
+    }
+
+    /**
+     * Set a part's stock read back from the journal, not journaled again
+     * @param partId - id of part
+     * @param stock - journaled stock
+     */
+    static void restorePartStock(int partId, int stock) {
+        Part part = inventoryParts.get(partId);
+        if (part == null) { return; }
+        int delta = stock - part.getStock();
+        part.setStock(stock);
+        PartColumns columns = partColumns;
+        if (columns != null) { columns.addStock(partId, delta); }
+        watchlist.update(part);
+        partsSorted.reindex(part, SortKey.STOCK);
+    }
+
+    /**
+     * Set a product's stock read back from the journal, not journaled again
+     * @param productId - id of product
+     * @param stock - journaled stock
+     */
+    static void restoreProductStock(int productId, int stock) {
+        Product product = inventoryProducts.get(productId);
+        if (product == null) { return; }
+        product.setStock(stock);
+        watchlist.update(product);
+        productsSorted.reindex(product, SortKey.STOCK);
+    }
+
+    /**
+     * @return parts and products at or below min or at or above max, for the watchlist view
+     */
+    static StockWatchlist getStockWatchlist() { return watchlist; }
+
+    /**
+     * Keep a columnar copy of all parts, so stock scans walk primitive arrays instead of
+     * Part objects. Call on the JavaFX thread; part stock must then only change through
+     * Inventory (adjustPartStock, compareAndSetPartStock, modifyPart).
+     */
+    public static void enablePartColumns() {
+        if (partColumns != null) { return; }
+        PartColumns columns = new PartColumns();
+        for (Part part : inventoryParts.view()) { columns.put(part); }
+        partColumns = columns;
+    }
+
+    /**
+     * Drop the columnar part copy, scans go back to reading Part objects
+     */
+    public static void disablePartColumns() { partColumns = null; }
+
+    /**
+     * @return value of all part stock, sum of stock * price
+     */
+    public static double getTotalPartStockValue() {
+        PartColumns columns = partColumns;
+        if (columns != null) { return columns.totalStockValue(); }
+        double total = 0;
+        try (InventorySnapshot snapshot = pin()) {
+            for (Part part : snapshot.getParts()) { total += part.getStock() * part.getPrice(); }
+        }
+        return total;
+    }
+
+    /**
+     * @return parts whose stock is at or below their min, i.e. due for reorder
+     */
+    public static List<Part> getLowStockParts() {
+        List<Part> parts = new ArrayList<>();
+        PartColumns columns = partColumns;
+        if (columns != null) {
+            for (int id : columns.lowStockIds()) { parts.add(inventoryParts.get(id)); }
+            return parts;
+        }
+        try (InventorySnapshot snapshot = pin()) {
+            for (Part part : snapshot.getParts()) {
+                if (part.getStock() <= part.getMin()) { parts.add(part); }
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Find parts by exact name
+     * @param name - part name
+     * @return parts with that name
+     */
+    public static List<Part> getPartsNamed(String name) {
+        List<Part> parts = new ArrayList<>();
+        PartColumns columns = partColumns;
+        if (columns != null) {
+            for (int id : columns.idsNamed(name)) { parts.add(inventoryParts.get(id)); }
+            return parts;
+        }
+        try (InventorySnapshot snapshot = pin()) {
+            for (Part part : snapshot.getParts()) {
+                if (part.getName().equals(name)) { parts.add(part); }
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Find outsourced parts by company, comparing dictionary codes instead of strings
+     * @param companyName - exact company name
+     * @return parts from that company
+     */
+    public static List<Part> getPartsOfCompany(String companyName) {
+        List<Part> parts = new ArrayList<>();
+        int code = PartOutsourced.getCompanies().codeOf(companyName);
+        if (code == StringDictionary.NONE) { return parts; }
+        PartColumns columns = partColumns;
+        if (columns != null) {
+            for (int id : columns.idsOfCompany(code)) { parts.add(inventoryParts.get(id)); }
+            return parts;
+        }
+        try (InventorySnapshot snapshot = pin()) {
+            for (Part part : snapshot.getParts()) {
+                if (part instanceof PartOutsourced && ((PartOutsourced) part).getCompanyCode() == code) { parts.add(part); }
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Count outsourced parts per company, grouping on dictionary codes in one counting array
+     * @return company name -> number of parts, alphabetically; companies without parts left out
+     */
+    public static Map<String, Integer> countPartsByCompany() {
+        StringDictionary companies = PartOutsourced.getCompanies();
+        int known = companies.size();
+        int[] counts;
+        PartColumns columns = partColumns;
+        if (columns != null) {
+            counts = columns.companyCounts(known);
+        } else {
+            counts = new int[known];
+            try (InventorySnapshot snapshot = pin()) {
+                for (Part part : snapshot.getParts()) {
+                    if (!(part instanceof PartOutsourced)) { continue; }
+                    int code = ((PartOutsourced) part).getCompanyCode();
+                    if (code >= 0 && code < known) { counts[code]++; }
+                }
+            }
+        }
+        Map<String, Integer> byCompany = new TreeMap<>();
+        for (int code = 0; code < known; code++) {
+            if (counts[code] > 0) { byCompany.put(companies.decode(code), counts[code]); }
+        }
+        return byCompany;
+    }
+
+    /**
+     * Parts whose key lies in a range, e.g. PRICE 5..10 or STOCK up to 9, in key order.
+     * O(log n + k) once the key's index is built; the first use builds it from the part list.
+     * @param key - numeric field to filter on
+     * @param from - lowest value, inclusive
+     * @param to - highest value, inclusive
+     * @return matching parts
+     */
+    public static List<Part> getPartsInRange(SortKey key, double from, double to) {
+        return partsSorted.range(key, numericKey(key, from, false), numericKey(key, to, true));
+    }
+
+    /**
+     * Products whose key lies in a range, e.g. PRICE 5..10 or STOCK up to 9, in key order
+     * @param key - numeric field to filter on
+     * @param from - lowest value, inclusive
+     * @param to - highest value, inclusive
+     * @return matching products
+     */
+    public static List<Product> getProductsInRange(SortKey key, double from, double to) {
+        return productsSorted.range(key, numericKey(key, from, false), numericKey(key, to, true));
+    }
+
+    /**
+     * Parts whose name sorts between from and to, both inclusive and case-insensitive.
+     * For a prefix search pass prefix and prefix + '\uffff'.
+     * @return matching parts in name order
+     */
+    public static List<Part> getPartsInNameRange(String from, String to) { return partsSorted.range(SortKey.NAME, from, to); }
+
+    /**
+     * Products whose name sorts between from and to, both inclusive and case-insensitive
+     * @return matching products in name order
+     */
+    public static List<Product> getProductsInNameRange(String from, String to) {
+        return productsSorted.range(SortKey.NAME, from, to);
+    }
+
+    /**
+     * One page of parts in key order, O(log n + limit)
+     * @param key - field to sort on
+     * @param descending - highest first
+     * @param offset - parts to skip
+     * @param limit - most parts to return
+     * @return page of parts
+     */
+    public static List<Part> getPartPage(SortKey key, boolean descending, int offset, int limit) {
+        return partsSorted.page(key, descending, offset, limit);
+    }
+
+    /**
+     * One page of products in key order, O(log n + limit)
+     * @return page of products
+     */
+    public static List<Product> getProductPage(SortKey key, boolean descending, int offset, int limit) {
+        return productsSorted.page(key, descending, offset, limit);
+    }
+
+    /**
+     * @return live list of all parts in key order, for a sorted parts table
+     */
+    static ObservableList<Part> getSortedParts(SortKey key, boolean descending) { return partsSorted.view(key, descending); }
+
+    /**
+     * @return live list of all products in key order, for a sorted products table
+     */
+    static ObservableList<Product> getSortedProducts(SortKey key, boolean descending) {
+        return productsSorted.view(key, descending);
+    }
+
+    private static Object partKey(SortKey key, Part part) {
+        switch (key) {
+            case ID: return part.getId();
+            case NAME: return part.getName();
+            case PRICE: return part.getPrice();
+            case STOCK: return part.getStock();
+            case MIN: return part.getMin();
+            default: return part.getMax();
+        }
+    }
+
+    private static Object productKey(SortKey key, Product product) {
+        switch (key) {
+            case ID: return product.getId();
+            case NAME: return product.getName();
+            case PRICE: return product.getPrice();
+            case STOCK: return product.getStock();
+            case MIN: return product.getMin();
+            default: return product.getMax();
+        }
+    }
+
+    /**
+     * Convert a range bound to the key's type, rounding whole-number bounds inward
+     */
+    private static Object numericKey(SortKey key, double bound, boolean upper) {
+        if (key == SortKey.NAME) { throw new IllegalArgumentException("Use a name range for NAME"); }
+        if (key == SortKey.PRICE) { return bound; }
+        double rounded = upper ? Math.floor(bound) : Math.ceil(bound);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, rounded));
+    }
+
+    /**
+     * Find an inventoried part identical to the given one, O(1).
+     * Name (ignoring case and extra spaces), price, min, max and machine ID or company name
+     * must match; ID and stock don't count.
+     * @param part - new or modified part
+     * @return identical part with another ID, lowest ID first, or null if there is none
+     */
+    public static Part findDuplicatePart(Part part) { return partDuplicates.find(part); }
+
+    /**
+     * Find an inventoried product identical to the given one, O(1).
+     * Name, price, min, max and the associated parts in any order must match.
+     * @param product - new or modified product
+     * @return identical product with another ID, lowest ID first, or null if there is none
+     */
+    public static Product findDuplicateProduct(Product product) { return productDuplicates.find(product); }
+
+    /**
+     * Validate that a part isn't already in inventory under another ID
+     * @param part - new or modified part
+     * @throws IVException - an identical part exists
+     */
+    public static void validatePartUnique(Part part) throws IVException {
+        Part duplicate = findDuplicatePart(part);
+        if (duplicate != null) {
+            IVException.fail("part.duplicate", "Part " + duplicate.getId() + " (" + duplicate.getName()
+                    + ") is identical to this part.");
+        }
+    }
+
+    /**
+     * Validate that a product isn't already in inventory under another ID
+     * @param product - new or modified product
+     * @throws IVException - an identical product exists
+     */
+    public static void validateProductUnique(Product product) throws IVException {
+        Product duplicate = findDuplicateProduct(product);
+        if (duplicate != null) {
+            IVException.fail("product.duplicate", "Product " + duplicate.getId() + " (" + duplicate.getName()
+                    + ") is identical to this product.");
+        }
+    }
+
+    /**
+     * Drop repeated parts from a list, e.g. an imported catalog, keeping the first of each.
+     * Runs in parallel on the common fork/join pool, O(n).
+     * @param parts - parts to clean, not changed
+     * @return parts without repeats, in list order
+     */
+    public static List<Part> dedupeParts(List<Part> parts) { return dedupeParts(parts, ForkJoinPool.commonPool()); }
+
+    /**
+     * Drop repeated parts from a list on the given pool, keeping the first of each
+     * @param parts - parts to clean, not changed
+     * @param pool - pool running the pass
+     * @return parts without repeats, in list order
+     */
+    public static List<Part> dedupeParts(List<Part> parts, ForkJoinPool pool) {
+        return keepFirst(parts, DuplicateIndex.findRepeats(parts, DuplicateIndex::fingerprint,
+                DuplicateIndex::sameContent, pool));
+    }
+
+    /**
+     * Drop repeated products from a list, keeping the first of each, in parallel
+     * @param products - products to clean, not changed
+     * @return products without repeats, in list order
+     */
+    public static List<Product> dedupeProducts(List<Product> products) {
+        return keepFirst(products, DuplicateIndex.findRepeats(products, DuplicateIndex::fingerprint,
+                DuplicateIndex::sameContent, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Delete inventoried parts identical to a part with a lower ID, as one undoable batch.
+     * Parts still used by a product are kept.
+     * @return number of parts deleted
+     */
+    public static int removeDuplicateParts() {
+        if (!partDuplicates.mayHaveDuplicates()) { return 0; }
+        List<Part> parts = new ArrayList<>(inventoryParts.size());
+        try (InventorySnapshot snapshot = pin()) {
+            for (Part part : snapshot.getParts()) { parts.add(part); }
+        }
+        boolean[] repeats = DuplicateIndex.findRepeats(parts, DuplicateIndex::fingerprint,
+                DuplicateIndex::sameContent, ForkJoinPool.commonPool());
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < repeats.length; i++) {
+            if (repeats[i] && validatePartDeletion(parts.get(i))) { ids.add(parts.get(i).getId()); }
+        }
+        deleteAllParts(ids);
+        return ids.size();
+    }
+
+    /**
+     * Delete inventoried products identical to a product with a lower ID, as one undoable batch
+     * @return number of products deleted
+     */
+    public static int removeDuplicateProducts() {
+        if (!productDuplicates.mayHaveDuplicates()) { return 0; }
+        List<Product> products = new ArrayList<>(inventoryProducts.size());
+        try (InventorySnapshot snapshot = pin()) {
+            for (Product product : snapshot.getProducts()) { products.add(product); }
+        }
+        boolean[] repeats = DuplicateIndex.findRepeats(products, DuplicateIndex::fingerprint,
+                DuplicateIndex::sameContent, ForkJoinPool.commonPool());
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < repeats.length; i++) {
+            if (repeats[i]) { ids.add(products.get(i).getId()); }
+        }
+        deleteAllProducts(ids);
+        return ids.size();
+    }
+
+    private static <T> List<T> keepFirst(List<T> items, boolean[] repeats) {
+        List<T> kept = new ArrayList<>(items.size());
+        int i = 0;
+        for (T item : items) {
+            if (!repeats[i++]) { kept.add(item); }
+        }
+        return kept;
     }
 
     /**
@@ -78,18 +1183,99 @@ public class Inventory {
     }
 
     /**
-     * Use collection.removeIf to delete part if id is a match
+     * Validate part deletion
+     * @return true if no product uses the part being validated
+     */
+    public static boolean validatePartDeletion(Part part) {
+        return !partUsage.isUsed(part.getId());
+    }
+
+    /**
+     * Find every product that uses a part, e.g. before deleting or repricing it
+     * @param partId - id of part
+     * @return products using the part, in no particular order
+     */
+    public static List<Product> getProductsUsingPart(int partId) {
+        List<Product> products = new ArrayList<>();
+        for (int productId : partUsage.productsUsing(partId)) { products.add(inventoryProducts.get(productId)); }
+        return products;
+    }
+
+    /**
+     * Work out the parts needed to build an order of products and which are short of stock.
+     * Runs on the common fork/join pool; call on the JavaFX thread.
+     * @param order - product ID -> units to build
+     * @return part requirements and shortfalls
+     * @throws IVException - unknown product or quantity below 1
+     */
+    public static BomExplosion.Plan planProduction(Map<Integer, Integer> order) throws IVException {
+        return BomExplosion.explode(order);
+    }
+
+    /**
+     * @return every product currently priced below the sum of its parts
+     */
+    public static List<Product> getUnderpricedProducts() {
+        List<Product> products = new ArrayList<>();
+        for (int productId : underpricedProducts) { products.add(inventoryProducts.get(productId)); }
+        return products;
+    }
+
+    /**
+     * @return number of products priced below the sum of their parts
+     */
+    static int getUnderpricedProductCount() { return underpricedProducts.size(); }
+
+    /**
+     * Track whether a product is priced below its parts, O(1) from its running part cost
+     * @param product - inventoried product
+     */
+    private static void checkProductPrice(Product product) {
+        if (product.isPricedBelowParts()) {
+            underpricedProducts.add(product.getId());
+        } else {
+            underpricedProducts.remove(product.getId());
+        }
+    }
+
+    /**
+     * Delete part by id through the part index
      * @param partId - id of part to be deleted
      */
     public static void deletePart(int partId) {
-            inventoryParts.removeIf(p -> p.getId() == partId);
+        long start = System.nanoTime();
+        checkJournal();
+        if (inventoryParts.remove(partId) != null) {
+            partNames.unindex(partId);
+            partDuplicates.remove(partId);
+            if (partColumns != null) { partColumns.remove(partId); }
+            watchlist.removePart(partId);
+            partsSorted.remove(partId);
+            recordPart(partId, null);
+            if (journal != null) { journal.appendDelete(InventoryJournal.DELETE_PART, partId); }
+            if (isPublishing()) { shared.publishPartDeletion(partId); }
+        }
+        InventoryMetrics.partDeletes.recordSince(start);
     }
 
     /**
-     * Use collection.removeIf to delete product if id is a match
+     * Delete product by id through the product index
      * @param productId - id of product to be deleted
      */
     public static void deleteProduct(int productId) {
-        inventoryProducts.removeIf(p -> p.getId() == productId);
+        long start = System.nanoTime();
+        checkJournal();
+        if (inventoryProducts.remove(productId) != null) {
+            productNames.unindex(productId);
+            productDuplicates.remove(productId);
+            partUsage.untrack(productId);
+            underpricedProducts.remove(productId);
+            watchlist.removeProduct(productId);
+            productsSorted.remove(productId);
+            recordProduct(productId, null);
+            if (journal != null) { journal.appendDelete(InventoryJournal.DELETE_PRODUCT, productId); }
+            if (isPublishing()) { shared.publishProductDeletion(productId); }
+        }
+        InventoryMetrics.productDeletes.recordSince(start);
     }
 }
@@ -0,0 +1,108 @@
+package ims;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Binary encoding of parts and products shared by the journal and snapshots.
+ * Products store the IDs of their associated parts, resolved against the inventory when read.
+ */
+final class InventoryCodec {
+    // Part type tags
+    static final byte IN_HOUSE = 0;
+    static final byte OUTSOURCED = 1;
+
+    private InventoryCodec() {}
+
+    /**
+     * @param out - destination
+     * @param part - part to write
+     */
+    static void writePart(DataOutput out, Part part) throws IOException {
+        out.writeInt(part.getId());
+        out.writeUTF(nullToEmpty(part.getName()));
+        out.writeDouble(part.getPrice());
+        out.writeInt(part.getStock());
+        out.writeInt(part.getMin());
+        out.writeInt(part.getMax());
+        if (part instanceof PartInHouse) {
+            out.writeByte(IN_HOUSE);
+            out.writeInt(((PartInHouse) part).getMachineID());
+        } else {
+            out.writeByte(OUTSOURCED);
+            out.writeUTF(nullToEmpty(((PartOutsourced) part).getCompanyName()));
+        }
+    }
+
+    /**
+     * @param in - source
+     * @return part read from the source
+     */
+    static Part readPart(DataInput in) throws IOException {
+        int id = in.readInt();
+        String name = in.readUTF();
+        double price = in.readDouble();
+        int stock = in.readInt();
+        int min = in.readInt();
+        int max = in.readInt();
+        Part part;
+        byte type = in.readByte();
+        if (type == IN_HOUSE) {
+            PartInHouse inHouse = new PartInHouse();
+            inHouse.setMachineId(in.readInt());
+            part = inHouse;
+        } else if (type == OUTSOURCED) {
+            PartOutsourced outsourced = new PartOutsourced();
+            outsourced.setCompanyName(in.readUTF());
+            part = outsourced;
+        } else {
+            throw new IOException("Unknown part type " + type);
+        }
+        part.setId(id);
+        part.setName(name);
+        part.setPrice(price);
+        part.setStock(stock);
+        part.setMin(min);
+        part.setMax(max);
+        return part;
+    }
+
+    /**
+     * @param out - destination
+     * @param product - product to write
+     */
+    static void writeProduct(DataOutput out, Product product) throws IOException {
+        out.writeInt(product.getId());
+        out.writeUTF(nullToEmpty(product.getName()));
+        out.writeDouble(product.getPrice());
+        out.writeInt(product.getStock());
+        out.writeInt(product.getMin());
+        out.writeInt(product.getMax());
+        out.writeInt(product.getAssociatedParts().size());
+        for (Part p : product.getAssociatedParts()) { out.writeInt(p.getId()); }
+    }
+
+    /**
+     * Read a product, attaching associated parts still present in inventory
+     * @param in - source
+     * @return product read from the source
+     */
+    static Product readProduct(DataInput in) throws IOException {
+        Product product = new Product();
+        product.setId(in.readInt());
+        product.setName(in.readUTF());
+        product.setPrice(in.readDouble());
+        product.setStock(in.readInt());
+        product.setMin(in.readInt());
+        product.setMax(in.readInt());
+        int partCount = in.readInt();
+        for (int i = 0; i < partCount; i++) {
+            Part part = Inventory.lookupPart(in.readInt());
+            if (part != null) { product.addAssociatedPart(part); }
+        }
+        return product;
+    }
+
+    private static String nullToEmpty(String s) { return s == null ? "" : s; }
+}
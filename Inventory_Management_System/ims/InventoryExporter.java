@@ -0,0 +1,300 @@
+package ims;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+
+/**
+ * Streaming export of parts and products to CSV or JSON.
+ * Output is encoded straight into one reused direct buffer and written to a channel
+ * whenever it fills, so memory stays flat no matter how large the catalog is.
+ * CSV rows use the CsvImporter layout, so an export can be imported again.
+ *
+ * Exports run against an InventorySnapshot pinned on the JavaFX thread, so the export can
+ * run on a background thread while the UI keeps adding, replacing and deleting items, and
+ * pinning copies nothing however large the catalog is. The caller closes the snapshot.
+ */
+class InventoryExporter {
+    enum Format { CSV, JSON }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+    private WritableByteChannel channel;
+
+    /**
+     * Export a snapshot to a file, replacing it
+     * @param snapshot - pinned inventory
+     * @param file - destination file
+     * @param format - CSV or JSON
+     * @param partFilter - parts to include
+     * @param productFilter - products to include
+     * @return number of exported items
+     * @throws IOException - file could not be written
+     */
+    long export(InventorySnapshot snapshot, Path file, Format format, Predicate<Part> partFilter,
+                Predicate<Product> productFilter) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return export(snapshot, out, format, partFilter, productFilter);
+        }
+    }
+
+    /**
+     * Export a snapshot to a channel, which is left open
+     * @return number of exported items
+     * @throws IOException - channel could not be written
+     */
+    long export(InventorySnapshot snapshot, WritableByteChannel out, Format format, Predicate<Part> partFilter,
+                Predicate<Product> productFilter) throws IOException {
+        channel = out;
+        buffer.clear();
+        long count = 0;
+        try {
+            if (format == Format.JSON) { put("{\"parts\":["); }
+            for (Part part : snapshot.getParts()) {
+                if (!partFilter.test(part)) { continue; }
+                if (format == Format.CSV) {
+                    csvPart(part);
+                } else {
+                    if (count > 0) { put(','); }
+                    jsonPart(part);
+                }
+                count++;
+            }
+            long partCount = count;
+            if (format == Format.JSON) { put("],\"products\":["); }
+            for (Product product : snapshot.getProducts()) {
+                if (!productFilter.test(product)) { continue; }
+                if (format == Format.CSV) {
+                    csvProduct(product, snapshot.partIds(product));
+                } else {
+                    if (count > partCount) { put(','); }
+                    jsonProduct(product, snapshot.partIds(product));
+                }
+                count++;
+            }
+            if (format == Format.JSON) { put("]}\n"); }
+            flush();
+        } finally {
+            channel = null;
+        }
+        return count;
+    }
+
+    private void csvPart(Part part) throws IOException {
+        put(part instanceof PartInHouse ? "inhouse," : "outsourced,");
+        csvCommon(part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+        if (part instanceof PartInHouse) {
+            put(((PartInHouse) part).getMachineID());
+        } else {
+            csvString(((PartOutsourced) part).getCompanyName());
+        }
+        put('\n');
+    }
+
+    private void csvProduct(Product product, int[] partIds) throws IOException {
+        put("product,");
+        csvCommon(product.getId(), product.getName(), product.getPrice(), product.getStock(),
+                product.getMin(), product.getMax());
+        for (int i = 0; i < partIds.length; i++) {
+            if (i > 0) { put(';'); }
+            put(partIds[i]);
+        }
+        put('\n');
+    }
+
+    private void csvCommon(int id, String name, double price, int stock, int min, int max) throws IOException {
+        put(id);
+        put(',');
+        csvString(name);
+        put(',');
+        put(Double.toString(price));
+        put(',');
+        put(stock);
+        put(',');
+        put(min);
+        put(',');
+        put(max);
+        put(',');
+    }
+
+    /**
+     * Write a CSV field, quoted when it holds a comma, quote or line break
+     */
+    private void csvString(String s) throws IOException {
+        if (s == null) { return; }
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            put(s);
+            return;
+        }
+        put('"');
+        for (int i = 0; i < s.length(); ) {
+            if (s.charAt(i) == '"') { put('"'); }
+            i += putCharAt(s, i);
+        }
+        put('"');
+    }
+
+    private void jsonPart(Part part) throws IOException {
+        put("{\"type\":");
+        put(part instanceof PartInHouse ? "\"inhouse\"," : "\"outsourced\",");
+        jsonCommon(part.getId(), part.getName(), part.getPrice(), part.getStock(), part.getMin(), part.getMax());
+        if (part instanceof PartInHouse) {
+            put(",\"machineId\":");
+            put(((PartInHouse) part).getMachineID());
+        } else {
+            put(",\"companyName\":");
+            jsonString(((PartOutsourced) part).getCompanyName());
+        }
+        put('}');
+    }
+
+    private void jsonProduct(Product product, int[] partIds) throws IOException {
+        put('{');
+        jsonCommon(product.getId(), product.getName(), product.getPrice(), product.getStock(),
+                product.getMin(), product.getMax());
+        put(",\"partIds\":[");
+        for (int i = 0; i < partIds.length; i++) {
+            if (i > 0) { put(','); }
+            put(partIds[i]);
+        }
+        put("]}");
+    }
+
+    private void jsonCommon(int id, String name, double price, int stock, int min, int max) throws IOException {
+        put("\"id\":");
+        put(id);
+        put(",\"name\":");
+        jsonString(name);
+        put(",\"price\":");
+        put(Double.toString(price));
+        put(",\"stock\":");
+        put(stock);
+        put(",\"min\":");
+        put(min);
+        put(",\"max\":");
+        put(max);
+    }
+
+    private void jsonString(String s) throws IOException {
+        if (s == null) {
+            put("null");
+            return;
+        }
+        put('"');
+        for (int i = 0; i < s.length(); ) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                put('\\');
+            } else if (c < 0x20) {
+                put("\\u00");
+                put(Character.forDigit(c >> 4, 16));
+                put(Character.forDigit(c & 0xF, 16));
+                i++;
+                continue;
+            }
+            i += putCharAt(s, i);
+        }
+        put('"');
+    }
+
+    /**
+     * Write an int as ASCII digits without creating a String
+     */
+    private void put(int value) throws IOException {
+        if (buffer.remaining() < 11) { drain(); }
+        if (value == Integer.MIN_VALUE) {
+            put(Integer.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits went in lowest first, reverse them in place
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, b);
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (c < 0x80) {
+            if (!buffer.hasRemaining()) { drain(); }
+            buffer.put((byte) c);
+        } else {
+            put(String.valueOf(c));
+        }
+    }
+
+    /**
+     * Write the character at index i, keeping surrogate pairs together
+     * @return number of chars written
+     */
+    private int putCharAt(String s, int i) throws IOException {
+        char c = s.charAt(i);
+        if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+            put(s.substring(i, i + 2));
+            return 2;
+        }
+        put(c);
+        return 1;
+    }
+
+    /**
+     * Encode a string as UTF-8 into the buffer, draining it to the channel as it fills
+     */
+    private void put(String s) throws IOException {
+        for (int start = 0; start < s.length(); ) {
+            int end = Math.min(s.length(), start + chars.capacity());
+            if (end < s.length() && Character.isHighSurrogate(s.charAt(end - 1))) { end--; }
+            chars.clear();
+            chars.put(s, start, end);
+            chars.flip();
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    result.throwException();
+                }
+            }
+            start = end;
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) { channel.write(buffer); }
+        buffer.clear();
+    }
+
+    private void flush() throws IOException {
+        if (buffer.position() > 0) { drain(); }
+    }
+}
@@ -0,0 +1,284 @@
+package ims;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Inventory History - multi-level undo/redo and named snapshots over InventoryVersions.
+ * Inventory reports every add, modify and delete; each one, or each whole batch, becomes
+ * one undo step holding the version from before it. A step costs O(log n) time and memory
+ * because versions share structure, and taking a snapshot only keeps a reference.
+ *
+ * Going back to a version brings the live inventory in line through the ordinary Inventory
+ * operations, so indexes, tables, journal and shared file follow. Only the items that
+ * differ are touched, found by diffing the two versions without visiting shared subtrees.
+ * Stock moved by the atomic stock updates is not part of the history.
+ * Use on the JavaFX thread, like the rest of the inventory changes.
+ *
+ * The same versions serve readers on other threads: whenever the outermost step ends the
+ * current version is published as the committed one, and pin() hands it out as an
+ * InventorySnapshot. Published versions are never changed in place, because the edit token
+ * is replaced as they are published, so readers need no locks and writers never wait.
+ */
+class InventoryHistory {
+    // Undo steps kept, older ones are dropped
+    static final int MAX_UNDO = 100;
+
+    private InventoryVersion current = InventoryVersion.EMPTY;
+    // Last version of a finished step, read by pinning threads
+    private volatile InventoryVersion committed = InventoryVersion.EMPTY;
+    private final AtomicInteger pinned = new AtomicInteger();
+    private final Deque<InventoryVersion> undo = new ArrayDeque<>();
+    private final Deque<InventoryVersion> redo = new ArrayDeque<>();
+    private final Map<String, InventoryVersion> snapshots = new HashMap<>();
+    // Open steps, changes only become an undo step when the outermost one ends
+    private int depth;
+    private InventoryVersion stepStart;
+    // Token letting a step update the nodes it created in place, replaced when a step ends
+    private Object edit = new Object();
+    // Set while a version is being applied, its changes go into it instead of a new step
+    private boolean restoring;
+    // Told whenever a version is committed, e.g. by the journal; null when nobody listens
+    private Runnable committedListener;
+
+    /**
+     * @return version the live inventory matches
+     */
+    InventoryVersion current() { return current; }
+
+    /**
+     * Start a step: changes until the matching end are undone together
+     */
+    void begin() { if (depth++ == 0) { stepStart = current; } }
+
+    /**
+     * End the step started by the matching begin, adding it to the undo stack if anything changed
+     */
+    void end() {
+        if (--depth > 0) { return; }
+        publish();
+        if (stepStart != current && !restoring) {
+            undo.push(stepStart);
+            if (undo.size() > MAX_UNDO) { undo.removeLast(); }
+            redo.clear();
+        }
+        stepStart = null;
+    }
+
+    /**
+     * Record that a part was added, replaced or deleted
+     * @param id - id of part
+     * @param part - part now holding the ID, or null once deleted
+     */
+    void partChanged(int id, Part part) {
+        if (restoring) {
+            current = current.withPart(id, part, edit);
+            return;
+        }
+        begin();
+        current = current.withPart(id, part, edit);
+        end();
+    }
+
+    /**
+     * Record that a product was added, replaced or deleted
+     * @param id - id of product
+     * @param product - product now holding the ID, or null once deleted
+     */
+    void productChanged(int id, Product product) {
+        if (restoring) {
+            current = current.withProduct(id, product, edit);
+            return;
+        }
+        begin();
+        current = current.withProduct(id, product, edit);
+        end();
+    }
+
+    /**
+     * Take parts loaded from disk or another process into the current version.
+     * Earlier steps would roll them back, so undo and redo are cleared.
+     */
+    void partsLoaded(List<Part> parts) {
+        for (Part part : parts) { current = current.withPart(part.getId(), part, edit); }
+        forget();
+        if (depth == 0) { publish(); }
+    }
+
+    /**
+     * Take products loaded from disk or another process into the current version.
+     * Earlier steps would roll them back, so undo and redo are cleared.
+     */
+    void productsLoaded(List<Product> products) {
+        for (Product product : products) { current = current.withProduct(product.getId(), product, edit); }
+        forget();
+        if (depth == 0) { publish(); }
+    }
+
+    /**
+     * Drop undo and redo steps, e.g. after replaying a journal
+     */
+    void forget() {
+        edit = new Object();
+        undo.clear();
+        redo.clear();
+    }
+
+    /**
+     * Start over from an empty inventory, keeping named snapshots
+     */
+    void clear() {
+        current = InventoryVersion.EMPTY;
+        forget();
+        if (depth == 0) { publish(); }
+    }
+
+    /**
+     * @param listener - run right after each version is committed, or null to stop
+     */
+    void onCommitted(Runnable listener) { committedListener = listener; }
+
+    /**
+     * Pin the last committed version for reading on any thread
+     * @return snapshot holding the version until closed
+     */
+    InventorySnapshot pin() {
+        pinned.incrementAndGet();
+        return new InventorySnapshot(committed, this);
+    }
+
+    /**
+     * Release a version pinned by pin(), called once per snapshot when it closes
+     */
+    void unpin() { pinned.decrementAndGet(); }
+
+    /**
+     * @return number of snapshots pinned and not yet closed
+     */
+    int pinnedCount() { return pinned.get(); }
+
+    /**
+     * @return true if there is a step to undo
+     */
+    boolean canUndo() { return !undo.isEmpty(); }
+
+    /**
+     * @return true if there is an undone step to redo
+     */
+    boolean canRedo() { return !redo.isEmpty(); }
+
+    /**
+     * Undo the last step
+     * @return false if there was nothing to undo
+     */
+    boolean undo() {
+        if (undo.isEmpty()) { return false; }
+        redo.push(current);
+        apply(undo.pop());
+        return true;
+    }
+
+    /**
+     * Redo the last undone step
+     * @return false if there was nothing to redo
+     */
+    boolean redo() {
+        if (redo.isEmpty()) { return false; }
+        undo.push(current);
+        apply(redo.pop());
+        return true;
+    }
+
+    /**
+     * Name the current version, replacing any snapshot of that name. O(1).
+     * @param name - snapshot name
+     */
+    void snapshot(String name) {
+        edit = new Object();
+        snapshots.put(name, current);
+    }
+
+    /**
+     * Go back to a named snapshot, as one undoable step
+     * @param name - snapshot name
+     * @return false if there is no snapshot of that name
+     */
+    boolean restore(String name) {
+        InventoryVersion target = snapshots.get(name);
+        if (target == null) { return false; }
+        if (target != current) {
+            undo.push(current);
+            if (undo.size() > MAX_UNDO) { undo.removeLast(); }
+            redo.clear();
+            apply(target);
+        }
+        return true;
+    }
+
+    /**
+     * @param name - snapshot name
+     * @return false if there was no snapshot of that name
+     */
+    boolean deleteSnapshot(String name) { return snapshots.remove(name) != null; }
+
+    /**
+     * @return snapshot names in alphabetical order
+     */
+    List<String> snapshotNames() { return new ArrayList<>(new TreeSet<>(snapshots.keySet())); }
+
+    /**
+     * Make the live inventory match a version, as one batch of ordinary inventory changes.
+     * Parts go first so restored products can be pointed at the live parts; a product whose
+     * parts were replaced since is restored as a copy, versions are never changed in place.
+     * The changes are recorded on top of the target, so products relinked to restored parts,
+     * and restored copies, end up in the current version as the live inventory holds them.
+     */
+    private void apply(InventoryVersion target) {
+        InventoryVersion from = current;
+        restoring = true;
+        Inventory.beginBatch();
+        current = target;
+        try {
+            PersistentIntMap.diff(from.parts, target.parts, (id, before, after) -> {
+                if (after == null) {
+                    Inventory.deletePart(id);
+                } else if (before == null) {
+                    Inventory.addPart(after);
+                } else {
+                    Inventory.modifyPart(after);
+                }
+            });
+            PersistentIntMap.diff(from.products, target.products, (id, before, after) -> {
+                if (after == null) {
+                    Inventory.deleteProduct(id);
+                    return;
+                }
+                Product relinked = Inventory.relinkParts(after);
+                if (before == null) {
+                    Inventory.addProduct(relinked);
+                } else {
+                    Inventory.modifyProduct(relinked);
+                }
+            });
+        } finally {
+            Inventory.commit();
+            restoring = false;
+        }
+    }
+
+    /**
+     * Make the current version the committed one. The edit token is replaced first, so no
+     * later step can change the published nodes in place.
+     */
+    private void publish() {
+        edit = new Object();
+        committed = current;
+        if (committedListener != null) { committedListener.run(); }
+    }
+}
@@ -0,0 +1,138 @@
+package ims;
+import javafx.collections.ObservableList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * ID-keyed primary index for inventory items.
+ * Items are stored by ID in a hash map, each ID also remembers its slot in the
+ * observable view so get/modify/delete by ID never scan the list.
+ * The observable list is only a view for the tables - never look items up by position.
+ * Removal moves the last item into the freed slot, so rows are in no particular order;
+ * tables show the view through a SortedIndex, by ID unless a column is sorted.
+ * Only get, contains and size are safe from other threads (the ID map is a
+ * ConcurrentHashMap); the view and every change to the index belong on the FX thread.
+ * @param <T> - Part or Product
+ */
+class InventoryIndex<T> {
+    private final ToIntFunction<T> idOf;
+    private final Map<Integer, T> itemsById = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> slotsById = new HashMap<>();
+    private final BatchObservableList<T> view = new BatchObservableList<>();
+
+    /**
+     * @param idOf - reads the ID of an item
+     */
+    InventoryIndex(ToIntFunction<T> idOf) { this.idOf = idOf; }
+
+    /**
+     * @return observable view of all indexed items
+     */
+    ObservableList<T> view() { return view; }
+
+    /**
+     * Hold back view change notifications until the matching endBatch, so a batch of
+     * puts, replaces and removes reaches the tables as one change
+     */
+    void beginBatch() { view.beginBatch(); }
+
+    /**
+     * Notify view listeners of everything changed since the matching beginBatch
+     */
+    void endBatch() { view.endBatch(); }
+
+    /**
+     * @return number of indexed items
+     */
+    int size() { return itemsById.size(); }
+
+    /**
+     * @param id - item identifier
+     * @return item with the given ID, or null when none exists
+     */
+    T get(int id) { return itemsById.get(id); }
+
+    /**
+     * @param id - item identifier
+     * @return true if an item with the given ID exists
+     */
+    boolean contains(int id) { return itemsById.containsKey(id); }
+
+    /**
+     * Add a new item, or replace the existing item holding the same ID
+     * @param item - item to add
+     */
+    void put(T item) {
+        int id = idOf.applyAsInt(item);
+        Integer slot = slotsById.get(id);
+        if (slot == null) {
+            slotsById.put(id, view.size());
+            view.add(item);
+        } else {
+            view.set(slot, item);
+        }
+        itemsById.put(id, item);
+    }
+
+    /**
+     * Add many new items with a single change to the view.
+     * IDs must not already be indexed.
+     * @param items - items to add
+     */
+    void putAll(List<T> items) {
+        int slot = view.size();
+        for (T item : items) {
+            int id = idOf.applyAsInt(item);
+            itemsById.put(id, item);
+            slotsById.put(id, slot++);
+        }
+        view.addAll(items);
+    }
+
+    /**
+     * Replace the item holding the same ID as the given item
+     * @param item - replacement item
+     * @return false if no item with that ID is indexed
+     */
+    boolean replace(T item) {
+        int id = idOf.applyAsInt(item);
+        Integer slot = slotsById.get(id);
+        if (slot == null) { return false; }
+        view.set(slot, item);
+        itemsById.put(id, item);
+        return true;
+    }
+
+    /**
+     * Remove the item with the given ID.
+     * The last item in the view is moved into the freed slot, so removal is O(1).
+     * @param id - id of item to remove
+     * @return removed item, or null when none exists
+     */
+    T remove(int id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) { return null; }
+        T removed = itemsById.remove(id);
+        int last = view.size() - 1;
+        if (slot != last) {
+            T moved = view.get(last);
+            view.set(slot, moved);
+            slotsById.put(idOf.applyAsInt(moved), slot);
+        }
+        view.remove(last);
+        return removed;
+    }
+
+    /**
+     * Remove all items
+     */
+    void clear() {
+        itemsById.clear();
+        slotsById.clear();
+        view.clear();
+    }
+}
@@ -0,0 +1,447 @@
+package ims;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+
+/**
+ * Write-ahead journal for Inventory.
+ * Every add/modify/delete is appended as a checksummed record to the current journal
+ * segment. A single writer thread drains all records queued since its last write and
+ * syncs them with one fsync (group commit), so many quick edits share one disk flush.
+ * Every SNAPSHOT_INTERVAL records the writer starts a new segment and the last committed
+ * inventory version, pinned through Inventory.pin(), is written out in the background, after
+ * which the segments it covers are deleted. No inventory list is copied under the journal
+ * lock, so appends from feed threads never read state the JavaFX thread is changing.
+ * Snapshots use the memory-mapped SnapshotFile format.
+ * Once a record could not be written every further append fails; callers check
+ * checkWritable before changing memory, so memory never runs ahead of the journal.
+ * Recovery loads the last snapshot and replays only the segments written after it,
+ * stopping at the first torn or corrupt record.
+ */
+class InventoryJournal {
+    // Records between compacting snapshots
+    static final int SNAPSHOT_INTERVAL = 50_000;
+    // Most records written with a single fsync
+    static final int MAX_BATCH = 4096;
+    // Operation codes
+    static final byte ADD_PART = 1;
+    static final byte MODIFY_PART = 2;
+    static final byte DELETE_PART = 3;
+    static final byte ADD_PRODUCT = 4;
+    static final byte MODIFY_PRODUCT = 5;
+    static final byte DELETE_PRODUCT = 6;
+    static final byte SET_PART_STOCK = 7;
+    static final byte SET_PRODUCT_STOCK = 8;
+    private static final String SNAPSHOT_FILE = "inventory.snapshot";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    // Record header: payload length + CRC32 of the payload
+    private static final int HEADER_SIZE = 8;
+
+    private final Path dir;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ims-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private FileChannel segment;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private long lastSeq;
+    // Last sequence already part of the committed inventory version
+    private volatile long committedSeq;
+    private int sinceSnapshot;
+    private volatile IOException failure;
+
+    /**
+     * Queued journal record, segment roll marker or stop marker
+     */
+    private static final class Entry {
+        static final Entry STOP = new Entry(-1, null, null, 0);
+        final long seq;
+        final byte[] bytes;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        // Pinned version to write out and the last sequence it holds, set on roll markers only
+        final InventorySnapshot snapshot;
+        final long snapshotSeq;
+
+        Entry(long seq, byte[] bytes, InventorySnapshot snapshot, long snapshotSeq) {
+            this.seq = seq;
+            this.bytes = bytes;
+            this.snapshot = snapshot;
+            this.snapshotSeq = snapshotSeq;
+        }
+    }
+
+    private InventoryJournal(Path dir, long lastSeq) throws IOException {
+        this.dir = dir;
+        this.lastSeq = lastSeq;
+        this.committedSeq = lastSeq;
+        this.segment = openSegment(lastSeq + 1);
+        this.writer = new Thread(this::writeLoop, "ims-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Recover inventory from the data directory, then open the journal for new records.
+     * Recovered items are added through Inventory while no journal is attached.
+     * @param dir - data directory
+     * @return journal ready for appends
+     * @throws IOException - snapshot or journal could not be read
+     */
+    static InventoryJournal recover(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        long seq = SnapshotFile.load(dir.resolve(SNAPSHOT_FILE));
+        boolean torn = false;
+        for (Path file : segments(dir)) {
+            // Nothing after a torn record can be trusted, and empty segments hold nothing
+            if (torn || Files.size(file) == 0) {
+                Files.delete(file);
+                continue;
+            }
+            Replay replay = replay(file, seq);
+            seq = replay.lastSeq;
+            torn = replay.torn;
+        }
+        return new InventoryJournal(dir, seq);
+    }
+
+    /**
+     * Queue a part record. Does not wait for the disk.
+     * @param op - ADD_PART or MODIFY_PART
+     * @param part - part after the change
+     * @return completes once the record is synced to disk
+     */
+    CompletableFuture<Void> appendPart(byte op, Part part) {
+        return append(encode(op, out -> InventoryCodec.writePart(out, part)));
+    }
+
+    /**
+     * Queue a product record. Does not wait for the disk.
+     * @param op - ADD_PRODUCT or MODIFY_PRODUCT
+     * @param product - product after the change
+     * @return completes once the record is synced to disk
+     */
+    CompletableFuture<Void> appendProduct(byte op, Product product) {
+        return append(encode(op, out -> InventoryCodec.writeProduct(out, product)));
+    }
+
+    /**
+     * Queue a delete record. Does not wait for the disk.
+     * @param op - DELETE_PART or DELETE_PRODUCT
+     * @param id - id of deleted item
+     * @return completes once the record is synced to disk
+     */
+    CompletableFuture<Void> appendDelete(byte op, int id) {
+        return append(encode(op, out -> out.writeInt(id)));
+    }
+
+    /**
+     * Queue a stock record. Does not wait for the disk.
+     * Callers synchronize on the journal around the stock change and this call, so
+     * records are queued in the order the stock values were set.
+     * @param op - SET_PART_STOCK or SET_PRODUCT_STOCK
+     * @param id - id of item
+     * @param stock - stock after the change
+     * @return completes once the record is synced to disk
+     */
+    CompletableFuture<Void> appendStock(byte op, int id, int stock) {
+        return append(encode(op, out -> {
+            out.writeInt(id);
+            out.writeInt(stock);
+        }));
+    }
+
+    /**
+     * Fail fast before memory is changed, once an earlier record could not be written
+     * @throws UncheckedIOException - the journal failed, further changes would not be durable
+     */
+    void checkWritable() {
+        IOException failed = failure;
+        if (failed != null) { throw new UncheckedIOException("Inventory journal failed", failed); }
+    }
+
+    /**
+     * Note that the inventory version holding every change appended so far has been committed.
+     * Called by the inventory history as it publishes a version, on the JavaFX thread.
+     */
+    synchronized void versionCommitted() { committedSeq = lastSeq; }
+
+    /**
+     * Wait until every queued record is synced, then stop the journal
+     * @throws IOException - a record could not be written
+     */
+    void close() throws IOException {
+        queue.add(Entry.STOP);
+        try {
+            writer.join();
+            snapshotter.shutdown();
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        segment.close();
+        if (failure != null) { throw failure; }
+    }
+
+    /**
+     * Assign the next sequence number and queue the record; every SNAPSHOT_INTERVAL
+     * records also queue a segment roll with the pinned committed version. The sequence is
+     * read before pinning, so the version holds at least every change up to it.
+     */
+    private synchronized CompletableFuture<Void> append(byte[] payload) {
+        checkWritable();
+        Entry entry = new Entry(++lastSeq, payload, null, 0);
+        ByteBuffer.wrap(payload).putLong(0, entry.seq);
+        queue.add(entry);
+        if (++sinceSnapshot >= SNAPSHOT_INTERVAL) {
+            sinceSnapshot = 0;
+            long snapshotSeq = committedSeq;
+            queue.add(new Entry(lastSeq, null, Inventory.pin(), snapshotSeq));
+        }
+        return entry.done;
+    }
+
+    /**
+     * Writer thread: drain everything queued, write it, fsync once, complete the batch
+     */
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        List<Entry> written = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                // Records after a lost one would leave a gap in the journal, so write none
+                IOException failed = failure;
+                if (failed != null) { throw failed; }
+                for (Entry entry : batch) {
+                    if (entry == Entry.STOP) {
+                        running = false;
+                    } else if (entry.snapshot != null) {
+                        commit(written);
+                        roll(entry);
+                    } else {
+                        write(entry);
+                        written.add(entry);
+                    }
+                }
+                commit(written);
+            } catch (IOException e) {
+                failure = e;
+                for (Entry entry : batch) {
+                    if (entry == Entry.STOP) { running = false; }
+                    if (entry.snapshot != null) { entry.snapshot.close(); }
+                    entry.done.completeExceptionally(e);
+                }
+                written.clear();
+                buffer.clear();
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        int size = HEADER_SIZE + entry.bytes.length;
+        if (buffer.remaining() < size) {
+            flush();
+            if (buffer.capacity() < size) { buffer = ByteBuffer.allocateDirect(size); }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(entry.bytes);
+        buffer.putInt(entry.bytes.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(entry.bytes);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) { segment.write(buffer); }
+        buffer.clear();
+    }
+
+    /**
+     * Flush written records with a single fsync and complete them
+     */
+    private void commit(List<Entry> written) throws IOException {
+        if (written.isEmpty()) { return; }
+        flush();
+        segment.force(false);
+        for (Entry entry : written) { entry.done.complete(null); }
+        written.clear();
+    }
+
+    /**
+     * Start a new segment after the roll marker's sequence and write its pinned version in
+     * the background. Only segments whose every record the version holds are deleted.
+     */
+    private void roll(Entry marker) throws IOException {
+        segment.close();
+        segment = openSegment(marker.seq + 1);
+        snapshotter.execute(() -> {
+            try (InventorySnapshot snapshot = marker.snapshot) {
+                List<Part> parts = new ArrayList<>(snapshot.getPartCount());
+                for (Part part : snapshot.getParts()) { parts.add(part); }
+                List<Product> products = new ArrayList<>(snapshot.getProductCount());
+                for (Product product : snapshot.getProducts()) { products.add(product); }
+                SnapshotFile.write(dir.resolve(SNAPSHOT_FILE), marker.snapshotSeq, parts, products);
+                List<Path> files = segments(dir);
+                for (int i = 0; i + 1 < files.size(); i++) {
+                    if (segmentStart(files.get(i + 1)) > marker.snapshotSeq + 1) { break; }
+                    Files.delete(files.get(i));
+                }
+            } catch (IOException e) {
+                // Keep the old segments, recovery still replays them
+                System.err.println("Inventory snapshot failed, journal segments kept: " + e.getMessage());
+            }
+        });
+    }
+
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        Path file = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Apply a segment's records after the given sequence to Inventory.
+     * A torn or corrupt tail is cut off so new records are appended after the last good one.
+     * @return last applied sequence, and whether the segment ended in a torn record
+     */
+    private static Replay replay(Path file, long afterSeq) throws IOException {
+        long seq = afterSeq;
+        long good = 0;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] payload;
+                int checksum;
+                try {
+                    checksum = in.readInt();
+                    if (length < 0) { throw new EOFException(); }
+                    payload = in.readNBytes(length);
+                    if (payload.length < length) { throw new EOFException(); }
+                } catch (EOFException e) {
+                    torn = true;
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    torn = true;
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long recordSeq = record.readLong();
+                if (recordSeq > seq) {
+                    apply(record.readByte(), record);
+                    seq = recordSeq;
+                }
+                good += HEADER_SIZE + length;
+            }
+        }
+        if (torn) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) { channel.truncate(good); }
+        }
+        return new Replay(seq, torn);
+    }
+
+    /**
+     * Outcome of replaying one segment
+     */
+    private static final class Replay {
+        final long lastSeq;
+        final boolean torn;
+
+        Replay(long lastSeq, boolean torn) {
+            this.lastSeq = lastSeq;
+            this.torn = torn;
+        }
+    }
+
+    private static void apply(byte op, DataInputStream in) throws IOException {
+        switch (op) {
+            case ADD_PART: Inventory.addPart(InventoryCodec.readPart(in)); break;
+            case MODIFY_PART: Inventory.modifyPart(InventoryCodec.readPart(in)); break;
+            case DELETE_PART: Inventory.deletePart(in.readInt()); break;
+            case ADD_PRODUCT: Inventory.addProduct(InventoryCodec.readProduct(in)); break;
+            case MODIFY_PRODUCT: Inventory.modifyProduct(InventoryCodec.readProduct(in)); break;
+            case DELETE_PRODUCT: Inventory.deleteProduct(in.readInt()); break;
+            case SET_PART_STOCK: Inventory.restorePartStock(in.readInt(), in.readInt()); break;
+            case SET_PRODUCT_STOCK: Inventory.restoreProductStock(in.readInt(), in.readInt()); break;
+            default: throw new IOException("Unknown journal operation " + op);
+        }
+    }
+
+    /**
+     * Writes a record body
+     */
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Encode a record payload on the calling thread: sequence placeholder, op code, body.
+     * The sequence is patched in when the record is queued.
+     */
+    private static byte[] encode(byte op, Body body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(0);
+            out.writeByte(op);
+            body.write(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long segmentStart(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,142 @@
+package ims;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Inventory Metrics - counters and latency histograms for production monitoring, exposed
+ * as MBeans so jconsole, VisualVM or any JMX agent can read them:
+ *   ims:type=Inventory                       sizes, stock and validation counters
+ *   ims:type=Latency,name=part.add           add/modify/delete of parts and products
+ *   ims:type=Latency,name=search.parts       search bar queries
+ *   ims:type=Latency,name=navigation.main    screen switches
+ * Recording is lock-free (LongAdder counters, LatencyHistogram buckets) and allocates
+ * nothing once a validation rule has been seen, so it is always on, also on hot paths
+ * such as bulk imports and stock feeds. Registration is separate: call register() once
+ * the application starts; until then metrics are recorded but not published.
+ */
+final class InventoryMetrics implements InventoryMetricsMXBean {
+    static final String DOMAIN = "ims";
+
+    static final LatencyHistogram partAdds = new LatencyHistogram();
+    static final LatencyHistogram partModifies = new LatencyHistogram();
+    static final LatencyHistogram partDeletes = new LatencyHistogram();
+    static final LatencyHistogram productAdds = new LatencyHistogram();
+    static final LatencyHistogram productModifies = new LatencyHistogram();
+    static final LatencyHistogram productDeletes = new LatencyHistogram();
+    static final LatencyHistogram partSearches = new LatencyHistogram();
+    static final LatencyHistogram productSearches = new LatencyHistogram();
+    private static final Map<ViewCache.View, LatencyHistogram> navigations = new EnumMap<>(ViewCache.View.class);
+    static {
+        for (ViewCache.View view : ViewCache.View.values()) { navigations.put(view, new LatencyHistogram()); }
+    }
+    private static final LongAdder stockUpdates = new LongAdder();
+    private static final LongAdder stockRejects = new LongAdder();
+    private static final Map<String, LongAdder> validationFailures = new ConcurrentHashMap<>();
+    private static boolean registered;
+
+    private InventoryMetrics() {}
+
+    /**
+     * Publish every metric on the platform MBean server, once
+     * @throws JMException - an MBean could not be registered, e.g. its name is taken
+     */
+    static synchronized void register() throws JMException {
+        if (registered) { return; }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(new InventoryMetrics(), new ObjectName(DOMAIN + ":type=Inventory"));
+        for (Map.Entry<String, LatencyHistogram> latency : latencies().entrySet()) {
+            server.registerMBean(latency.getValue(), new ObjectName(DOMAIN + ":type=Latency,name=" + latency.getKey()));
+        }
+        registered = true;
+    }
+
+    /**
+     * @return every latency histogram by MBean name
+     */
+    static Map<String, LatencyHistogram> latencies() {
+        Map<String, LatencyHistogram> latencies = new TreeMap<>();
+        latencies.put("part.add", partAdds);
+        latencies.put("part.modify", partModifies);
+        latencies.put("part.delete", partDeletes);
+        latencies.put("product.add", productAdds);
+        latencies.put("product.modify", productModifies);
+        latencies.put("product.delete", productDeletes);
+        latencies.put("search.parts", partSearches);
+        latencies.put("search.products", productSearches);
+        for (Map.Entry<ViewCache.View, LatencyHistogram> navigation : navigations.entrySet()) {
+            latencies.put("navigation." + navigation.getKey().name().toLowerCase(), navigation.getValue());
+        }
+        return latencies;
+    }
+
+    /**
+     * @param view - screen switched to
+     * @return histogram of switches to the screen
+     */
+    static LatencyHistogram navigation(ViewCache.View view) { return navigations.get(view); }
+
+    /**
+     * Count an atomic stock change
+     * @param applied - false if it was refused
+     */
+    static void stockUpdated(boolean applied) { (applied ? stockUpdates : stockRejects).increment(); }
+
+    /**
+     * Count a failed validation rule
+     * @param rule - rule name, e.g. "part.minAboveMax"
+     */
+    static void validationFailed(String rule) {
+        LongAdder count = validationFailures.get(rule);
+        if (count == null) { count = validationFailures.computeIfAbsent(rule, r -> new LongAdder()); }
+        count.increment();
+    }
+
+    @Override
+    public int getPartCount() { return Inventory.getInventoryPartCount(); }
+
+    @Override
+    public int getProductCount() { return Inventory.getInventoryProductCount(); }
+
+    @Override
+    public int getUnderpricedProductCount() { return Inventory.getUnderpricedProductCount(); }
+
+    @Override
+    public int getWatchlistSize() { return Inventory.getStockWatchlist().size(); }
+
+    @Override
+    public int getPinnedSnapshotCount() { return Inventory.getPinnedSnapshotCount(); }
+
+    @Override
+    public int getCompanyCount() { return PartOutsourced.getCompanies().size(); }
+
+    @Override
+    public long getStockUpdates() { return stockUpdates.sum(); }
+
+    @Override
+    public long getStockUpdatesRejected() { return stockRejects.sum(); }
+
+    @Override
+    public Map<String, Long> getValidationFailures() {
+        Map<String, Long> failures = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> failure : validationFailures.entrySet()) {
+            failures.put(failure.getKey(), failure.getValue().sum());
+        }
+        return failures;
+    }
+
+    @Override
+    public void resetStatistics() {
+        for (LatencyHistogram latency : latencies().values()) { latency.reset(); }
+        stockUpdates.reset();
+        stockRejects.reset();
+        validationFailures.clear();
+    }
+}
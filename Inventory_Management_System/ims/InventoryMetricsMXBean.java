@@ -0,0 +1,59 @@
+package ims;
+import java.util.Map;
+
+
+/**
+ * JMX view of the inventory: catalog sizes and operation counters.
+ * Latencies of individual operations are separate LatencyHistogramMXBeans.
+ */
+public interface InventoryMetricsMXBean {
+    /**
+     * @return parts in inventory
+     */
+    int getPartCount();
+
+    /**
+     * @return products in inventory
+     */
+    int getProductCount();
+
+    /**
+     * @return products priced below the sum of their parts
+     */
+    int getUnderpricedProductCount();
+
+    /**
+     * @return parts and products at or beyond their min/max
+     */
+    int getWatchlistSize();
+
+    /**
+     * @return inventory snapshots pinned by readers and not yet closed
+     */
+    int getPinnedSnapshotCount();
+
+    /**
+     * @return distinct supplier company names
+     */
+    int getCompanyCount();
+
+    /**
+     * @return atomic stock changes applied
+     */
+    long getStockUpdates();
+
+    /**
+     * @return atomic stock changes refused because stock would leave min..max or had changed meanwhile
+     */
+    long getStockUpdatesRejected();
+
+    /**
+     * @return part and product validation failures by the rule that failed
+     */
+    Map<String, Long> getValidationFailures();
+
+    /**
+     * Reset every counter and latency histogram
+     */
+    void resetStatistics();
+}
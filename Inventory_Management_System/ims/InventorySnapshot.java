@@ -0,0 +1,78 @@
+package ims;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Inventory Snapshot - a pinned, consistent version of the inventory for long-running readers
+ * such as exports, valuations and reports. Pinning costs nothing to copy: the snapshot holds
+ * the last committed InventoryVersion, which never changes, while the JavaFX thread goes on
+ * committing newer ones. A batch shows up in a snapshot whole or not at all.
+ * Close the snapshot when done; the version is reclaimed by the garbage collector once
+ * neither readers nor the undo history hold it.
+ *
+ * Part and product fields are read from the items themselves, so stock moved in place by the
+ * atomic stock updates is seen as it is now. Use partIds and lookupPart for a product's parts,
+ * they resolve to the parts of this version.
+ */
+public final class InventorySnapshot implements AutoCloseable {
+    private final InventoryVersion version;
+    private final InventoryHistory history;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    InventorySnapshot(InventoryVersion version, InventoryHistory history) {
+        this.version = version;
+        this.history = history;
+    }
+
+    /**
+     * @return parts of this version in ID order, safe to iterate on any thread
+     */
+    public Iterable<Part> getParts() { return version.parts; }
+
+    /**
+     * @return products of this version in ID order, safe to iterate on any thread
+     */
+    public Iterable<Product> getProducts() { return version.products; }
+
+    /**
+     * @param partId - id of part
+     * @return part of this version, or null if it held no such part
+     */
+    public Part lookupPart(int partId) { return version.parts.get(partId); }
+
+    /**
+     * @param productId - id of product
+     * @return product of this version, or null if it held no such product
+     */
+    public Product lookupProduct(int productId) { return version.products.get(productId); }
+
+    /**
+     * IDs of a product's associated parts. Part lists of inventoried products only ever have
+     * a part swapped for the part replacing it under the same ID, so the IDs are stable.
+     * @param product - product of this version
+     * @return associated part IDs, a part listed twice appears twice
+     */
+    public int[] partIds(Product product) {
+        List<Part> parts = product.getAssociatedParts();
+        int[] ids = new int[parts.size()];
+        for (int i = 0; i < ids.length; i++) { ids[i] = parts.get(i).getId(); }
+        return ids;
+    }
+
+    /**
+     * @return number of parts in this version
+     */
+    public int getPartCount() { return version.getPartCount(); }
+
+    /**
+     * @return number of products in this version
+     */
+    public int getProductCount() { return version.getProductCount(); }
+
+    /**
+     * Unpin the version, further closes do nothing
+     */
+    @Override
+    public void close() { if (closed.compareAndSet(false, true)) { history.unpin(); } }
+}
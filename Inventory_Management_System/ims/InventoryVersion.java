@@ -0,0 +1,54 @@
+package ims;
+
+
+/**
+ * Immutable state of the inventory at one point in time: every part and product by ID.
+ * Versions share all unchanged structure with the version they came from, so keeping
+ * many of them costs O(log n) memory per change rather than a copy of the catalog each.
+ * Parts and products are held by reference; stock moved in place by the atomic stock
+ * updates is shared by every version holding that object.
+ */
+final class InventoryVersion {
+    static final InventoryVersion EMPTY =
+            new InventoryVersion(PersistentIntMap.empty(), PersistentIntMap.empty());
+
+    final PersistentIntMap<Part> parts;
+    final PersistentIntMap<Product> products;
+
+    private InventoryVersion(PersistentIntMap<Part> parts, PersistentIntMap<Product> products) {
+        this.parts = parts;
+        this.products = products;
+    }
+
+    /**
+     * @param id - id of part
+     * @param part - part now holding the ID, or null once deleted
+     * @param edit - edit token of the current change, see PersistentIntMap
+     * @return version with the part set
+     */
+    InventoryVersion withPart(int id, Part part, Object edit) {
+        PersistentIntMap<Part> updated = part == null ? parts.remove(id, edit) : parts.put(id, part, edit);
+        return updated == parts ? this : new InventoryVersion(updated, products);
+    }
+
+    /**
+     * @param id - id of product
+     * @param product - product now holding the ID, or null once deleted
+     * @param edit - edit token of the current change, see PersistentIntMap
+     * @return version with the product set
+     */
+    InventoryVersion withProduct(int id, Product product, Object edit) {
+        PersistentIntMap<Product> updated = product == null ? products.remove(id, edit) : products.put(id, product, edit);
+        return updated == products ? this : new InventoryVersion(parts, updated);
+    }
+
+    /**
+     * @return number of parts
+     */
+    int getPartCount() { return parts.size(); }
+
+    /**
+     * @return number of products
+     */
+    int getProductCount() { return products.size(); }
+}
@@ -0,0 +1,120 @@
+package ims;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram: log-linear buckets, each power
+ * of two split into SUB_BUCKETS equal steps, so any value from 1 ns to hours lands in a
+ * fixed array of counters with at most 1/SUB_BUCKETS (about 3%) relative error.
+ * record() is one bucket increment and a sum update, no allocation and no lock, so it is
+ * safe on hot paths and from any number of threads. Readers see a consistent enough view
+ * for monitoring; counts recorded while a percentile is computed may or may not be in it.
+ */
+class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BITS = 5;
+    // Buckets per power of two
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Values below SUB_BUCKETS get a bucket each, then SUB_BUCKETS per power of two up to 2^63
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @param nanos - latency of one call, negative values count as 0
+     */
+    void record(long nanos) {
+        if (nanos < 0) { nanos = 0; }
+        counts.getAndIncrement(bucket(nanos));
+        totalNanos.add(nanos);
+        // Only write when this is a new maximum, which is rare once warmed up
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) { max = maxNanos.get(); }
+    }
+
+    /**
+     * Record the time since a System.nanoTime() start
+     * @param startNanos - System.nanoTime() when the call began
+     */
+    void recordSince(long startNanos) { record(System.nanoTime() - startNanos); }
+
+    /**
+     * @param fraction - 0..1, e.g. 0.99
+     * @return latency in nanoseconds at or below which that fraction of calls completed, the bucket's upper edge
+     */
+    long percentileNanos(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) { return 0; }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) { return Math.min(upperEdge(i), maxNanos.get()); }
+        }
+        return maxNanos.get();
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) { count += counts.get(i); }
+        return count;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / 1e3 / count;
+    }
+
+    @Override
+    public double getP50Micros() { return percentileNanos(0.5) / 1e3; }
+
+    @Override
+    public double getP90Micros() { return percentileNanos(0.9) / 1e3; }
+
+    @Override
+    public double getP99Micros() { return percentileNanos(0.99) / 1e3; }
+
+    @Override
+    public double getP999Micros() { return percentileNanos(0.999) / 1e3; }
+
+    @Override
+    public double getMaxMicros() { return maxNanos.get() / 1e3; }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) { counts.set(i, 0); }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return bucket of a value: the value itself below SUB_BUCKETS, else its power of two
+     *         and the top SUB_BITS bits below the leading one
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) { return (int) value; }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * @return highest value that falls in a bucket
+     */
+    static long upperEdge(int bucket) {
+        if (bucket < SUB_BUCKETS) { return bucket; }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long edge = ((sub + 1) << shift) - 1;
+        return edge < 0 ? Long.MAX_VALUE : edge;
+    }
+}
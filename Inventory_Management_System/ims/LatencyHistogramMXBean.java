@@ -0,0 +1,48 @@
+package ims;
+
+
+/**
+ * JMX view of one operation's latency, in microseconds.
+ * Percentiles are accurate to about 3%, see LatencyHistogram.
+ */
+public interface LatencyHistogramMXBean {
+    /**
+     * @return number of recorded calls
+     */
+    long getCount();
+
+    /**
+     * @return mean latency
+     */
+    double getMeanMicros();
+
+    /**
+     * @return median latency
+     */
+    double getP50Micros();
+
+    /**
+     * @return 90th percentile latency
+     */
+    double getP90Micros();
+
+    /**
+     * @return 99th percentile latency
+     */
+    double getP99Micros();
+
+    /**
+     * @return 99.9th percentile latency
+     */
+    double getP999Micros();
+
+    /**
+     * @return slowest recorded call
+     */
+    double getMaxMicros();
+
+    /**
+     * Start counting from zero
+     */
+    void reset();
+}
@@ -1,9 +1,11 @@
 package ims;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.application.Platform;
 import javafx.stage.Stage;
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 
 /**
@@ -24,17 +26,87 @@ import javafx.stage.Stage;
  *    sorting parts/products by certain useful parameters.
  */
 public class Main extends Application {
+    // Directory holding persisted inventory data, override with -Dims.data=<dir>
+    static final Path DATA_DIR = Paths.get(System.getProperty("ims.data", "inventory-data"));
+    // Inventory file shared with other local instances, set with -Dims.shared=<file>
+    static final String SHARED_FILE = System.getProperty("ims.shared");
+
     /**
      * Initiate and display main scene for our inventory system
      * @param mainStage - main FXML pane
      */
     @Override
     public void start(Stage mainStage) throws Exception{
-        Parent root = FXMLLoader.load(getClass().getResource("Main.fxml"));
+        if (SHARED_FILE != null) {
+            Inventory.openShared(Paths.get(SHARED_FILE));
+        } else {
+            Inventory.openIdStore(DATA_DIR);
+            Inventory.open(DATA_DIR);
+        }
+        String importFile = getParameters().getNamed().get("import");
+        if (importFile != null) { importInBackground(Paths.get(importFile)); }
+        String exportFile = getParameters().getNamed().get("export");
+        if (exportFile != null) { exportInBackground(Paths.get(exportFile)); }
+        try {
+            InventoryMetrics.register();
+        } catch (JMException e) {
+            System.err.println("Metrics are not available over JMX: " + e.getMessage());
+        }
+        // Load every screen once up front, navigation then only switches cached scenes
+        ViewCache.preload();
         mainStage.setTitle("Inventory Management System");
-        Scene startScene = new Scene(root);
-        mainStage.setScene(startScene);
+        mainStage.setScene(ViewCache.scene(ViewCache.View.MAIN));
         mainStage.show();
     }
+
+    /**
+     * Import a CSV file given with --import=file.csv while the GUI is showing.
+     * Rows appear in the tables chunk by chunk, rejected rows are printed once done.
+     * @param file - CSV file of parts and products
+     */
+    private static void importInBackground(Path file) {
+        Thread thread = new Thread(() -> {
+            try {
+                CsvImporter.Report report = new CsvImporter(Platform::runLater).importFile(file);
+                System.out.println("Imported " + report.getImported() + " rows from " + file
+                        + ", rejected " + report.getErrorCount());
+                for (CsvImporter.RowError error : report.getErrors()) { System.out.println(error); }
+            } catch (IOException e) {
+                System.err.println("Import of " + file + " failed: " + e.getMessage());
+            }
+        }, "ims-import-reader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Export the inventory as it is at startup to the file given with --export=file.csv,
+     * or --export=file.json for JSON, while the GUI is showing
+     * @param file - destination file
+     */
+    private static void exportInBackground(Path file) {
+        InventorySnapshot snapshot = Inventory.pin();
+        InventoryExporter.Format format = file.toString().toLowerCase().endsWith(".json")
+                ? InventoryExporter.Format.JSON : InventoryExporter.Format.CSV;
+        Thread thread = new Thread(() -> {
+            try (snapshot) {
+                long count = new InventoryExporter().export(snapshot, file, format, part -> true, product -> true);
+                System.out.println("Exported " + count + " items to " + file);
+            } catch (IOException e) {
+                System.err.println("Export to " + file + " failed: " + e.getMessage());
+            }
+        }, "ims-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Flush journaled inventory changes on shutdown
+     */
+    @Override
+    public void stop() throws Exception {
+        Inventory.close();
+    }
+
     public static void main(String[] args) { launch(args); }
 }
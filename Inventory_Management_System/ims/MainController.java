@@ -1,24 +1,23 @@
 package ims;
 import static ims.Inventory.*;
-import javafx.collections.transformation.FilteredList;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
-import javafx.scene.Parent;
 import java.io.IOException;
-import javafx.stage.Stage;
-import javafx.scene.Scene;
-import javafx.scene.Node;
+import java.util.Map;
+import java.util.function.BiFunction;
 import javafx.fxml.FXML;
+import javafx.util.Callback;
 
 
 /**
  * Main Controller - Controls main inventory management system FXML scene
  */
-public class MainController {
+public class MainController implements ViewCache.Resettable {
     // Search Bars
     @FXML
     private TextField partSearchBar;
@@ -49,6 +48,30 @@ public class MainController {
     private TableColumn<Product, Integer> productInvCol;
     @FXML
     private TableColumn<Product, Double> productPriceCol;
+    // Stock Watchlist Table, parts and products at or beyond min/max
+    @FXML
+    private TableView<StockWatchlist.Entry> watchTable;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, String> watchTypeCol;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, Integer> watchIdCol;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, String> watchNameCol;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, Integer> watchInvCol;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, Integer> watchMinCol;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, Integer> watchMaxCol;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, String> watchStatusCol;
+    @FXML
+    private TableColumn<StockWatchlist.Entry, Integer> watchShortfallCol;
+    @FXML
+    private Label watchCountLabel;
+    // Background searches feeding the tables
+    private SearchService<Part> partSearch;
+    private SearchService<Product> productSearch;
     // Empty Controller Constructor
     public MainController() {}
 
@@ -82,7 +105,33 @@ public class MainController {
         exitAlert.setTitle("Exit Inventory Management System");
         exitAlert.setContentText("Exit?");
         if (exitAlert.showAndWait().orElseThrow() == ButtonType.OK) {
-            System.exit(0);
+            Platform.exit();
+        }
+    }
+
+    /**
+     * Undo the last add, modify or delete, alerting user if there is none
+     */
+    @FXML
+    void undoChange() {
+        if (!undo()) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Nothing to Undo");
+            alert.setContentText("There are no changes to undo.");
+            alert.showAndWait();
+        }
+    }
+
+    /**
+     * Redo the last undone change, alerting user if there is none
+     */
+    @FXML
+    void redoChange() {
+        if (!redo()) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("Nothing to Redo");
+            alert.setContentText("There are no undone changes to redo.");
+            alert.showAndWait();
         }
     }
 
@@ -123,15 +172,21 @@ public class MainController {
             alert.showAndWait();
         } else {
             Part part = partsTable.getSelectionModel().getSelectedItem();
+            // If part is used by a product, alert user
+            if (!validatePartDeletion(part)) {
+                Alert usedAlert = new Alert(Alert.AlertType.INFORMATION);
+                usedAlert.setTitle("Part Deletion Error!");
+                usedAlert.setHeaderText("Part is used by " + getProductsUsingPart(part.getId()).size() + " product(s).");
+                usedAlert.showAndWait();
+                return;
+            }
             Alert delAlert = new Alert(Alert.AlertType.CONFIRMATION);
             delAlert.setTitle("Delete Part");
             delAlert.setContentText("Delete " + part.getName() + "?");
             // Display alert, if OK button is clicked ->
             if (delAlert.showAndWait().orElseThrow() == ButtonType.OK) {
-                // Delete part
+                // Delete part, the table and any search results follow the inventory
                 deletePart(part.getId());
-                // Re-fill part table to display deletion
-                fillPartTable();
             }
         }
     }
@@ -162,10 +217,8 @@ public class MainController {
                 delAlert.setHeaderText("Delete " + product.getName() + "?");
                 // If user confirms the deletion alerts
                 if (delAlert.showAndWait().orElseThrow() == ButtonType.OK) {
-                    // If product has no parts associated, delete it
+                    // If product has no parts associated, delete it, the table and any search results follow the inventory
                     deleteProduct(product.getId());
-                    // Re-fill part table
-                    fillPartTable();
                 }
             }
         }
@@ -214,47 +267,86 @@ public class MainController {
      * Load Main Menu
      * @param event - action which completes a part or product addition/modification
      */
-    public static void mainMenu(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(MainController.class.getResource("Main.fxml"));
-        Scene startScene = new Scene(root);
-        Stage mainStage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-        mainStage.setScene(startScene);
-        mainStage.show();
-    }
+    public static void mainMenu(ActionEvent event) throws IOException { ViewCache.show(event, ViewCache.View.MAIN); }
 
     /**
      * Load Parts Menu
      * @param event - part add/modify action
      */
-    public static void partMenu(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(MainController.class.getResource("Part.fxml"));
-        Scene scene = new Scene(root);
-        Stage window = (Stage) ((Node) event.getSource()).getScene().getWindow();
-        window.setScene(scene);
-        window.show();
-    }
+    public static void partMenu(ActionEvent event) throws IOException { ViewCache.show(event, ViewCache.View.PART); }
 
     /**
      * Load Products Menu
      * @param event - product add/modify action
      */
-    public static void productMenu(ActionEvent event) throws IOException {
-        Parent root = FXMLLoader.load(MainController.class.getResource("Product.fxml"));
-        Scene scene = new Scene(root);
-        Stage window = (Stage) ((Node) event.getSource()).getScene().getWindow();
-        window.setScene(scene);
-        window.show();
-    }
+    public static void productMenu(ActionEvent event) throws IOException { ViewCache.show(event, ViewCache.View.PRODUCT); }
 
     /**
      * Populate the parts table.
      */
-    public void fillPartTable() { partsTable.setItems(getInventoryParts()); }
+    public void fillPartTable() {
+        partsTable.setItems(getInventoryParts());
+        partsTable.sort();
+    }
 
     /**
      * Populate the product table.
      */
-    public void fillProductTable() { productTable.setItems(getInventoryProducts()); }
+    public void fillProductTable() {
+        productTable.setItems(getInventoryProducts());
+        productTable.sort();
+    }
+
+    /**
+     * Sort policy that shows a maintained sorted index instead of sorting the list.
+     * While the whole inventory is shown, sorting by one indexed column swaps in that index's
+     * live view, and clearing the sort shows the ID index, since the inventory list itself is
+     * in no particular order. Search results and
+     * multi-column sorts are small or rare, they are sorted as a copy.
+     * @param inventory - unsorted inventory list
+     * @param sorted - sorted view for a key and direction
+     * @param keys - sort key of each indexed column
+     * @return sort policy for the table
+     */
+    private static <T> Callback<TableView<T>, Boolean> indexedSort(ObservableList<T> inventory,
+            BiFunction<SortKey, Boolean, ObservableList<T>> sorted, Map<TableColumn<T, ?>, SortKey> keys) {
+        return table -> {
+            ObservableList<T> items = table.getItems();
+            boolean wholeInventory = items == inventory || items instanceof SortedIndex.View;
+            if (wholeInventory && table.getSortOrder().isEmpty()) {
+                table.setItems(sorted.apply(SortKey.ID, false));
+            } else if (wholeInventory && table.getSortOrder().size() == 1 && keys.containsKey(table.getSortOrder().get(0))) {
+                TableColumn<T, ?> column = table.getSortOrder().get(0);
+                table.setItems(sorted.apply(keys.get(column), column.getSortType() == TableColumn.SortType.DESCENDING));
+            } else if (table.getComparator() != null) {
+                ObservableList<T> copy = wholeInventory ? FXCollections.observableArrayList(items) : items;
+                FXCollections.sort(copy, table.getComparator());
+                table.setItems(copy);
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Bind the watchlist table to the live watchlist view, most urgent first.
+     * Entries are immutable and replaced on change, so plain read-only cell values suffice.
+     */
+    private void fillWatchTable() {
+        watchTable.setPlaceholder(new Label("All stock within min/max"));
+        watchTypeCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().isProduct() ? "Product" : "Part"));
+        watchIdCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getId()));
+        watchNameCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getName()));
+        watchInvCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getStock()));
+        watchMinCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getMin()));
+        watchMaxCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getMax()));
+        watchStatusCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().isLow() ? "Reorder" : "Overstock"));
+        watchShortfallCol.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getShortfall()));
+        StockWatchlist watchlist = getStockWatchlist();
+        watchTable.setItems(watchlist.view());
+        watchlist.view().addListener((ListChangeListener<StockWatchlist.Entry>) change ->
+                watchCountLabel.setText(watchlist.size() + " item(s)"));
+        watchCountLabel.setText(watchlist.size() + " item(s)");
+    }
 
     /**
      * Initiate Main Controller Logic
@@ -269,6 +361,8 @@ public class MainController {
      *    To fix this error, I had to use the FilteredList Type as
      *    a wrapper around the original list, then populate tables
      *    with that, rather than altering the main parts/products lists.
+     *    Search results now come from the name indexes in Inventory and are
+     *    shown in their own list, so the main lists are still never altered.
      */
     @FXML
     public void initialize() {
@@ -279,50 +373,68 @@ public class MainController {
         setCurrentPart(null);
         setCurrentProduct(null);
         // Set Part Cell Values
-        partIdCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getId()).asObject());
-        partNameCol.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getName()));
-        partInvCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getStock()).asObject());
-        partPriceCol.setCellValueFactory(param -> new SimpleDoubleProperty(param.getValue().getPrice()).asObject());
+        partIdCol.setCellValueFactory(param -> param.getValue().idProperty());
+        partNameCol.setCellValueFactory(param -> param.getValue().nameProperty());
+        partInvCol.setCellValueFactory(param -> param.getValue().stockProperty());
+        partPriceCol.setCellValueFactory(param -> param.getValue().priceProperty());
         // Set Product Cell Values
-        productIdCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getId()).asObject());
-        productNameCol.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getName()));
-        productInvCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getStock()).asObject());
-        productPriceCol.setCellValueFactory(param -> new SimpleDoubleProperty(param.getValue().getPrice()).asObject());
+        productIdCol.setCellValueFactory(param -> param.getValue().idProperty());
+        productNameCol.setCellValueFactory(param -> param.getValue().nameProperty());
+        productInvCol.setCellValueFactory(param -> param.getValue().stockProperty());
+        productPriceCol.setCellValueFactory(param -> param.getValue().priceProperty());
+        // Sort tables through the sorted indexes in Inventory
+        partsTable.setSortPolicy(indexedSort(getInventoryParts(), Inventory::getSortedParts,
+                Map.of(partIdCol, SortKey.ID, partNameCol, SortKey.NAME, partInvCol, SortKey.STOCK, partPriceCol, SortKey.PRICE)));
+        productTable.setSortPolicy(indexedSort(getInventoryProducts(), Inventory::getSortedProducts,
+                Map.of(productIdCol, SortKey.ID, productNameCol, SortKey.NAME, productInvCol, SortKey.STOCK,
+                        productPriceCol, SortKey.PRICE)));
         // Fill Part and Product Tables
         fillPartTable();
         fillProductTable();
-        // Filter for part search
-        FilteredList<Part> filteredParts = new FilteredList<>(getInventoryParts(), p -> true);
+        fillWatchTable();
+        // Search parts in the background, publishing matches to the parts table
+        partSearch = new SearchService<>(getPartNameIndex(),
+                results -> {
+                    partsTable.setItems(FXCollections.observableArrayList(results));
+                    partsTable.sort();
+                }, Platform::runLater);
+        // Keep part search results current as parts are added, changed and deleted
+        getInventoryParts().addListener((ListChangeListener<Part>) change -> partSearch.refresh());
         partSearchBar.textProperty().addListener((observable, oldValue, newValue) -> {
-            filteredParts.setPredicate(part -> {
-                if (newValue == null || newValue.isEmpty()) { return true; }
-                String nameValue = newValue.toLowerCase();
-                if (part.getName().toLowerCase().contains(nameValue)) {
-                    return true;
-                } else if (Integer.valueOf(part.getId()).toString().equals(newValue)) {
-                    return true;
-                } else {
-                    return false;
-                }
-            });
+            if (newValue == null || newValue.isEmpty()) {
+                partSearch.cancel();
+                fillPartTable();
+            } else {
+                partSearch.submit(newValue);
+            }
         });
-        // Filter for product search
-        FilteredList<Product> filteredProducts = new FilteredList<>(getInventoryProducts(), p -> true);
+        // Search products in the background, publishing matches to the product table
+        productSearch = new SearchService<>(getProductNameIndex(),
+                results -> {
+                    productTable.setItems(FXCollections.observableArrayList(results));
+                    productTable.sort();
+                }, Platform::runLater);
+        // Keep product search results current as products are added, changed and deleted
+        getInventoryProducts().addListener((ListChangeListener<Product>) change -> productSearch.refresh());
         productSearchBar.textProperty().addListener((observable, oldValue, newValue) -> {
-            filteredProducts.setPredicate(product -> {
-                if (newValue == null || newValue.isEmpty()) { return true; }
-                String nameValue = newValue.toLowerCase();
-                if (product.getName().toLowerCase().contains(nameValue)) {
-                    return true;
-                } else if (Integer.valueOf(product.getId()).toString().equals(newValue)) {
-                    return true;
-                } else {
-                    return false;
-                }
-            });
+            if (newValue == null || newValue.isEmpty()) {
+                productSearch.cancel();
+                fillProductTable();
+            } else {
+                productSearch.submit(newValue);
+            }
         });
-        // Refresh Parts and Products Tables with search filter matches
-        partsTable.setItems(filteredParts);
-        productTable.setItems(filteredProducts);
+    }
+
+    /**
+     * Back on the main screen: nothing is being added or modified and searches start over.
+     * Tables stay bound to the inventory lists, so they are already up to date.
+     */
+    @Override
+    public void reset() {
+        setCurrentPart(null);
+        setCurrentProduct(null);
+        partSearchBar.clear();
+        productSearchBar.clear();
     }
 }
\ No newline at end of file
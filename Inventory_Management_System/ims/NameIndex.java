@@ -0,0 +1,321 @@
+package ims;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * N-gram index over normalized (lower case) item names for search bar queries.
+ * Every 1, 2 and 3 character substring of a name maps to the IDs of items containing it.
+ * Queries up to 3 characters are answered straight from a posting set, longer queries
+ * only verify the items holding their rarest trigram - never the whole catalog.
+ * A query that is exactly an item's ID also matches that item.
+ * Updates come from the JavaFX thread while searches may run on a background thread,
+ * so access is guarded by a read/write lock. A bulk rebuild runs without the lock and
+ * replays the updates and clears made since it was prepared before swapping the new
+ * postings in.
+ * @param <T> - Part or Product
+ */
+class NameIndex<T> {
+    private static final int GRAM_SIZE = 3;
+    private final ToIntFunction<T> idOf;
+    private final Function<T, String> nameOf;
+    // Time of every search, lock waits included
+    private final LatencyHistogram searches;
+    private Map<Long, Set<Integer>> postings = new HashMap<>();
+    private Map<Integer, T> itemsById = new HashMap<>();
+    private Map<Integer, String> namesById = new HashMap<>();
+    // Marks a clear among the pending updates
+    private static final Object CLEARED = new Object();
+    // Updates made while a rebuild runs: an item to index, an Integer ID to unindex or CLEARED
+    private List<Object> pendingUpdates;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Bumped on every change, lets callers tell whether earlier results are still current
+    private volatile int modCount;
+
+    /**
+     * @param idOf - reads the ID of an item
+     * @param nameOf - reads the name of an item
+     * @param searches - records the time of every search
+     */
+    NameIndex(ToIntFunction<T> idOf, Function<T, String> nameOf, LatencyHistogram searches) {
+        this.idOf = idOf;
+        this.nameOf = nameOf;
+        this.searches = searches;
+    }
+
+    /**
+     * Normalize text the same way for indexed names and queries
+     * @param text - name or query
+     * @return lower case text
+     */
+    static String normalize(String text) { return text == null ? "" : text.toLowerCase(Locale.ROOT); }
+
+    /**
+     * Add an item, replacing any item previously indexed under the same ID
+     * @param item - item to index
+     */
+    void index(T item) {
+        int id = idOf.applyAsInt(item);
+        String name = normalize(nameOf.apply(item));
+        lock.writeLock().lock();
+        try {
+            add(id, name, item);
+            if (pendingUpdates != null) { pendingUpdates.add(item); }
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the item indexed under the given ID
+     * @param id - id of item to remove
+     */
+    void unindex(int id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+            if (pendingUpdates != null) { pendingUpdates.add(id); }
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all items
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            itemsById.clear();
+            namesById.clear();
+            if (pendingUpdates != null) { pendingUpdates.add(CLEARED); }
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild the index from the given items on the calling thread
+     * @param items - every item that should be indexed
+     */
+    void rebuild(List<T> items) {
+        Runnable build = prepareRebuild(items);
+        if (build != null) { build.run(); }
+    }
+
+    /**
+     * Start a rebuild from the given items. Updates and clears from this call on are
+     * replayed on top of the built postings, so call it on the updating thread before
+     * handing the build to a background thread.
+     * @param items - every item that should be indexed
+     * @return build to run without blocking searches or updates, or null if a build
+     *         already running took the items as updates
+     */
+    Runnable prepareRebuild(List<T> items) {
+        lock.writeLock().lock();
+        try {
+            if (pendingUpdates != null) {
+                pendingUpdates.addAll(items);
+                return null;
+            }
+            pendingUpdates = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return () -> build(items);
+    }
+
+    private void build(List<T> items) {
+        NameIndex<T> built = new NameIndex<>(idOf, nameOf, searches);
+        for (T item : items) {
+            built.add(idOf.applyAsInt(item), normalize(nameOf.apply(item)), item);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Object update : pendingUpdates) {
+                if (update == CLEARED) {
+                    built = new NameIndex<>(idOf, nameOf, searches);
+                } else if (update instanceof Integer) {
+                    built.remove((Integer) update);
+                } else {
+                    @SuppressWarnings("unchecked") T item = (T) update;
+                    built.add(idOf.applyAsInt(item), normalize(nameOf.apply(item)), item);
+                }
+            }
+            postings = built.postings;
+            itemsById = built.itemsById;
+            namesById = built.namesById;
+            pendingUpdates = null;
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return change counter, differs whenever the index changed in between
+     */
+    int modCount() { return modCount; }
+
+    /**
+     * Index an item's name, caller holds the write lock
+     */
+    private void add(int id, String name, T item) {
+        remove(id);
+        itemsById.put(id, item);
+        namesById.put(id, name);
+        for (long gram : grams(name)) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+        }
+    }
+
+    /**
+     * Remove an item's postings, caller holds the write lock
+     * @param id - id of item to remove
+     */
+    private void remove(int id) {
+        String name = namesById.remove(id);
+        if (name == null) { return; }
+        itemsById.remove(id);
+        for (long gram : grams(name)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) { postings.remove(gram); }
+        }
+    }
+
+    /**
+     * Find items whose name contains the query, or whose ID equals the query
+     * @param query - search bar input
+     * @return matching items in ID order
+     */
+    List<T> search(String query) {
+        String q = normalize(query);
+        if (q.isEmpty()) { return Collections.emptyList(); }
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Set<Integer> matches = new HashSet<>();
+            if (q.length() <= GRAM_SIZE) {
+                matches.addAll(postings.getOrDefault(gramKey(q, 0, q.length()), Collections.emptySet()));
+            } else {
+                for (int id : rarestTrigram(q)) {
+                    if (namesById.get(id).contains(q)) { matches.add(id); }
+                }
+            }
+            Integer id = parseId(query);
+            if (id != null && itemsById.containsKey(id)) { matches.add(id); }
+            return resolve(matches);
+        } finally {
+            lock.readLock().unlock();
+            searches.recordSince(start);
+        }
+    }
+
+    /**
+     * Narrow a previous result set to the items that still match an extended query
+     * @param query - new search bar input
+     * @param candidates - results of a query the new query contains
+     * @return matching items in ID order
+     */
+    List<T> search(String query, List<T> candidates) {
+        String q = normalize(query);
+        if (q.isEmpty()) { return Collections.emptyList(); }
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Set<Integer> matches = new HashSet<>();
+            for (T item : candidates) {
+                int id = idOf.applyAsInt(item);
+                String name = namesById.get(id);
+                if (name != null && name.contains(q)) { matches.add(id); }
+            }
+            // An ID match need not be among the candidates - "1" does not imply "12"
+            Integer id = parseId(query);
+            if (id != null && itemsById.containsKey(id)) { matches.add(id); }
+            return resolve(matches);
+        } finally {
+            lock.readLock().unlock();
+            searches.recordSince(start);
+        }
+    }
+
+    /**
+     * @param q - normalized query longer than a trigram
+     * @return smallest posting set among the query's trigrams
+     */
+    private Set<Integer> rarestTrigram(String q) {
+        Set<Integer> rarest = null;
+        for (int i = 0; i + GRAM_SIZE <= q.length(); i++) {
+            Set<Integer> ids = postings.get(gramKey(q, i, GRAM_SIZE));
+            if (ids == null) { return Collections.emptySet(); }
+            if (rarest == null || ids.size() < rarest.size()) { rarest = ids; }
+        }
+        return rarest;
+    }
+
+    /**
+     * @param ids - matching item IDs
+     * @return matching items sorted by ID
+     */
+    private List<T> resolve(Set<Integer> ids) {
+        int[] sorted = new int[ids.size()];
+        int i = 0;
+        for (int id : ids) { sorted[i++] = id; }
+        Arrays.sort(sorted);
+        List<T> items = new ArrayList<>(sorted.length);
+        for (int id : sorted) { items.add(itemsById.get(id)); }
+        return items;
+    }
+
+    /**
+     * @param query - raw search bar input
+     * @return ID written exactly as the query, or null when the query is not an ID
+     */
+    private static Integer parseId(String query) {
+        try {
+            int id = Integer.parseInt(query);
+            return Integer.toString(id).equals(query) ? id : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param name - normalized name
+     * @return keys of every distinct 1 to 3 character substring of the name
+     */
+    private static Set<Long> grams(String name) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i < name.length(); i++) {
+            for (int n = 1; n <= GRAM_SIZE && i + n <= name.length(); n++) {
+                grams.add(gramKey(name, i, n));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Pack up to 3 characters and their count into a single key
+     * @return key for text[start, start + length)
+     */
+    private static long gramKey(String text, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) { key = (key << 16) | text.charAt(start + i); }
+        return key;
+    }
+}
@@ -1,84 +1,200 @@
-package ims;
-
-/**
- * @author Andrew Castelli
- * Supplied class Part.java
- */
-public abstract class Part {
-    private int id;
-    private String name;
-    private double price;
-    private int stock;
-    private int min;
-    private int max;
-    public Part() {}
-    public Part(int id, String name, double price, int stock, int min, int max) {
-        this.id = id;
-        this.name = name;
-        this.price = price;
-        this.stock = stock;
-        this.min = min;
-        this.max = max;
-    }
-
-    /**
-     * @return the id
-     */
-    public int getId() { return id; }
-
-    /**
-     * @param id the id to set
-     */
-    public void setId(int id) { this.id = id; }
-
-    /**
-     * @return the name
-     */
-    public String getName() { return name; }
-
-    /**
-     * @param name the name to set
-     */
-    public void setName(String name) { this.name = name; }
-
-    /**
-     * @return the price
-     */
-    public double getPrice() { return price; }
-
-    /**
-     * @param price the price to set
-     */
-    public void setPrice(double price) { this.price = price; }
-    
-    /**
-     * @return the stock
-     */
-    public int getStock() { return stock; }
-
-    /**
-     * @param stock the stock to set
-     */
-    public void setStock(int stock) { this.stock = stock; }
-
-    /**
-     * @return the min
-     */
-    public int getMin() { return min; }
-
-    /**
-     * @param min the min to set
-     */
-    public void setMin(int min) { this.min = min; }
-
-    /**
-     * @return the max
-     */
-    public int getMax() { return max; }
-
-    /**
-     * @param max the max to set
-     */
-    public void setMax(int max) { this.max = max; }
-
+package ims;
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableValue;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * @author Andrew Castelli
+ * Supplied class Part.java
+ */
+public abstract class Part {
+    // Atomic access to stock, so several threads can move stock without locking
+    private static final VarHandle STOCK;
+    private static final VarHandle STOCK_REFRESH;
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Part.class, "stock", int.class);
+            STOCK_REFRESH = MethodHandles.lookup().findVarHandle(Part.class, "stockRefreshPending", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    private int id;
+    private String name;
+    private double price;
+    private volatile int stock;
+    private int min;
+    private int max;
+    // Observable values for table cells, created on first use and kept current by the setters,
+    // so rendering a cell reuses them instead of allocating a property per cell
+    private ObjectProperty<Integer> idProperty;
+    private ObjectProperty<String> nameProperty;
+    private ObjectProperty<Double> priceProperty;
+    private volatile ObjectProperty<Integer> stockProperty;
+    // True while a stock change from another thread waits to reach stockProperty
+    private volatile boolean stockRefreshPending;
+    public Part() {}
+    public Part(int id, String name, double price, int stock, int min, int max) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stock = stock;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return the id
+     */
+    public int getId() { return id; }
+
+    /**
+     * @param id the id to set
+     */
+    public void setId(int id) {
+        this.id = id;
+        if (idProperty != null) { idProperty.set(id); }
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() { return name; }
+
+    /**
+     * @param name the name to set
+     */
+    public void setName(String name) {
+        this.name = name;
+        if (nameProperty != null) { nameProperty.set(name); }
+    }
+
+    /**
+     * @return the price
+     */
+    public double getPrice() { return price; }
+
+    /**
+     * @param price the price to set
+     */
+    public void setPrice(double price) {
+        this.price = price;
+        if (priceProperty != null) { priceProperty.set(price); }
+    }
+    
+    /**
+     * @return the stock
+     */
+    public int getStock() { return stock; }
+
+    /**
+     * @param stock the stock to set
+     */
+    public void setStock(int stock) {
+        this.stock = stock;
+        refreshStock();
+    }
+
+    /**
+     * Atomically add to the stock, safe to call from many threads at once
+     * @param delta - units received (positive) or taken out (negative)
+     * @return true if applied, false if the stock would leave min..max
+     */
+    public boolean adjustStock(int delta) {
+        while (true) {
+            int current = stock;
+            long updated = (long) current + delta;
+            if (updated < min || updated > max) { return false; }
+            if (STOCK.weakCompareAndSet(this, current, (int) updated)) {
+                refreshStock();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically replace the stock if it still holds the expected value
+     * @param expected - stock the caller last read
+     * @param newStock - stock to set, must be within min..max
+     * @return true if set, false if the stock changed meanwhile or newStock is out of bounds
+     */
+    public boolean compareAndSetStock(int expected, int newStock) {
+        if (newStock < min || newStock > max) { return false; }
+        if (!STOCK.compareAndSet(this, expected, newStock)) { return false; }
+        refreshStock();
+        return true;
+    }
+
+    /**
+     * @return id for table cells, call on the JavaFX thread
+     */
+    public ObservableValue<Integer> idProperty() {
+        if (idProperty == null) { idProperty = new SimpleObjectProperty<>(this, "id", id); }
+        return idProperty;
+    }
+
+    /**
+     * @return name for table cells, call on the JavaFX thread
+     */
+    public ObservableValue<String> nameProperty() {
+        if (nameProperty == null) { nameProperty = new SimpleObjectProperty<>(this, "name", name); }
+        return nameProperty;
+    }
+
+    /**
+     * @return price for table cells, call on the JavaFX thread
+     */
+    public ObservableValue<Double> priceProperty() {
+        if (priceProperty == null) { priceProperty = new SimpleObjectProperty<>(this, "price", price); }
+        return priceProperty;
+    }
+
+    /**
+     * @return stock for table cells, call on the JavaFX thread.
+     * Follows stock changes made from any thread.
+     */
+    public ObservableValue<Integer> stockProperty() {
+        if (stockProperty == null) { stockProperty = new SimpleObjectProperty<>(this, "stock", stock); }
+        return stockProperty;
+    }
+
+    /**
+     * Bring stockProperty up to date. Changes from other threads are handed to the JavaFX
+     * thread, at most one pending hand-off per part however fast the stock moves.
+     */
+    private void refreshStock() {
+        if (stockProperty == null) { return; }
+        if (Platform.isFxApplicationThread()) {
+            stockProperty.set(stock);
+        } else if (STOCK_REFRESH.compareAndSet(this, false, true)) {
+            Platform.runLater(() -> {
+                stockRefreshPending = false;
+                stockProperty.set(stock);
+            });
+        }
+    }
+
+    /**
+     * @return the min
+     */
+    public int getMin() { return min; }
+
+    /**
+     * @param min the min to set
+     */
+    public void setMin(int min) { this.min = min; }
+
+    /**
+     * @return the max
+     */
+    public int getMax() { return max; }
+
+    /**
+     * @param max the max to set
+     */
+    public void setMax(int max) { this.max = max; }
+
 }
\ No newline at end of file
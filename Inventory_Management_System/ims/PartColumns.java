@@ -0,0 +1,299 @@
+package ims;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+
+/**
+ * Columnar part store - one primitive array per field instead of one object per part.
+ * Rows live in fixed-size pages (ids, stock, min, max, price, a dictionary code per name
+ * and the company code of outsourced parts), so a full-catalog scan walks a few flat arrays front to back in simple loops
+ * the JIT can unroll and vectorize, instead of dereferencing a Part per row.
+ * Each distinct name is stored once in the dictionary. A row costs 32 bytes plus its
+ * ID map entry.
+ * Pages are never copied once allocated, so stock deltas from feed threads always land
+ * in the live array. Rows are added, replaced and removed on one thread, under the
+ * write lock; stock deltas and scans share the read lock.
+ * Removal moves the last row into the freed one, like InventoryIndex; scans do not depend
+ * on row order.
+ */
+class PartColumns {
+    // Rows per page, a power of two
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private int[][] ids = new int[0][];
+    private int[][] stock = new int[0][];
+    private int[][] min = new int[0][];
+    private int[][] max = new int[0][];
+    private double[][] price = new double[0][];
+    private int[][] nameCodes = new int[0][];
+    // PartOutsourced company codes, NONE for in-house parts
+    private int[][] companyCodes = new int[0][];
+    private int size;
+    // part ID -> row
+    private final Map<Integer, Integer> rowsById = new ConcurrentHashMap<>();
+    // Name dictionary of this store, replaced on clear
+    private StringDictionary names = new StringDictionary();
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * @return number of rows
+     */
+    int size() { return size; }
+
+    /**
+     * Add a part, or overwrite the row of the part holding the same ID
+     * @param part - part to store
+     */
+    void put(Part part) {
+        long stamp = lock.writeLock();
+        try {
+            Integer row = rowsById.get(part.getId());
+            int r = row == null ? append(part.getId()) : row;
+            int page = r >>> PAGE_SHIFT;
+            int at = r & PAGE_MASK;
+            stock[page][at] = part.getStock();
+            min[page][at] = part.getMin();
+            max[page][at] = part.getMax();
+            price[page][at] = part.getPrice();
+            nameCodes[page][at] = names.encode(part.getName() == null ? "" : part.getName());
+            companyCodes[page][at] = part instanceof PartOutsourced
+                    ? ((PartOutsourced) part).getCompanyCode() : StringDictionary.NONE;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove a part's row, moving the last row into its place
+     * @param id - id of part
+     */
+    void remove(int id) {
+        long stamp = lock.writeLock();
+        try {
+            Integer row = rowsById.remove(id);
+            if (row == null) { return; }
+            int last = --size;
+            if (row != last) {
+                int page = row >>> PAGE_SHIFT;
+                int at = row & PAGE_MASK;
+                int lastPage = last >>> PAGE_SHIFT;
+                int lastAt = last & PAGE_MASK;
+                ids[page][at] = ids[lastPage][lastAt];
+                stock[page][at] = stock[lastPage][lastAt];
+                min[page][at] = min[lastPage][lastAt];
+                max[page][at] = max[lastPage][lastAt];
+                price[page][at] = price[lastPage][lastAt];
+                nameCodes[page][at] = nameCodes[lastPage][lastAt];
+                companyCodes[page][at] = companyCodes[lastPage][lastAt];
+                rowsById.put(ids[page][at], row);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Atomically add to a part's stock column, safe from any thread
+     * @param id - id of part
+     * @param delta - stock change already applied to the part
+     */
+    void addStock(int id, int delta) {
+        long stamp = lock.readLock();
+        try {
+            Integer row = rowsById.get(id);
+            if (row != null) { INTS.getAndAdd(stock[row >>> PAGE_SHIFT], row & PAGE_MASK, delta); }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Set a part's stock column, safe from any thread
+     * @param id - id of part
+     * @param value - stock the part now holds
+     */
+    void setStock(int id, int value) {
+        long stamp = lock.readLock();
+        try {
+            Integer row = rowsById.get(id);
+            if (row != null) { INTS.setVolatile(stock[row >>> PAGE_SHIFT], row & PAGE_MASK, value); }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Drop every row and the name dictionary
+     */
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            ids = new int[0][];
+            stock = new int[0][];
+            min = new int[0][];
+            max = new int[0][];
+            price = new double[0][];
+            nameCodes = new int[0][];
+            companyCodes = new int[0][];
+            size = 0;
+            rowsById.clear();
+            names = new StringDictionary();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return sum of stock * price over all parts
+     */
+    double totalStockValue() {
+        long stamp = lock.readLock();
+        try {
+            double total = 0;
+            for (int page = 0; page * PAGE_SIZE < size; page++) {
+                int[] s = stock[page];
+                double[] p = price[page];
+                int rows = Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+                double sum = 0;
+                for (int i = 0; i < rows; i++) { sum += s[i] * p[i]; }
+                total += sum;
+            }
+            return total;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return IDs of parts whose stock is at or below their min
+     */
+    int[] lowStockIds() {
+        long stamp = lock.readLock();
+        try {
+            int[] found = new int[64];
+            int count = 0;
+            for (int page = 0; page * PAGE_SIZE < size; page++) {
+                int[] s = stock[page];
+                int[] m = min[page];
+                int[] id = ids[page];
+                int rows = Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+                for (int i = 0; i < rows; i++) {
+                    if (s[i] <= m[i]) {
+                        if (count == found.length) { found = Arrays.copyOf(found, count * 2); }
+                        found[count++] = id[i];
+                    }
+                }
+            }
+            return Arrays.copyOf(found, count);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Find parts by exact name, comparing dictionary codes instead of strings
+     * @param name - part name
+     * @return IDs of parts with that name
+     */
+    int[] idsNamed(String name) {
+        long stamp = lock.readLock();
+        try {
+            int code = names.codeOf(name == null ? "" : name);
+            return code == StringDictionary.NONE ? new int[0] : idsWithCode(nameCodes, code);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Find outsourced parts by company code
+     * @param code - code from PartOutsourced.getCompanyCode
+     * @return IDs of parts from that company
+     */
+    int[] idsOfCompany(int code) {
+        long stamp = lock.readLock();
+        try {
+            return idsWithCode(companyCodes, code);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Count outsourced parts per company in one pass over the company column
+     * @param companies - number of company codes, see StringDictionary.size
+     * @return part counts indexed by company code
+     */
+    int[] companyCounts(int companies) {
+        long stamp = lock.readLock();
+        try {
+            int[] counts = new int[companies];
+            for (int page = 0; page * PAGE_SIZE < size; page++) {
+                int[] c = companyCodes[page];
+                int rows = Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+                for (int i = 0; i < rows; i++) {
+                    // Codes added since counts was sized are left out, like parts added after the scan
+                    if (c[i] >= 0 && c[i] < companies) { counts[c[i]]++; }
+                }
+            }
+            return counts;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * IDs of rows whose code column holds the code, caller holds the read lock
+     */
+    private int[] idsWithCode(int[][] codes, int code) {
+        int[] found = new int[16];
+        int count = 0;
+        for (int page = 0; page * PAGE_SIZE < size; page++) {
+            int[] c = codes[page];
+            int[] id = ids[page];
+            int rows = Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+            for (int i = 0; i < rows; i++) {
+                if (c[i] == code) {
+                    if (count == found.length) { found = Arrays.copyOf(found, count * 2); }
+                    found[count++] = id[i];
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Claim the next row for a new ID, adding a page when the last one is full
+     * @return new row
+     */
+    private int append(int id) {
+        int r = size++;
+        int page = r >>> PAGE_SHIFT;
+        if (page == ids.length) {
+            ids = grow(ids);
+            stock = grow(stock);
+            min = grow(min);
+            max = grow(max);
+            nameCodes = grow(nameCodes);
+            companyCodes = grow(companyCodes);
+            price = Arrays.copyOf(price, page + 1);
+            price[page] = new double[PAGE_SIZE];
+        }
+        ids[page][r & PAGE_MASK] = id;
+        rowsById.put(id, r);
+        return r;
+    }
+
+    private static int[][] grow(int[][] pages) {
+        int[][] grown = Arrays.copyOf(pages, pages.length + 1);
+        grown[pages.length] = new int[PAGE_SIZE];
+        return grown;
+    }
+}
@@ -12,9 +12,9 @@ import javafx.fxml.FXML;
 /**
  * Part Controller - Controls Add/Modify Part logic for Part.fxml
  */
-public class PartController {
-    // Current part in consideration
-    public final Part currentPart;
+public class PartController implements ViewCache.Resettable {
+    // Current part in consideration, null when adding a part
+    public Part currentPart;
     // Text values for part display info
     @FXML
     private TextField partID;
@@ -110,14 +110,18 @@ public class PartController {
                 try {
                     // Validate user inputs meet part criteria
                     newPart.validatePart();
+                    // Compare with other parts only: a modified part keeps its ID, a new one has none yet
+                    newPart.setId(currentPart != null ? currentPart.getId() : -1);
+                    Inventory.validatePartUnique(newPart);
                     // If current part is not null, update old part with modification
                     if (currentPart != null) {
                         int partID = currentPart.getId();
                         newPart.setId(partID);
                         Inventory.modifyPart(newPart);
+                        warnUnderpricedProducts(partID);
                         // When current part is null - add it as new part
                     } else {
-                        newPart.setId(Inventory.getInventoryPartCount());
+                        newPart.setId(Inventory.nextPartId());
                         Inventory.addPart(newPart);
                     }
                     // Return to the main screen
@@ -143,15 +147,18 @@ public class PartController {
 
                 try {
                     newPart.validatePart();
+                    newPart.setId(currentPart != null ? currentPart.getId() : -1);
+                    Inventory.validatePartUnique(newPart);
                     // If part null -> add part, if part not null -> modify part
                     if (currentPart == null) {
-                        newPart.setId(Inventory.getInventoryPartCount());
+                        newPart.setId(Inventory.nextPartId());
                         Inventory.addPart(newPart);
                         // If part does not exist, create new part
                     } else {
                         int partID = currentPart.getId();
                         newPart.setId(partID);
                         Inventory.modifyPart(newPart);
+                        warnUnderpricedProducts(partID);
                     }
                     // Return to the main screen
                     mainMenu(event);
@@ -173,19 +180,53 @@ public class PartController {
         }
     }
 
+    /**
+     * After a part change, alert user to products now priced below the sum of their parts
+     * @param partId - id of modified part
+     */
+    private void warnUnderpricedProducts(int partId) {
+        StringBuilder names = new StringBuilder();
+        for (Product product : Inventory.getProductsUsingPart(partId)) {
+            if (product.isPricedBelowParts()) { names.append(product.getName()).append("\n"); }
+        }
+        if (names.length() > 0) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Product Price Warning");
+            alert.setHeaderText("These products now cost less than their parts:");
+            alert.setContentText(names.toString());
+            alert.showAndWait();
+        }
+    }
+
     /**
      * Initiate Part Controller Logic -
      * Sets part page and manufacturer labels
      */
     @FXML
-    public void initialize() {
+    public void initialize() { reset(); }
+
+    /**
+     * Switch the cached form to the part now in consideration - Modify Part for a
+     * selected part, an empty Add Part form otherwise
+     */
+    @Override
+    public void reset() {
+        currentPart = getCurrentPart();
         // For null parts, set part page title to Add Part, manufacturer label to MachineID
         if (currentPart == null) {
             pageTitle.setText("Add Part");
             manufacturerLabel.setText("Machine ID");
-            int partAutoID = Inventory.getInventoryPartCount();
+            int partAutoID = Inventory.peekPartId();
             partID.setText("AUTO GEN: " + partAutoID);
             isInHouse = true;
+            partInHouse.setSelected(true);
+            // Clear input left over from the last time the form was shown
+            partName.clear();
+            partStock.clear();
+            partPrice.clear();
+            partMin.clear();
+            partMax.clear();
+            partManufacturer.clear();
         }
         else{
             // For non-null (already existing) parts, set part page title to Modify Part
@@ -203,11 +244,13 @@ public class PartController {
                 partManufacturer.setText(Integer.toString(((PartInHouse) currentPart).getMachineID()));
                 manufacturerLabel.setText("Machine ID");
                 partInHouse.setSelected(true);
+                isInHouse = true;
             // If current part is an instance of PartOutsourced, manufacturer label -> Company Name
             } else {
                 partManufacturer.setText(((PartOutsourced) currentPart).getCompanyName());
                 manufacturerLabel.setText("Company Name");
                 partOutsource.setSelected(true);
+                isInHouse = false;
             }
         }
     }
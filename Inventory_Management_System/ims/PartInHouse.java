@@ -25,19 +25,19 @@ public class PartInHouse extends Part {
     public void validatePart() throws IVException {
         // Min should be less than Max
         if (getMin() > getMax()) {
-            throw new IVException("Minimum stock must be less than maximum.");
+            IVException.fail("part.minAboveMax", "Minimum stock must be less than maximum.");
         }
         // Inv should be between Min and Max values
         if (getStock() < getMin() || getStock() > getMax()) {
-            throw new IVException("Inv input must be between min and max.");
+            IVException.fail("part.stockOutOfRange", "Inv input must be between min and max.");
         }
         // Don't leave name blank
         if (getName().isBlank()) {
-            throw new IVException("Part name should not be left blank.");
+            IVException.fail("part.blankName", "Part name should not be left blank.");
         }
         // Don't let min max or inventory stock be 0
         if (getStock() == 0 || getMin() <= 0 || getMax() == 0) {
-            throw new IVException("Min, Max, and Inv should not be 0");
+            IVException.fail("part.zeroField", "Min, Max, and Inv should not be 0");
         }
     }
 }
@@ -4,17 +4,31 @@ package ims;
  * Outsourced Parts - includes manufacturer's Company Name.
  */
 public class PartOutsourced extends Part {
-    private String companyName;
+    // Company names shared by all outsourced parts; a few hundred suppliers repeat across
+    // the whole catalog, so each part keeps a dictionary code instead of its own String
+    private static final StringDictionary companies = new StringDictionary();
+    private int companyCode = StringDictionary.NONE;
 
     /**
      * @param companyName - Manufacturer's Name
      */
-    public void setCompanyName(String companyName) { this.companyName = companyName; }
+    public void setCompanyName(String companyName) { this.companyCode = companies.encode(companyName); }
 
     /**
      * @return Manufacturer's Name
      */
-    public String getCompanyName() { return companyName; }
+    public String getCompanyName() { return companies.decode(companyCode); }
+
+    /**
+     * @return dictionary code of the manufacturer's name, equal for equal names;
+     *         compare codes instead of names when filtering or grouping
+     */
+    public int getCompanyCode() { return companyCode; }
+
+    /**
+     * @return dictionary of company names
+     */
+    static StringDictionary getCompanies() { return companies; }
 
     /**
      * Validation test for specified requirements
@@ -24,19 +38,19 @@ public class PartOutsourced extends Part {
     public void validatePart() throws IVException {
         // Min should be less than Max
         if (getMin() > getMax()) {
-            throw new IVException("Minimum stock must be less than maximum.");
+            IVException.fail("part.minAboveMax", "Minimum stock must be less than maximum.");
         }
         // Inv should be between Min and Max values
         if (getStock() < getMin() || getStock() > getMax()) {
-            throw new IVException("Inv input must be between min and max.");
+            IVException.fail("part.stockOutOfRange", "Inv input must be between min and max.");
         }
         // Don't leave name blank
         if (getName().isBlank()) {
-            throw new IVException("Part name should not be left blank.");
+            IVException.fail("part.blankName", "Part name should not be left blank.");
         }
         // Don't let min max or inventory stock be 0
         if (getStock() == 0 || getMin() <= 0 || getMax() == 0 || getPrice() <= 0.00) {
-            throw new IVException("Min, Max, Price and Inv should not be 0");
+            IVException.fail("part.zeroField", "Min, Max, Price and Inv should not be 0");
         }
     }
 }
@@ -0,0 +1,101 @@
+package ims;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Reverse index from part ID to the IDs of products that use the part.
+ * Each tracked product's associated part list is watched, so parts added or removed
+ * through addAssociatedPart or directly on the list update the index right away.
+ * Occurrences are counted, a product listing the same part twice keeps using it
+ * until both entries are removed.
+ */
+class PartUsageIndex {
+    // part ID -> (product ID -> occurrences)
+    private final Map<Integer, Map<Integer, Integer>> productsByPart = new HashMap<>();
+    // product ID -> (part ID -> occurrences), used to unlink a product in one pass
+    private final Map<Integer, Map<Integer, Integer>> partsByProduct = new HashMap<>();
+    // product ID -> watched part list and its listener
+    private final Map<Integer, ObservableList<Part>> watchedLists = new HashMap<>();
+    private final Map<Integer, ListChangeListener<Part>> listeners = new HashMap<>();
+
+    /**
+     * Start tracking a product's parts, replacing any product tracked under the same ID
+     * @param product - product in inventory
+     */
+    void track(Product product) {
+        int productId = product.getId();
+        untrack(productId);
+        ObservableList<Part> parts = product.getAssociatedParts();
+        for (Part part : parts) { link(part.getId(), productId); }
+        ListChangeListener<Part> listener = change -> {
+            while (change.next()) {
+                for (Part removed : change.getRemoved()) { unlink(removed.getId(), productId); }
+                for (Part added : change.getAddedSubList()) { link(added.getId(), productId); }
+            }
+        };
+        parts.addListener(listener);
+        watchedLists.put(productId, parts);
+        listeners.put(productId, listener);
+    }
+
+    /**
+     * Stop tracking a product and drop all of its part links
+     * @param productId - id of product
+     */
+    void untrack(int productId) {
+        ObservableList<Part> parts = watchedLists.remove(productId);
+        ListChangeListener<Part> listener = listeners.remove(productId);
+        if (parts != null) { parts.removeListener(listener); }
+        Map<Integer, Integer> partIds = partsByProduct.remove(productId);
+        if (partIds == null) { return; }
+        for (int partId : partIds.keySet()) {
+            Map<Integer, Integer> products = productsByPart.get(partId);
+            products.remove(productId);
+            if (products.isEmpty()) { productsByPart.remove(partId); }
+        }
+    }
+
+    /**
+     * @param partId - id of part
+     * @return IDs of products using the part
+     */
+    Set<Integer> productsUsing(int partId) {
+        Map<Integer, Integer> products = productsByPart.get(partId);
+        return products == null ? Collections.emptySet() : Collections.unmodifiableSet(products.keySet());
+    }
+
+    /**
+     * @param partId - id of part
+     * @return true if any product uses the part
+     */
+    boolean isUsed(int partId) { return productsByPart.containsKey(partId); }
+
+    /**
+     * Remove all links
+     */
+    void clear() {
+        for (int productId : watchedLists.keySet().toArray(new Integer[0])) { untrack(productId); }
+        productsByPart.clear();
+        partsByProduct.clear();
+    }
+
+    private void link(int partId, int productId) {
+        productsByPart.computeIfAbsent(partId, id -> new HashMap<>()).merge(productId, 1, Integer::sum);
+        partsByProduct.computeIfAbsent(productId, id -> new HashMap<>()).merge(partId, 1, Integer::sum);
+    }
+
+    private void unlink(int partId, int productId) {
+        Map<Integer, Integer> products = productsByPart.get(partId);
+        if (products == null) { return; }
+        if (products.merge(productId, -1, Integer::sum) <= 0) { products.remove(productId); }
+        if (products.isEmpty()) { productsByPart.remove(partId); }
+        Map<Integer, Integer> parts = partsByProduct.get(productId);
+        if (parts.merge(partId, -1, Integer::sum) <= 0) { parts.remove(partId); }
+        if (parts.isEmpty()) { partsByProduct.remove(productId); }
+    }
+}
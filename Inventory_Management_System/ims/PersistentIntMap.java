@@ -0,0 +1,245 @@
+package ims;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Persistent int -> value map: every put or remove returns a new map and leaves the old
+ * one untouched, sharing all but the changed path with it.
+ * The map is a bitmapped trie branching on 5 bits of the key per level, 7 levels for 32 bits,
+ * so an update copies at most 7 small nodes however large the map is.
+ *
+ * An edit token allows in-place updates: nodes created under a token are changed in place
+ * by later updates under the same token instead of being copied. Only pass a token while no
+ * map made under it has been handed out, e.g. within one batch of changes, then drop it.
+ * @param <V> - values, compared by identity
+ */
+final class PersistentIntMap<V> implements Iterable<V> {
+    private static final int BITS = 5;
+    private static final int TOP_SHIFT = 30;
+    private static final Object[] NO_SLOTS = new Object[0];
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    /**
+     * Called for every key whose value differs between two maps
+     * @param <V> - values
+     */
+    interface Change<V> {
+        /**
+         * @param key - changed key
+         * @param before - value in the first map, or null if absent
+         * @param after - value in the second map, or null if absent
+         */
+        void changed(int key, V before, V after);
+    }
+
+    /**
+     * Trie node: a bitmap of used branches and one slot per set bit,
+     * holding child nodes above the last level and values on it
+     */
+    private static final class Node {
+        final Object edit;
+        int bitmap;
+        Object[] slots;
+
+        Node(Object edit, int bitmap, Object[] slots) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return map without entries
+     */
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() { return (PersistentIntMap<V>) EMPTY; }
+
+    /**
+     * @return number of entries
+     */
+    int size() { return size; }
+
+    /**
+     * @param key - key to find
+     * @return value of the key, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        Node node = root;
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = bit(key, shift);
+            if ((node.bitmap & bit) == 0) { return null; }
+            Object child = node.slots[index(node.bitmap, bit)];
+            if (shift == 0) { return (V) child; }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    /**
+     * @param key - key to set
+     * @param value - new value, not null
+     * @param edit - edit token, or null to copy every changed node
+     * @return map with the key set, this map if it already held the value or was changed in place
+     */
+    PersistentIntMap<V> put(int key, V value, Object edit) {
+        boolean[] added = new boolean[1];
+        Node updated = put(root, TOP_SHIFT, key, value, edit, added);
+        if (!added[0]) { return updated == root ? this : new PersistentIntMap<>(updated, size); }
+        return new PersistentIntMap<>(updated, size + 1);
+    }
+
+    /**
+     * @param key - key to remove
+     * @param edit - edit token, or null to copy every changed node
+     * @return map without the key, this map if it was absent
+     */
+    PersistentIntMap<V> remove(int key, Object edit) {
+        if (get(key) == null) { return this; }
+        return new PersistentIntMap<>(remove(root, TOP_SHIFT, key, edit), size - 1);
+    }
+
+    /**
+     * @return values in key order; the map never changes, so iterating it is safe on any thread
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            // Node and next slot on each level of the path to the next value
+            private final Node[] path = new Node[TOP_SHIFT / BITS + 1];
+            private final int[] next = new int[path.length];
+            private int level = root == null ? -1 : 0;
+            {
+                path[0] = root;
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() { return level == path.length - 1 && next[level] < path[level].slots.length; }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (!hasNext()) { throw new NoSuchElementException(); }
+                V value = (V) path[level].slots[next[level]++];
+                advance();
+                return value;
+            }
+
+            /**
+             * Walk to the next value, climbing out of finished nodes and down into the next child
+             */
+            private void advance() {
+                while (level >= 0) {
+                    if (next[level] == path[level].slots.length) {
+                        level--;
+                    } else if (level == path.length - 1) {
+                        return;
+                    } else {
+                        Node child = (Node) path[level].slots[next[level]++];
+                        path[++level] = child;
+                        next[level] = 0;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Report every key whose value differs between two maps. Subtrees the maps share are
+     * skipped, so comparing a map with one derived from it costs O(changes * log n).
+     * @param from - first map
+     * @param to - second map
+     * @param change - receives each difference, in key order
+     */
+    static <V> void diff(PersistentIntMap<V> from, PersistentIntMap<V> to, Change<V> change) {
+        diff(from.root, to.root, TOP_SHIFT, 0, change);
+    }
+
+    private static Node put(Node node, int shift, int key, Object value, Object edit, boolean[] added) {
+        int bitmap = node == null ? 0 : node.bitmap;
+        int bit = bit(key, shift);
+        int at = index(bitmap, bit);
+        if ((bitmap & bit) != 0) {
+            Object child = node.slots[at];
+            Object updated = shift == 0 ? value : put((Node) child, shift - BITS, key, value, edit, added);
+            if (updated == child) { return node; }
+            Node editable = editable(node, edit);
+            editable.slots[at] = updated;
+            return editable;
+        }
+        added[0] = true;
+        Object child = shift == 0 ? value : put(null, shift - BITS, key, value, edit, added);
+        Object[] slots = node == null ? NO_SLOTS : node.slots;
+        Object[] grown = new Object[slots.length + 1];
+        System.arraycopy(slots, 0, grown, 0, at);
+        grown[at] = child;
+        System.arraycopy(slots, at, grown, at + 1, slots.length - at);
+        if (node != null && edit != null && node.edit == edit) {
+            node.bitmap |= bit;
+            node.slots = grown;
+            return node;
+        }
+        return new Node(edit, bitmap | bit, grown);
+    }
+
+    /**
+     * @return node without the key, or null once it has no entries left
+     */
+    private static Node remove(Node node, int shift, int key, Object edit) {
+        int bit = bit(key, shift);
+        int at = index(node.bitmap, bit);
+        Object updated = shift == 0 ? null : remove((Node) node.slots[at], shift - BITS, key, edit);
+        if (updated != null) {
+            Node editable = editable(node, edit);
+            editable.slots[at] = updated;
+            return editable;
+        }
+        if (node.slots.length == 1) { return null; }
+        Object[] shrunk = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, shrunk, 0, at);
+        System.arraycopy(node.slots, at + 1, shrunk, at, shrunk.length - at);
+        if (edit != null && node.edit == edit) {
+            node.bitmap &= ~bit;
+            node.slots = shrunk;
+            return node;
+        }
+        return new Node(edit, node.bitmap & ~bit, shrunk);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void diff(Node a, Node b, int shift, int prefix, Change<V> change) {
+        if (a == b) { return; }
+        int bitmapA = a == null ? 0 : a.bitmap;
+        int bitmapB = b == null ? 0 : b.bitmap;
+        for (int branches = bitmapA | bitmapB; branches != 0; branches &= branches - 1) {
+            int bit = branches & -branches;
+            Object childA = (bitmapA & bit) == 0 ? null : a.slots[index(bitmapA, bit)];
+            Object childB = (bitmapB & bit) == 0 ? null : b.slots[index(bitmapB, bit)];
+            int key = prefix | (Integer.numberOfTrailingZeros(bit) << shift);
+            if (shift == 0) {
+                if (childA != childB) { change.changed(key, (V) childA, (V) childB); }
+            } else {
+                diff((Node) childA, (Node) childB, shift - BITS, key, change);
+            }
+        }
+    }
+
+    private static Node editable(Node node, Object edit) {
+        if (edit != null && node.edit == edit) { return node; }
+        return new Node(edit, node.bitmap, node.slots.clone());
+    }
+
+    private static int bit(int key, int shift) { return 1 << ((key >>> shift) & 31); }
+
+    private static int index(int bitmap, int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
+}
@@ -1,19 +1,55 @@
 package ims;
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.FXCollections;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * Product Class to represent a product in inventory
  * Products are comprised of at least one Part.
  */
 public class Product {
+    // Atomic access to stock, so several threads can move stock without locking
+    private static final VarHandle STOCK;
+    private static final VarHandle STOCK_REFRESH;
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Product.class, "stock", int.class);
+            STOCK_REFRESH = MethodHandles.lookup().findVarHandle(Product.class, "stockRefreshPending", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
     private int id;
     private String name;
     private double price;
-    private int stock;
+    private volatile int stock;
     private int max;
     private int min;
+    // Observable values for table cells, created on first use and kept current by the setters
+    private ObjectProperty<Integer> idProperty;
+    private ObjectProperty<String> nameProperty;
+    private ObjectProperty<Double> priceProperty;
+    private volatile ObjectProperty<Integer> stockProperty;
+    // True while a stock change from another thread waits to reach stockProperty
+    private volatile boolean stockRefreshPending;
     public ObservableList<Part> associatedParts = FXCollections.observableArrayList();
+    // Running price total of associated parts in whole cents, kept current by watching the
+    // part list; cents add up exactly, so the total never drifts however often parts change
+    private long partsCostCents;
+    {
+        associatedParts.addListener((ListChangeListener<Part>) change -> {
+            while (change.next()) {
+                for (Part removed : change.getRemoved()) { partsCostCents -= cents(removed.getPrice()); }
+                for (Part added : change.getAddedSubList()) { partsCostCents += cents(added.getPrice()); }
+            }
+        });
+    }
     public Product() {}
     public Product(int id, String name, double price, int stock, int min, int max) {
         this.id = id;
@@ -36,6 +72,9 @@ public class Product {
      */
     public void setId(int id) {
         this.id = id;
+        if (idProperty != null) {
+            idProperty.set(id);
+        }
     }
 
     /**
@@ -50,6 +89,9 @@ public class Product {
      */
     public void setName(String name) {
         this.name = name;
+        if (nameProperty != null) {
+            nameProperty.set(name);
+        }
     }
 
     /**
@@ -64,6 +106,9 @@ public class Product {
      */
     public void setPrice(double price) {
         this.price = price;
+        if (priceProperty != null) {
+            priceProperty.set(price);
+        }
     }
 
     /**
@@ -78,6 +123,102 @@ public class Product {
      */
     public void setStock(int stock) {
         this.stock = stock;
+        refreshStock();
+    }
+
+    /**
+     * Atomically add to the stock, safe to call from many threads at once
+     * @param delta - units built (positive) or shipped (negative)
+     * @return true if applied, false if the stock would leave min..max
+     */
+    public boolean adjustStock(int delta) {
+        while (true) {
+            int current = stock;
+            long updated = (long) current + delta;
+            if (updated < min || updated > max) {
+                return false;
+            }
+            if (STOCK.weakCompareAndSet(this, current, (int) updated)) {
+                refreshStock();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Atomically replace the stock if it still holds the expected value
+     * @param expected - stock the caller last read
+     * @param newStock - stock to set, must be within min..max
+     * @return true if set, false if the stock changed meanwhile or newStock is out of bounds
+     */
+    public boolean compareAndSetStock(int expected, int newStock) {
+        if (newStock < min || newStock > max) {
+            return false;
+        }
+        if (!STOCK.compareAndSet(this, expected, newStock)) {
+            return false;
+        }
+        refreshStock();
+        return true;
+    }
+
+    /**
+     * @return product identifier for table cells, call on the JavaFX thread
+     */
+    public ObservableValue<Integer> idProperty() {
+        if (idProperty == null) {
+            idProperty = new SimpleObjectProperty<>(this, "id", id);
+        }
+        return idProperty;
+    }
+
+    /**
+     * @return product name for table cells, call on the JavaFX thread
+     */
+    public ObservableValue<String> nameProperty() {
+        if (nameProperty == null) {
+            nameProperty = new SimpleObjectProperty<>(this, "name", name);
+        }
+        return nameProperty;
+    }
+
+    /**
+     * @return product price for table cells, call on the JavaFX thread
+     */
+    public ObservableValue<Double> priceProperty() {
+        if (priceProperty == null) {
+            priceProperty = new SimpleObjectProperty<>(this, "price", price);
+        }
+        return priceProperty;
+    }
+
+    /**
+     * @return stocked inventory for table cells, call on the JavaFX thread.
+     * Follows stock changes made from any thread.
+     */
+    public ObservableValue<Integer> stockProperty() {
+        if (stockProperty == null) {
+            stockProperty = new SimpleObjectProperty<>(this, "stock", stock);
+        }
+        return stockProperty;
+    }
+
+    /**
+     * Bring stockProperty up to date. Changes from other threads are handed to the JavaFX
+     * thread, at most one pending hand-off per product however fast the stock moves.
+     */
+    private void refreshStock() {
+        if (stockProperty == null) {
+            return;
+        }
+        if (Platform.isFxApplicationThread()) {
+            stockProperty.set(stock);
+        } else if (STOCK_REFRESH.compareAndSet(this, false, true)) {
+            Platform.runLater(() -> {
+                stockRefreshPending = false;
+                stockProperty.set(stock);
+            });
+        }
     }
 
     /**
@@ -123,9 +264,20 @@ public class Product {
     }
 
     /**
-     * Clear all product's associated parts to allow user to modify
+     * @return sum of the prices of all associated parts
+     */
+    public double getPartsCost() { return partsCostCents / 100.0; }
+
+    /**
+     * @return true if the product costs less than its parts added together, to the cent
+     */
+    public boolean isPricedBelowParts() { return partsCostCents > cents(getPrice()); }
+
+    /**
+     * @param price - price in dollars
+     * @return price rounded to whole cents
      */
-    public void emptyProductPartList() { associatedParts = FXCollections.emptyObservableList(); }
+    private static long cents(double price) { return Math.round(price * 100); }
 
     /**
      * Validation test for specified requirements
@@ -136,30 +288,28 @@ public class Product {
     public void validateProduct() throws IVException {
         // Min should be less than Max
         if (getMin() > getMax()) {
-            throw new IVException("Minimum stock must be less than maximum.");
+            IVException.fail("product.minAboveMax", "Minimum stock must be less than maximum.");
         }
         // Inv should be between Min and Max values
         if (getStock() < getMin() || getStock() > getMax()) {
-            throw new IVException("Inv input must be between min and max.");
+            IVException.fail("product.stockOutOfRange", "Inv input must be between min and max.");
         }
         // Don't leave name blank
         if (getName().isBlank()) {
-            throw new IVException("Product name can not be left blank.");
+            IVException.fail("product.blankName", "Product name can not be left blank.");
         }
         // Don't let min max or inventory stock be 0
         if (getStock() == 0 || getMin() <= 0 || getMax() == 0) {
-            throw new IVException("Min, Max, and Inv should not be 0");
+            IVException.fail("product.zeroField", "Min, Max, and Inv should not be 0");
         }
         // Price must be greater than 0.00
         if (getPrice() < 0.00) {
-            throw new IVException("Product Price must be greater than 0");
+            IVException.fail("product.negativePrice", "Product Price must be greater than 0");
         }
         // Product price must equal or supersede the price of each part added together
-        double productPartsSum = 0;
-        for(Part p : getAssociatedParts()) { productPartsSum += p.getPrice(); }
-
-        if (productPartsSum > getPrice()) {
-            throw new IVException("Product price must be equal to or greater than the sum of it's parts.");
+        if (isPricedBelowParts()) {
+            IVException.fail("product.belowPartsCost",
+                    "Product price must be equal to or greater than the sum of it's parts.");
         }
 
     }
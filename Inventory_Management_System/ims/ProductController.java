@@ -1,11 +1,8 @@
 package ims;
 import static ims.MainController.mainMenu;
 import static ims.MainController.getCurrentProduct;
-import javafx.collections.transformation.FilteredList;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.ObservableList;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.ButtonType;
@@ -21,9 +18,9 @@ import javafx.fxml.FXML;
 /**
  * Product Controller - Controls Add/Modify logic for Product.fxml
  */
-public class ProductController {
-    // Current product in consideration
-    public final Product currentProduct;
+public class ProductController implements ViewCache.Resettable {
+    // Current product in consideration, null when adding a product
+    public Product currentProduct;
     // Text values for product display information
     @FXML
     private Label pageLabel;
@@ -65,6 +62,8 @@ public class ProductController {
     private TableColumn<Part,Double> currentPartsPriceCol;
     @FXML
     private ObservableList<Part> productParts = FXCollections.observableArrayList();
+    // Background part search feeding the parts table
+    private SearchService<Part> partSearch;
 
     /**
      * Product Controller Constructor
@@ -128,17 +127,18 @@ public class ProductController {
             newProduct.setStock(Integer.parseInt(productInv));
             newProduct.setMin(Integer.parseInt(productMin));
             newProduct.setMax(Integer.parseInt(productMax));
-            // When modifying existing product, clear current parts list.
-            if (currentProduct != null) { currentProduct.emptyProductPartList(); }
             // Loop through parts, adding them to product
             for (Part p : productParts) { newProduct.addAssociatedPart(p); }
 
             try {
                 // Ensure product fulfills all requirements
                 newProduct.validateProduct();
+                // Compare with other products only: a modified product keeps its ID, a new one has none yet
+                newProduct.setId(currentProduct != null ? currentProduct.getId() : -1);
+                Inventory.validateProductUnique(newProduct);
                 // If current product doesn't exist, create new product
                 if (currentProduct == null) {
-                    newProduct.setId(Inventory.getInventoryProductCount());
+                    newProduct.setId(Inventory.nextProductId());
                     Inventory.addProduct(newProduct);
                     // If current product exists, update info with new inputs
                 } else {
@@ -182,12 +182,51 @@ public class ProductController {
         // Set placeholder text for empty table
         productPartsTable.setPlaceholder(new Label("No Parts found - or currently available"));
         currentPartsTable.setPlaceholder(new Label("No Parts currently associated with this product"));
+        // All Parts available for product association
+        productPartsIDCol.setCellValueFactory(param -> param.getValue().idProperty());
+        productPartsNameCol.setCellValueFactory(param -> param.getValue().nameProperty());
+        productPartsCol.setCellValueFactory(param -> param.getValue().stockProperty());
+        productPartsPriceCol.setCellValueFactory(param -> param.getValue().priceProperty());
+        // Current Parts associated with product
+        currentPartsIDCol.setCellValueFactory(param -> param.getValue().idProperty());
+        currentPartsNameCol.setCellValueFactory(param -> param.getValue().nameProperty());
+        currentPartsCol.setCellValueFactory(param -> param.getValue().stockProperty());
+        currentPartsPriceCol.setCellValueFactory(param -> param.getValue().priceProperty());
+        // Search parts in the background, publishing matches to the parts table
+        partSearch = new SearchService<>(Inventory.getPartNameIndex(),
+                results -> productPartsTable.setItems(FXCollections.observableArrayList(results)), Platform::runLater);
+        productPartSearch.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue == null || newValue.isEmpty()) {
+                partSearch.cancel();
+                fillParts();
+            } else {
+                partSearch.submit(newValue);
+            }
+        });
+        reset();
+    }
+
+    /**
+     * Switch the cached form to the product now in consideration - Modify Product for a
+     * selected product, an empty Add Product form otherwise
+     */
+    @Override
+    public void reset() {
+        currentProduct = getCurrentProduct();
+        productPartSearch.clear();
         // If product does not yet exist, set page to Add Product
         if (currentProduct == null) {
             pageLabel.setText("Add Product");
-            // Increment Auto Generated ID value based on product count
-            int productCount = Inventory.getInventoryProductCount();
-            productID.setText("Disabled - AUTO GEN: " + productCount);
+            // Preview the Auto Generated ID this product will be given on save
+            int productAutoID = Inventory.peekProductId();
+            productID.setText("Disabled - AUTO GEN: " + productAutoID);
+            // Clear input left over from the last time the form was shown
+            productName.clear();
+            productStock.clear();
+            productPrice.clear();
+            productMin.clear();
+            productMax.clear();
+            productParts = FXCollections.observableArrayList();
         } else {
             // If product is not null, set page to Modify Product, get product values
             pageLabel.setText("Modify Product");
@@ -197,36 +236,11 @@ public class ProductController {
             productPrice.setText(Double.toString(currentProduct.getPrice()));
             productMin.setText(Integer.toString(currentProduct.getMin()));
             productMax.setText(Integer.toString(currentProduct.getMax()));
-            productParts = currentProduct.getAssociatedParts();
+            // Edit a copy: the inventoried product stays as it is in pinned snapshots and undo steps
+            productParts = FXCollections.observableArrayList(currentProduct.getAssociatedParts());
         }
-        // All Parts available for product association
-        productPartsIDCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getId()).asObject());
-        productPartsNameCol.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getName()));
-        productPartsCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getStock()).asObject());
-        productPartsPriceCol.setCellValueFactory(param -> new SimpleDoubleProperty(param.getValue().getPrice()).asObject());
-        // Current Parts associated with product
-        currentPartsIDCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getId()).asObject());
-        currentPartsNameCol.setCellValueFactory(param -> new SimpleStringProperty(param.getValue().getName()));
-        currentPartsCol.setCellValueFactory(param -> new SimpleIntegerProperty(param.getValue().getStock()).asObject());
-        currentPartsPriceCol.setCellValueFactory(param -> new SimpleDoubleProperty(param.getValue().getPrice()).asObject());
         // Populate/Update Table values
         fillParts();
         fillCurrentParts();
-        // Filter for part search
-        FilteredList<Part> filteredProductParts = new FilteredList<>(Inventory.getInventoryParts(), p -> true);
-        productPartSearch.textProperty().addListener((observable, oldValue, newValue) ->
-                filteredProductParts.setPredicate(part -> {
-            if (newValue == null || newValue.isEmpty()) { return true; }
-            String nameValue = newValue.toLowerCase();
-            if (part.getName().toLowerCase().contains(nameValue)) {
-                return true;
-            } else if (Integer.valueOf(part.getId()).toString().equals(newValue)) {
-                return true;
-            } else {
-                return false;
-            }
-        }));
-        // Refresh Parts Table with search filter matches
-        productPartsTable.setItems(filteredProductParts);
     }
 }
@@ -0,0 +1,107 @@
+package ims;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+
+/**
+ * Search Service - runs search bar queries off the JavaFX application thread.
+ * Input is debounced, every new query cancels the one before it, and results of a
+ * superseded query are never published. When a query extends the previous one
+ * (e.g. "whe" -> "whee") and the index has not changed, the previous results are
+ * narrowed instead of searching the whole index again.
+ * Results are handed to the publisher on the JavaFX thread in a single call.
+ * refresh() runs the current query again after the inventory changed, so results stay live.
+ * @param <T> - Part or Product
+ */
+class SearchService<T> {
+    // Quiet time after the last keystroke before a query runs
+    static final long DEBOUNCE_MILLIS = 150;
+    // One background thread shared by every search bar
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ims-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final NameIndex<T> index;
+    private final Consumer<List<T>> publisher;
+    private final Executor fxThread;
+    // Query shown by the publisher, null while the search bar is empty
+    private String query;
+    // Latest submitted query, anything older is stale
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending;
+    // Last completed query, only touched on the search thread
+    private String lastQuery;
+    private List<T> lastResults;
+    private int lastModCount;
+
+    /**
+     * @param index - name index to query
+     * @param publisher - receives results on the JavaFX thread
+     * @param fxThread - runs publications on the JavaFX thread, e.g. Platform::runLater
+     */
+    SearchService(NameIndex<T> index, Consumer<List<T>> publisher, Executor fxThread) {
+        this.index = index;
+        this.publisher = publisher;
+        this.fxThread = fxThread;
+    }
+
+    /**
+     * Schedule a query, replacing any query not yet published. Call on the JavaFX thread.
+     * @param query - search bar input
+     */
+    void submit(String query) {
+        this.query = query;
+        long current = generation.incrementAndGet();
+        if (pending != null) { pending.cancel(true); }
+        pending = executor.schedule(() -> run(query, current), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drop any pending query, e.g. when the search bar is cleared. Call on the JavaFX thread.
+     */
+    void cancel() {
+        query = null;
+        generation.incrementAndGet();
+        if (pending != null) { pending.cancel(true); }
+        pending = null;
+    }
+
+    /**
+     * Run the current query again, if there is one, e.g. after an item was added, renamed
+     * or deleted. Call on the JavaFX thread.
+     */
+    void refresh() {
+        if (query != null) { submit(query); }
+    }
+
+    /**
+     * Run a query on the search thread and publish it unless superseded
+     * @param query - search bar input
+     * @param current - generation the query was submitted under
+     */
+    private void run(String query, long current) {
+        if (current != generation.get()) { return; }
+        int modCount = index.modCount();
+        List<T> results;
+        if (lastQuery != null && modCount == lastModCount
+                && NameIndex.normalize(query).contains(NameIndex.normalize(lastQuery))) {
+            results = index.search(query, lastResults);
+        } else {
+            results = index.search(query);
+        }
+        lastQuery = query;
+        lastResults = results;
+        lastModCount = modCount;
+        if (current != generation.get()) { return; }
+        fxThread.execute(() -> {
+            if (current == generation.get()) { publisher.accept(results); }
+        });
+    }
+}
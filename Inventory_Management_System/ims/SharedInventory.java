@@ -0,0 +1,853 @@
+package ims;
+import javafx.application.Platform;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Shared Inventory - one memory-mapped inventory file used by every Main process on a host.
+ * The file holds a fixed-size slot per part and product ID, a heap for names and associated
+ * part IDs, and a ring of change entries. Writers take a file lock, update the slot, append
+ * a change entry and publish the new change sequence; every process polls the sequence and
+ * applies other processes' changes to its own Inventory on the JavaFX thread, so changes
+ * show up everywhere within a poll interval.
+ * The file is how processes exchange changes and what persists them; it does not replace the
+ * in-memory inventory. Each process still keeps its own Part/Product objects and every index.
+ * IDs are leased from counters in the file, so processes never hand out the same ID.
+ *
+ * Stock is the one field changed in place: the slot's stock is the authoritative value, a
+ * stock change is a CAS on it checked against the slot's min and max, so concurrent deltas
+ * from every process all apply. Processes then copy the slot's stock into their own items.
+ * Stock changes never touch the heap, and publishing a modified item only moves the stock
+ * by CAS from the stock it replaced, so it never overwrites another process's delta.
+ *
+ * The heap is split in two halves and written in the active one. When it fills up, the
+ * strings and part lists of live slots are copied to the other half, which becomes the active
+ * one, so space held by replaced names, part lists and deleted items is reclaimed.
+ *
+ * Layout (little endian):
+ *   header   - magic, version, capacities, change sequence, ID counters, heap top,
+ *              active heap half, heap generation
+ *   parts    - SLOT_SIZE bytes per part ID:
+ *              slot version, live flag, price, id, stock, min, max, type tag,
+ *              machineId or company heap ref, name heap ref
+ *   products - SLOT_SIZE bytes per product ID:
+ *              slot version, live flag, price, id, stock, min, max, name heap ref, part IDs heap ref
+ *   changes  - CHANGE_SIZE bytes per entry: sequence, kind, item ID, writer process
+ *   heap     - strings as [length][UTF-8 bytes], part ID lists as [count][ids]
+ * Slot versions are odd while a slot is written, readers retry until they see an even,
+ * unchanged version.
+ */
+class SharedInventory {
+    static final int DEFAULT_PART_CAPACITY = 1 << 20;
+    static final int DEFAULT_PRODUCT_CAPACITY = 1 << 18;
+    static final int DEFAULT_CHANGE_CAPACITY = 1 << 16;
+    static final int DEFAULT_HEAP_BYTES = 64 << 20;
+    // How often other processes' changes are picked up
+    static final long POLL_MILLIS = 20;
+    private static final int MAGIC = 0x494D5348;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 48;
+    private static final int CHANGE_SIZE = 24;
+    // Header offsets
+    private static final int PART_CAPACITY_AT = 8;
+    private static final int PRODUCT_CAPACITY_AT = 12;
+    private static final int CHANGE_CAPACITY_AT = 16;
+    private static final int HEAP_BYTES_AT = 20;
+    private static final int CHANGE_SEQ_AT = 24;
+    private static final int NEXT_PART_ID_AT = 32;
+    private static final int NEXT_PRODUCT_ID_AT = 36;
+    private static final int HEAP_TOP_AT = 40;
+    private static final int HEAP_HALF_AT = 44;
+    private static final int HEAP_GENERATION_AT = 48;
+    // Change kinds
+    private static final int PART_CHANGED = 1;
+    private static final int PRODUCT_CHANGED = 2;
+    private static final int PART_STOCK_CHANGED = 3;
+    private static final int PRODUCT_STOCK_CHANGED = 4;
+    // Slot offset of the stock field, changed in place by CAS
+    private static final int STOCK_AT = 20;
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int partCapacity;
+    private final int productCapacity;
+    private final int changeCapacity;
+    private final int heapBytes;
+    // Bytes per heap half
+    private final int halfBytes;
+    private final int partsAt;
+    private final int productsAt;
+    private final int changesAt;
+    private final int heapAt;
+    private final int processId = (int) ProcessHandle.current().pid();
+    // Guards writers inside this process, the file lock guards across processes
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Heap refs of strings this process already wrote, so repeated names are stored once.
+    // Only valid for the heap generation they were written in.
+    private final Map<String, Integer> stringRefs = new HashMap<>();
+    private int stringRefsGeneration;
+    private final Thread poller;
+    private volatile boolean running = true;
+    // Last change sequence this process has applied
+    private long seenSeq;
+    // Slot version each item was last read at, only touched by the poller once started
+    private final int[] partVersions;
+    private final int[] productVersions;
+    // True while remote changes are applied, so they are not published back
+    private boolean applyingRemote;
+
+    private SharedInventory(FileChannel channel, MappedByteBuffer map) {
+        this.channel = channel;
+        this.map = map;
+        this.partCapacity = map.getInt(PART_CAPACITY_AT);
+        this.productCapacity = map.getInt(PRODUCT_CAPACITY_AT);
+        this.changeCapacity = map.getInt(CHANGE_CAPACITY_AT);
+        this.heapBytes = map.getInt(HEAP_BYTES_AT);
+        this.halfBytes = heapBytes / 2;
+        this.partsAt = HEADER_SIZE;
+        this.productsAt = partsAt + partCapacity * SLOT_SIZE;
+        this.changesAt = productsAt + productCapacity * SLOT_SIZE;
+        this.heapAt = changesAt + changeCapacity * CHANGE_SIZE;
+        this.partVersions = new int[partCapacity];
+        this.productVersions = new int[productCapacity];
+        this.poller = new Thread(this::pollLoop, "ims-shared-inventory");
+        this.poller.setDaemon(true);
+    }
+
+    /**
+     * Map the shared inventory file, creating it with default capacities if needed
+     * @param file - shared inventory file
+     * @return attached shared inventory, not yet loaded
+     * @throws IOException - file could not be created or mapped
+     */
+    static SharedInventory attach(Path file) throws IOException {
+        return attach(file, DEFAULT_PART_CAPACITY, DEFAULT_PRODUCT_CAPACITY, DEFAULT_CHANGE_CAPACITY, DEFAULT_HEAP_BYTES);
+    }
+
+    /**
+     * Map the shared inventory file, creating it with the given capacities if needed.
+     * An existing file keeps the capacities it was created with.
+     */
+    static SharedInventory attach(Path file, int partCapacity, int productCapacity,
+                                  int changeCapacity, int heapBytes) throws IOException {
+        long size = HEADER_SIZE + (long) (partCapacity + productCapacity) * SLOT_SIZE
+                + (long) changeCapacity * CHANGE_SIZE + heapBytes;
+        if (size > Integer.MAX_VALUE) { throw new IOException("Shared inventory too large to map: " + size); }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock = channel.lock();
+        try {
+            if (channel.size() == 0) {
+                MappedByteBuffer init = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                init.order(ByteOrder.LITTLE_ENDIAN);
+                init.putInt(PART_CAPACITY_AT, partCapacity);
+                init.putInt(PRODUCT_CAPACITY_AT, productCapacity);
+                init.putInt(CHANGE_CAPACITY_AT, changeCapacity);
+                init.putInt(HEAP_BYTES_AT, heapBytes);
+                init.putInt(4, VERSION);
+                init.putInt(0, MAGIC);
+                init.force();
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException("Not a shared inventory file: " + file);
+            }
+            return new SharedInventory(channel, map);
+        } finally {
+            if (channel.isOpen()) { lock.release(); }
+        }
+    }
+
+    /**
+     * Load every live part and product into Inventory and start following other processes' changes
+     */
+    void start() {
+        List<Part> parts = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        Map<Integer, Part> partsById = new HashMap<>();
+        seenSeq = (long) LONGS.getAcquire(map, CHANGE_SEQ_AT);
+        for (int id = 0; id < partCapacity; id++) {
+            partVersions[id] = stableVersion(partsAt + id * SLOT_SIZE);
+            Part part = readPart(id);
+            if (part != null) {
+                parts.add(part);
+                partsById.put(id, part);
+            }
+        }
+        for (int id = 0; id < productCapacity; id++) {
+            productVersions[id] = stableVersion(productsAt + id * SLOT_SIZE);
+            Product product = readProduct(id, partsById::get);
+            if (product != null) { products.add(product); }
+        }
+        Inventory.loadParts(parts);
+        Inventory.loadProducts(products);
+        poller.start();
+    }
+
+    /**
+     * Lease a block of part IDs from the shared counter
+     * @param size - number of IDs
+     * @return first ID of the block
+     */
+    int leasePartIds(int size) { return (int) INTS.getAndAdd(map, NEXT_PART_ID_AT, size); }
+
+    /**
+     * Lease a block of product IDs from the shared counter
+     * @param size - number of IDs
+     * @return first ID of the block
+     */
+    int leaseProductIds(int size) { return (int) INTS.getAndAdd(map, NEXT_PRODUCT_ID_AT, size); }
+
+    /**
+     * @return true while changes from other processes are being applied on this thread
+     */
+    boolean isApplyingRemote() { return applyingRemote; }
+
+    /**
+     * Atomically move a part's stock in its slot, whichever process changes it meanwhile
+     * @param partId - id of part
+     * @param delta - units received (positive) or taken out (negative)
+     * @return true if applied, false if the slot is free or the stock would leave its min..max
+     */
+    boolean adjustPartStock(int partId, int delta) {
+        return adjustStock(slotOf(partsAt, partCapacity, partId), delta, PART_STOCK_CHANGED, partId);
+    }
+
+    /**
+     * Atomically set a part's stock in its slot if it still holds the expected value
+     * @param partId - id of part
+     * @param expected - stock the caller last read
+     * @param newStock - stock to set, must be within the slot's min..max
+     * @return true if set, false if the slot is free, its stock changed meanwhile or newStock is out of bounds
+     */
+    boolean compareAndSetPartStock(int partId, int expected, int newStock) {
+        return compareAndSetStock(slotOf(partsAt, partCapacity, partId), expected, newStock, PART_STOCK_CHANGED, partId);
+    }
+
+    /**
+     * @param partId - id of part
+     * @return stock held in the part's slot
+     */
+    int partStock(int partId) { return (int) INTS.getVolatile(map, slotOf(partsAt, partCapacity, partId) + STOCK_AT); }
+
+    /**
+     * Atomically move a product's stock in its slot, whichever process changes it meanwhile
+     * @param productId - id of product
+     * @param delta - units built (positive) or shipped (negative)
+     * @return true if applied, false if the slot is free or the stock would leave its min..max
+     */
+    boolean adjustProductStock(int productId, int delta) {
+        return adjustStock(slotOf(productsAt, productCapacity, productId), delta, PRODUCT_STOCK_CHANGED, productId);
+    }
+
+    /**
+     * Atomically set a product's stock in its slot if it still holds the expected value
+     * @param productId - id of product
+     * @param expected - stock the caller last read
+     * @param newStock - stock to set, must be within the slot's min..max
+     * @return true if set, false if the slot is free, its stock changed meanwhile or newStock is out of bounds
+     */
+    boolean compareAndSetProductStock(int productId, int expected, int newStock) {
+        return compareAndSetStock(slotOf(productsAt, productCapacity, productId), expected, newStock,
+                PRODUCT_STOCK_CHANGED, productId);
+    }
+
+    /**
+     * @param productId - id of product
+     * @return stock held in the product's slot
+     */
+    int productStock(int productId) {
+        return (int) INTS.getVolatile(map, slotOf(productsAt, productCapacity, productId) + STOCK_AT);
+    }
+
+    /**
+     * Write a part to its slot and announce the change. A free slot takes the part's stock;
+     * a live one keeps its stock unless the part's differs from the replaced part's, then it
+     * is moved by CAS from the replaced stock, which fails if another change got there first.
+     * Call before changing Inventory: a part the file cannot hold throws IllegalStateException.
+     * @param part - added or modified part
+     * @param replaced - part it replaces, null for an added part
+     * @return true if the slot now holds the part's stock, false if it kept another
+     */
+    boolean publishPart(Part part, Part replaced) {
+        int slot = slotOf(partsAt, partCapacity, part.getId());
+        boolean[] stockSet = new boolean[1];
+        write(() -> {
+            int nameRef = writeString(part.getName());
+            int type;
+            int aux;
+            if (part instanceof PartInHouse) {
+                type = InventoryCodec.IN_HOUSE;
+                aux = ((PartInHouse) part).getMachineID();
+            } else {
+                type = InventoryCodec.OUTSOURCED;
+                aux = writeString(((PartOutsourced) part).getCompanyName());
+            }
+            beginSlot(slot);
+            stockSet[0] = publishStock(slot, part.getStock(), replaced == null ? null : replaced.getStock());
+            map.putInt(slot + 4, 1);
+            map.putDouble(slot + 8, part.getPrice());
+            map.putInt(slot + 16, part.getId());
+            map.putInt(slot + 24, part.getMin());
+            map.putInt(slot + 28, part.getMax());
+            map.putInt(slot + 32, type);
+            map.putInt(slot + 36, aux);
+            map.putInt(slot + 40, nameRef);
+            endSlot(slot);
+        }, PART_CHANGED, part.getId());
+        return stockSet[0];
+    }
+
+    /**
+     * Write a product to its slot and announce the change, its stock as in publishPart.
+     * The part ID list already in the slot is kept if the product's parts are the same.
+     * @param product - added or modified product
+     * @param replaced - product it replaces, null for an added product
+     * @return true if the slot now holds the product's stock, false if it kept another
+     */
+    boolean publishProduct(Product product, Product replaced) {
+        int slot = slotOf(productsAt, productCapacity, product.getId());
+        boolean[] stockSet = new boolean[1];
+        write(() -> {
+            int nameRef = writeString(product.getName());
+            int partsRef = map.getInt(slot + 4) != 0 && samePartIds(map.getInt(slot + 36), product.getAssociatedParts())
+                    ? map.getInt(slot + 36)
+                    : writePartIds(product.getAssociatedParts());
+            beginSlot(slot);
+            stockSet[0] = publishStock(slot, product.getStock(), replaced == null ? null : replaced.getStock());
+            map.putInt(slot + 4, 1);
+            map.putDouble(slot + 8, product.getPrice());
+            map.putInt(slot + 16, product.getId());
+            map.putInt(slot + 24, product.getMin());
+            map.putInt(slot + 28, product.getMax());
+            map.putInt(slot + 32, nameRef);
+            map.putInt(slot + 36, partsRef);
+            endSlot(slot);
+        }, PRODUCT_CHANGED, product.getId());
+        return stockSet[0];
+    }
+
+    /**
+     * Set the stock of a slot being published. Caller holds both locks, so the slot's live
+     * flag is stable, but its stock may still move under a concurrent CAS.
+     * @param stock - stock of the published item
+     * @param replacedStock - stock of the item it replaces, null for an added item
+     * @return true if the slot now holds stock
+     */
+    private boolean publishStock(int slot, int stock, Integer replacedStock) {
+        if (map.getInt(slot + 4) == 0) {
+            INTS.setVolatile(map, slot + STOCK_AT, stock);
+            return true;
+        }
+        if (replacedStock == null || replacedStock == stock) { return (int) INTS.getVolatile(map, slot + STOCK_AT) == stock; }
+        return INTS.compareAndSet(map, slot + STOCK_AT, replacedStock, stock);
+    }
+
+    /**
+     * Mark a part's slot free and announce the change
+     * @param partId - id of deleted part
+     */
+    void publishPartDeletion(int partId) {
+        int slot = slotOf(partsAt, partCapacity, partId);
+        write(() -> {
+            beginSlot(slot);
+            map.putInt(slot + 4, 0);
+            endSlot(slot);
+        }, PART_CHANGED, partId);
+    }
+
+    /**
+     * Mark a product's slot free and announce the change
+     * @param productId - id of deleted product
+     */
+    void publishProductDeletion(int productId) {
+        int slot = slotOf(productsAt, productCapacity, productId);
+        write(() -> {
+            beginSlot(slot);
+            map.putInt(slot + 4, 0);
+            endSlot(slot);
+        }, PRODUCT_CHANGED, productId);
+    }
+
+    /**
+     * Stop following changes, flush the mapping and release the file
+     * @throws IOException - file could not be closed
+     */
+    void close() throws IOException {
+        running = false;
+        LockSupport.unpark(poller);
+        try {
+            poller.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        map.force();
+        channel.close();
+    }
+
+    /**
+     * CAS a slot's stock by a delta within the slot's min..max, then announce the change
+     */
+    private boolean adjustStock(int slot, int delta, int kind, int id) {
+        while (true) {
+            int current = (int) INTS.getVolatile(map, slot + STOCK_AT);
+            long updated = (long) current + delta;
+            if (map.getInt(slot + 4) == 0 || updated < map.getInt(slot + 24) || updated > map.getInt(slot + 28)) {
+                return false;
+            }
+            if (INTS.compareAndSet(map, slot + STOCK_AT, current, (int) updated)) { break; }
+        }
+        write(null, kind, id);
+        return true;
+    }
+
+    /**
+     * CAS a slot's stock from an expected value to one within the slot's min..max, then announce the change
+     */
+    private boolean compareAndSetStock(int slot, int expected, int newStock, int kind, int id) {
+        if (map.getInt(slot + 4) == 0 || newStock < map.getInt(slot + 24) || newStock > map.getInt(slot + 28)) {
+            return false;
+        }
+        if (!INTS.compareAndSet(map, slot + STOCK_AT, expected, newStock)) { return false; }
+        write(null, kind, id);
+        return true;
+    }
+
+    /**
+     * Run a slot update under the in-process and file locks, then append a change entry
+     * and publish the new change sequence. An update that finds the heap full is run once
+     * more after the heap is compacted.
+     * @param update - slot update, or null to only announce a change made in place
+     */
+    private void write(Runnable update, int kind, int id) {
+        writeLock.lock();
+        try {
+            FileLock lock = channel.lock(0, HEADER_SIZE, false);
+            try {
+                if (update != null) { runCompacting(update); }
+                long seq = (long) LONGS.getAcquire(map, CHANGE_SEQ_AT) + 1;
+                int entry = changesAt + (int) ((seq - 1) % changeCapacity) * CHANGE_SIZE;
+                map.putInt(entry + 8, kind);
+                map.putInt(entry + 12, id);
+                map.putInt(entry + 16, processId);
+                LONGS.setRelease(map, entry, seq);
+                LONGS.setRelease(map, CHANGE_SEQ_AT, seq);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not lock shared inventory", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Run an update, compacting the heap and running it again if the heap was full.
+     * Heap space the first run allocated is left behind in the old half.
+     */
+    private void runCompacting(Runnable update) {
+        int generation = map.getInt(HEAP_GENERATION_AT);
+        if (generation != stringRefsGeneration) {
+            // Another process compacted the heap, cached refs point into the old half
+            stringRefs.clear();
+            stringRefsGeneration = generation;
+        }
+        try {
+            update.run();
+        } catch (HeapFull full) {
+            compact();
+            try {
+                update.run();
+            } catch (HeapFull stillFull) {
+                throw new IllegalStateException("Shared inventory heap is full");
+            }
+        }
+    }
+
+    /**
+     * Copy the strings and part lists of every live slot to the other heap half and point
+     * the slots at the copies. Readers of a moved slot see its version change and retry.
+     * Caller holds both locks.
+     */
+    private void compact() {
+        Map<Integer, Integer> moved = new HashMap<>();
+        int live = 0;
+        for (int id = 0; id < partCapacity; id++) {
+            int slot = partsAt + id * SLOT_SIZE;
+            if (map.getInt(slot + 4) == 0) { continue; }
+            live += sizeOnce(moved, map.getInt(slot + 40), 1);
+            if (map.getInt(slot + 32) != InventoryCodec.IN_HOUSE) { live += sizeOnce(moved, map.getInt(slot + 36), 1); }
+        }
+        for (int id = 0; id < productCapacity; id++) {
+            int slot = productsAt + id * SLOT_SIZE;
+            if (map.getInt(slot + 4) == 0) { continue; }
+            live += sizeOnce(moved, map.getInt(slot + 32), 1);
+            live += sizeOnce(moved, map.getInt(slot + 36), Integer.BYTES);
+        }
+        // Leave everything as it was when the live data alone would not fit
+        if (live > halfBytes) { throw new HeapFull(); }
+        int half = 1 - map.getInt(HEAP_HALF_AT);
+        map.putInt(HEAP_HALF_AT, half);
+        map.putInt(HEAP_TOP_AT, half * halfBytes);
+        moved.clear();
+        for (int id = 0; id < partCapacity; id++) {
+            int slot = partsAt + id * SLOT_SIZE;
+            if (map.getInt(slot + 4) == 0) { continue; }
+            int nameRef = move(moved, map.getInt(slot + 40), 1);
+            int aux = map.getInt(slot + 32) == InventoryCodec.IN_HOUSE
+                    ? map.getInt(slot + 36) : move(moved, map.getInt(slot + 36), 1);
+            beginSlot(slot);
+            map.putInt(slot + 36, aux);
+            map.putInt(slot + 40, nameRef);
+            endSlot(slot);
+        }
+        for (int id = 0; id < productCapacity; id++) {
+            int slot = productsAt + id * SLOT_SIZE;
+            if (map.getInt(slot + 4) == 0) { continue; }
+            int nameRef = move(moved, map.getInt(slot + 32), 1);
+            int partsRef = move(moved, map.getInt(slot + 36), Integer.BYTES);
+            beginSlot(slot);
+            map.putInt(slot + 32, nameRef);
+            map.putInt(slot + 36, partsRef);
+            endSlot(slot);
+        }
+        stringRefs.clear();
+        stringRefsGeneration = map.getInt(HEAP_GENERATION_AT) + 1;
+        map.putInt(HEAP_GENERATION_AT, stringRefsGeneration);
+    }
+
+    /**
+     * @param counted - refs already counted, shared strings are copied once
+     * @param unit - bytes per element: 1 for strings, 4 for part ID lists
+     * @return heap bytes of the entry at ref if not counted yet, else 0
+     */
+    private int sizeOnce(Map<Integer, Integer> counted, int ref, int unit) {
+        if (counted.putIfAbsent(ref, ref) != null) { return 0; }
+        return Integer.BYTES + map.getInt(heapAt + ref) * unit;
+    }
+
+    /**
+     * Copy a heap entry to the active half, once however many slots refer to it
+     * @param unit - bytes per element: 1 for strings, 4 for part ID lists
+     * @return ref of the copy
+     */
+    private int move(Map<Integer, Integer> moved, int ref, int unit) {
+        Integer done = moved.get(ref);
+        if (done != null) { return done; }
+        int bytes = Integer.BYTES + map.getInt(heapAt + ref) * unit;
+        int at = allocate(bytes);
+        map.put(heapAt + at, map, heapAt + ref, bytes);
+        moved.put(ref, at);
+        return at;
+    }
+
+    private void beginSlot(int slot) { INTS.getAndAdd(map, slot, 1); }
+
+    private void endSlot(int slot) { INTS.getAndAdd(map, slot, 1); }
+
+    private int slotOf(int sectionAt, int capacity, int id) {
+        if (id < 0 || id >= capacity) {
+            throw new IllegalStateException("ID " + id + " exceeds shared inventory capacity " + capacity);
+        }
+        return sectionAt + id * SLOT_SIZE;
+    }
+
+    /**
+     * Append a string to the heap, or reuse the copy this process wrote before
+     * @return heap ref of the string
+     */
+    private int writeString(String s) {
+        String value = s == null ? "" : s;
+        Integer ref = stringRefs.get(value);
+        if (ref != null) { return ref; }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int at = allocate(Integer.BYTES + bytes.length);
+        map.putInt(heapAt + at, bytes.length);
+        map.put(heapAt + at + Integer.BYTES, bytes);
+        stringRefs.put(value, at);
+        return at;
+    }
+
+    private boolean samePartIds(int ref, List<Part> parts) {
+        if (map.getInt(heapAt + ref) != parts.size()) { return false; }
+        for (int i = 0; i < parts.size(); i++) {
+            if (map.getInt(heapAt + ref + Integer.BYTES * (i + 1)) != parts.get(i).getId()) { return false; }
+        }
+        return true;
+    }
+
+    private int writePartIds(List<Part> parts) {
+        int at = allocate(Integer.BYTES * (parts.size() + 1));
+        map.putInt(heapAt + at, parts.size());
+        for (int i = 0; i < parts.size(); i++) { map.putInt(heapAt + at + Integer.BYTES * (i + 1), parts.get(i).getId()); }
+        return at;
+    }
+
+    /**
+     * Take space from the active heap half
+     * @return heap ref of the space
+     * @throws HeapFull - the active half has no room left
+     */
+    private int allocate(int bytes) {
+        int top = map.getInt(HEAP_TOP_AT);
+        if ((long) top + bytes > (long) (map.getInt(HEAP_HALF_AT) + 1) * halfBytes) { throw new HeapFull(); }
+        map.putInt(HEAP_TOP_AT, top + bytes);
+        return top;
+    }
+
+    /**
+     * The active heap half is full, thrown to the update that needs space so write can
+     * compact the heap and run it again
+     */
+    private static final class HeapFull extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        HeapFull() { super("Shared inventory heap half is full", null, false, false); }
+    }
+
+    /**
+     * Read a heap string. The ref may be torn by a concurrent writer, so its length is
+     * checked against the heap before anything is allocated.
+     */
+    private String readString(int ref) {
+        int length = map.getInt(heapAt + ref);
+        if (length < 0 || (long) ref + Integer.BYTES + length > heapBytes) { throw new IndexOutOfBoundsException(ref); }
+        byte[] bytes = new byte[length];
+        map.get(heapAt + ref + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a consistent copy of a part slot
+     * @return part, or null if the slot is free
+     */
+    private Part readPart(int id) {
+        int slot = partsAt + id * SLOT_SIZE;
+        while (true) {
+            int version = (int) INTS.getAcquire(map, slot);
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Part part = null;
+            try {
+                if (map.getInt(slot + 4) != 0) {
+                    if (map.getInt(slot + 32) == InventoryCodec.IN_HOUSE) {
+                        PartInHouse inHouse = new PartInHouse();
+                        inHouse.setMachineId(map.getInt(slot + 36));
+                        part = inHouse;
+                    } else {
+                        PartOutsourced outsourced = new PartOutsourced();
+                        outsourced.setCompanyName(readString(map.getInt(slot + 36)));
+                        part = outsourced;
+                    }
+                    part.setPrice(map.getDouble(slot + 8));
+                    part.setId(map.getInt(slot + 16));
+                    part.setStock((int) INTS.getVolatile(map, slot + STOCK_AT));
+                    part.setMin(map.getInt(slot + 24));
+                    part.setMax(map.getInt(slot + 28));
+                    part.setName(readString(map.getInt(slot + 40)));
+                }
+            } catch (IndexOutOfBoundsException torn) {
+                // Refs read while the slot was rewritten, the version check below retries
+                if ((int) INTS.getAcquire(map, slot) == version) { throw torn; }
+                continue;
+            }
+            if ((int) INTS.getAcquire(map, slot) == version) { return part; }
+        }
+    }
+
+    /**
+     * Read a consistent copy of a product slot
+     * @param partOf - resolves the parts to attach by ID, null for an unknown ID
+     * @return product, or null if the slot is free
+     */
+    private Product readProduct(int id, IntFunction<Part> partOf) {
+        int slot = productsAt + id * SLOT_SIZE;
+        while (true) {
+            int version = (int) INTS.getAcquire(map, slot);
+            if ((version & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Product product = null;
+            List<Integer> partIds = new ArrayList<>();
+            try {
+                if (map.getInt(slot + 4) != 0) {
+                    product = new Product();
+                    product.setPrice(map.getDouble(slot + 8));
+                    product.setId(map.getInt(slot + 16));
+                    product.setStock((int) INTS.getVolatile(map, slot + STOCK_AT));
+                    product.setMin(map.getInt(slot + 24));
+                    product.setMax(map.getInt(slot + 28));
+                    product.setName(readString(map.getInt(slot + 32)));
+                    int ref = map.getInt(slot + 36);
+                    int count = map.getInt(heapAt + ref);
+                    if (count < 0 || ref + Integer.BYTES * (count + 1L) > heapBytes) { throw new IndexOutOfBoundsException(ref); }
+                    for (int i = 0; i < count; i++) { partIds.add(map.getInt(heapAt + ref + Integer.BYTES * (i + 1))); }
+                }
+            } catch (IndexOutOfBoundsException torn) {
+                // Refs read while the slot was rewritten, the version check below retries
+                if ((int) INTS.getAcquire(map, slot) == version) { throw torn; }
+                continue;
+            }
+            if ((int) INTS.getAcquire(map, slot) != version) { continue; }
+            if (product != null) {
+                List<Part> parts = new ArrayList<>(partIds.size());
+                for (int partId : partIds) {
+                    Part part = partOf.apply(partId);
+                    if (part != null) { parts.add(part); }
+                }
+                product.getAssociatedParts().addAll(parts);
+            }
+            return product;
+        }
+    }
+
+    /**
+     * Poller thread: collect other processes' changes since the last poll and apply them
+     */
+    private void pollLoop() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS));
+            long seq = (long) LONGS.getAcquire(map, CHANGE_SEQ_AT);
+            if (seq == seenSeq) { continue; }
+            // Latest change kind per item, in order of first appearance
+            Map<Long, Integer> changed = new LinkedHashMap<>();
+            boolean lapped = seq - seenSeq > changeCapacity;
+            for (long s = seenSeq + 1; s <= seq && !lapped; s++) {
+                int entry = changesAt + (int) ((s - 1) % changeCapacity) * CHANGE_SIZE;
+                if ((long) LONGS.getAcquire(map, entry) != s) {
+                    lapped = true;
+                } else if (map.getInt(entry + 16) != processId) {
+                    int kind = map.getInt(entry + 8);
+                    changed.put(((long) kind << 32) | map.getInt(entry + 12), kind);
+                }
+            }
+            seenSeq = seq;
+            if (lapped) {
+                // Fell behind the change ring: find the slots that changed since they were last
+                // read here, so the JavaFX thread only applies those
+                changed.clear();
+                for (int id = 0; id < partCapacity; id++) {
+                    Part shown = Inventory.lookupPart(id);
+                    int kind = missedChange(partsAt + id * SLOT_SIZE, partVersions[id], shown == null ? null : shown.getStock(),
+                            PART_CHANGED, PART_STOCK_CHANGED);
+                    if (kind != 0) { changed.put(((long) kind << 32) | id, kind); }
+                }
+                for (int id = 0; id < productCapacity; id++) {
+                    Product shown = Inventory.lookupProduct(id);
+                    int kind = missedChange(productsAt + id * SLOT_SIZE, productVersions[id], shown == null ? null : shown.getStock(),
+                            PRODUCT_CHANGED, PRODUCT_STOCK_CHANGED);
+                    if (kind != 0) { changed.put(((long) kind << 32) | id, kind); }
+                }
+            }
+            List<Runnable> updates = new ArrayList<>();
+            for (long key : changed.keySet()) {
+                int id = (int) key;
+                switch ((int) (key >>> 32)) {
+                    case PART_CHANGED:
+                        // Recorded before the read, so the version kept is never newer than the part applied
+                        partVersions[id] = stableVersion(partsAt + id * SLOT_SIZE);
+                        Part part = readPart(id);
+                        updates.add(() -> applyPart(id, part));
+                        break;
+                    case PRODUCT_CHANGED:
+                        productVersions[id] = stableVersion(productsAt + id * SLOT_SIZE);
+                        updates.add(() -> applyProduct(id));
+                        break;
+                    case PART_STOCK_CHANGED:
+                        updates.add(() -> Inventory.followSharedPartStock(id));
+                        break;
+                    default:
+                        updates.add(() -> Inventory.followSharedProductStock(id));
+                        break;
+                }
+            }
+            if (updates.isEmpty()) { continue; }
+            Platform.runLater(() -> {
+                applyingRemote = true;
+                Inventory.beginBatch();
+                try {
+                    for (Runnable update : updates) { update.run(); }
+                } finally {
+                    Inventory.commit();
+                    applyingRemote = false;
+                }
+            });
+        }
+    }
+
+    /**
+     * Compare a slot with what this process last read of it, after the change ring lapped
+     * @param seenVersion - slot version last read
+     * @param shownStock - stock of the item in Inventory, null if there is none
+     * @return kind of change to apply, or 0 for none
+     */
+    private int missedChange(int slot, int seenVersion, Integer shownStock, int changedKind, int stockKind) {
+        if (stableVersion(slot) != seenVersion) { return changedKind; }
+        boolean live = map.getInt(slot + 4) != 0;
+        if (live && shownStock != null && (int) INTS.getVolatile(map, slot + STOCK_AT) != shownStock) { return stockKind; }
+        return 0;
+    }
+
+    /**
+     * @return slot version once no writer holds the slot
+     */
+    private int stableVersion(int slot) {
+        while (true) {
+            int version = (int) INTS.getAcquire(map, slot);
+            if ((version & 1) == 0) { return version; }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void applyPart(int id, Part part) {
+        if (part == null) {
+            Inventory.deletePart(id);
+        } else if (Inventory.lookupPart(id) != null) {
+            Inventory.modifyPart(part);
+        } else {
+            Inventory.addPart(part);
+        }
+    }
+
+    /**
+     * Products are read on the JavaFX thread so their parts resolve against current inventory
+     */
+    private void applyProduct(int id) {
+        Product product = readProduct(id, Inventory::lookupPart);
+        if (product == null) {
+            Inventory.deleteProduct(id);
+        } else if (Inventory.lookupProduct(id) != null) {
+            Inventory.modifyProduct(product);
+        } else {
+            Inventory.addProduct(product);
+        }
+    }
+}
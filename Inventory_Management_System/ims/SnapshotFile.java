@@ -0,0 +1,244 @@
+package ims;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Fixed-layout binary inventory snapshot, read through a memory-mapped file.
+ * Layout (little endian):
+ *   header   - magic, version, journal sequence, counts and section offsets
+ *   parts    - one PART_RECORD_SIZE record per part:
+ *              price, id, stock, min, max, type tag, machineId or company string, name string
+ *   products - one PRODUCT_RECORD_SIZE record per product:
+ *              price, id, stock, min, max, name string, first associated part ID, part ID count
+ *   part IDs - associated part IDs of all products, back to back
+ *   strings  - end offsets of every string, then their UTF-8 bytes.
+ *              Each distinct name/company is stored once, so repeated company names cost 4 bytes.
+ * Records are decoded with absolute reads straight from the mapping, in parallel, without
+ * parsing a stream object by object.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x494D5332;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    static final int PART_RECORD_SIZE = 40;
+    static final int PRODUCT_RECORD_SIZE = 40;
+
+    private SnapshotFile() {}
+
+    /**
+     * Write a snapshot to a temporary file, sync it and move it into place
+     * @param file - snapshot file
+     * @param seq - last journal sequence included in the snapshot
+     * @param parts - all parts
+     * @param products - all products
+     */
+    static void write(Path file, long seq, List<Part> parts, List<Product> products) throws IOException {
+        // Build the string table first so every record can refer to it by index
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        long partIdCount = 0;
+        for (Part part : parts) {
+            intern(part.getName(), stringIds, strings);
+            if (part instanceof PartOutsourced) {
+                intern(((PartOutsourced) part).getCompanyName(), stringIds, strings);
+            }
+        }
+        for (Product product : products) {
+            intern(product.getName(), stringIds, strings);
+            partIdCount += product.getAssociatedParts().size();
+        }
+        long partsOffset = HEADER_SIZE;
+        long productsOffset = partsOffset + (long) parts.size() * PART_RECORD_SIZE;
+        long partIdsOffset = productsOffset + (long) products.size() * PRODUCT_RECORD_SIZE;
+        long stringsOffset = partIdsOffset + partIdCount * Integer.BYTES;
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(seq)
+                    .putInt(parts.size()).putInt(products.size()).putInt(strings.size()).putInt(0)
+                    .putLong(partsOffset).putLong(productsOffset).putLong(partIdsOffset).putLong(stringsOffset);
+            buffer.position(HEADER_SIZE);
+            for (Part part : parts) {
+                ensure(channel, buffer, PART_RECORD_SIZE);
+                buffer.putDouble(part.getPrice()).putInt(part.getId()).putInt(part.getStock())
+                        .putInt(part.getMin()).putInt(part.getMax());
+                if (part instanceof PartInHouse) {
+                    buffer.putInt(InventoryCodec.IN_HOUSE).putInt(((PartInHouse) part).getMachineID());
+                } else {
+                    buffer.putInt(InventoryCodec.OUTSOURCED)
+                            .putInt(stringIds.get(nullToEmpty(((PartOutsourced) part).getCompanyName())));
+                }
+                buffer.putInt(stringIds.get(nullToEmpty(part.getName()))).putInt(0);
+            }
+            int firstPartId = 0;
+            for (Product product : products) {
+                ensure(channel, buffer, PRODUCT_RECORD_SIZE);
+                int partCount = product.getAssociatedParts().size();
+                buffer.putDouble(product.getPrice()).putInt(product.getId()).putInt(product.getStock())
+                        .putInt(product.getMin()).putInt(product.getMax())
+                        .putInt(stringIds.get(nullToEmpty(product.getName())))
+                        .putInt(firstPartId).putInt(partCount).putInt(0);
+                firstPartId += partCount;
+            }
+            for (Product product : products) {
+                for (Part part : product.getAssociatedParts()) {
+                    ensure(channel, buffer, Integer.BYTES);
+                    buffer.putInt(part.getId());
+                }
+            }
+            int end = 0;
+            for (byte[] s : strings) {
+                ensure(channel, buffer, Integer.BYTES);
+                end += s.length;
+                buffer.putInt(end);
+            }
+            for (byte[] s : strings) {
+                int written = 0;
+                while (written < s.length) {
+                    ensure(channel, buffer, 1);
+                    int n = Math.min(buffer.remaining(), s.length - written);
+                    buffer.put(s, written, n);
+                    written += n;
+                }
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map a snapshot and load its parts and products into Inventory
+     * @param file - snapshot file
+     * @return last journal sequence included in the snapshot, 0 when there is none
+     */
+    static long load(Path file) throws IOException {
+        if (!Files.exists(file)) { return 0; }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not an inventory snapshot: " + file);
+            }
+            long seq = header.getLong(8);
+            int partCount = header.getInt(16);
+            int productCount = header.getInt(20);
+            int stringCount = header.getInt(24);
+            long partsOffset = header.getLong(32);
+            long productsOffset = header.getLong(40);
+            long partIdsOffset = header.getLong(48);
+            long stringsOffset = header.getLong(56);
+
+            // Decode each distinct string once
+            ByteBuffer stringEnds = map(channel, stringsOffset, (long) stringCount * Integer.BYTES);
+            long blobOffset = stringsOffset + (long) stringCount * Integer.BYTES;
+            ByteBuffer blob = map(channel, blobOffset, channel.size() - blobOffset);
+            String[] strings = new String[stringCount];
+            Arrays.parallelSetAll(strings, i -> {
+                int start = i == 0 ? 0 : stringEnds.getInt((i - 1) * Integer.BYTES);
+                int end = stringEnds.getInt(i * Integer.BYTES);
+                byte[] bytes = new byte[end - start];
+                blob.get(start, bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            });
+
+            ByteBuffer partRecords = map(channel, partsOffset, (long) partCount * PART_RECORD_SIZE);
+            Part[] parts = new Part[partCount];
+            Arrays.parallelSetAll(parts, i -> readPart(partRecords, i * PART_RECORD_SIZE, strings));
+            Inventory.loadParts(Arrays.asList(parts));
+
+            ByteBuffer productRecords = map(channel, productsOffset, (long) productCount * PRODUCT_RECORD_SIZE);
+            ByteBuffer partIds = map(channel, partIdsOffset, stringsOffset - partIdsOffset);
+            Product[] products = new Product[productCount];
+            Arrays.parallelSetAll(products, i -> readProduct(productRecords, i * PRODUCT_RECORD_SIZE, partIds, strings));
+            Inventory.loadProducts(Arrays.asList(products));
+            return seq;
+        }
+    }
+
+    private static Part readPart(ByteBuffer records, int at, String[] strings) {
+        Part part;
+        if (records.getInt(at + 24) == InventoryCodec.IN_HOUSE) {
+            PartInHouse inHouse = new PartInHouse();
+            inHouse.setMachineId(records.getInt(at + 28));
+            part = inHouse;
+        } else {
+            PartOutsourced outsourced = new PartOutsourced();
+            outsourced.setCompanyName(strings[records.getInt(at + 28)]);
+            part = outsourced;
+        }
+        part.setPrice(records.getDouble(at));
+        part.setId(records.getInt(at + 8));
+        part.setStock(records.getInt(at + 12));
+        part.setMin(records.getInt(at + 16));
+        part.setMax(records.getInt(at + 20));
+        part.setName(strings[records.getInt(at + 32)]);
+        return part;
+    }
+
+    private static Product readProduct(ByteBuffer records, int at, ByteBuffer partIds, String[] strings) {
+        Product product = new Product();
+        product.setPrice(records.getDouble(at));
+        product.setId(records.getInt(at + 8));
+        product.setStock(records.getInt(at + 12));
+        product.setMin(records.getInt(at + 16));
+        product.setMax(records.getInt(at + 20));
+        product.setName(strings[records.getInt(at + 24)]);
+        int first = records.getInt(at + 28);
+        int count = records.getInt(at + 32);
+        for (int i = 0; i < count; i++) {
+            Part part = Inventory.lookupPart(partIds.getInt((first + i) * Integer.BYTES));
+            if (part != null) { product.addAssociatedPart(part); }
+        }
+        return product;
+    }
+
+    /**
+     * Map a read-only section of the snapshot
+     */
+    private static ByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) { throw new IOException("Snapshot section too large to map: " + size); }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Add a string to the string table if it is not there yet
+     */
+    private static void intern(String s, Map<String, Integer> ids, List<byte[]> strings) {
+        String key = nullToEmpty(s);
+        if (ids.containsKey(key)) { return; }
+        ids.put(key, strings.size());
+        strings.add(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write the buffer out if it cannot take another n bytes
+     */
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int n) throws IOException {
+        if (buffer.remaining() < n) { drain(channel, buffer); }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) { channel.write(buffer); }
+        buffer.clear();
+    }
+
+    private static String nullToEmpty(String s) { return s == null ? "" : s; }
+}
@@ -0,0 +1,500 @@
+package ims;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Sorted secondary indexes for inventory items, one per Inventory.SortKey.
+ * Each index is a treap (a randomly balanced binary search tree) ordered by key then ID,
+ * whose nodes count the items below them. That gives insert, remove, the item at a rank and
+ * the rank of a key in O(log n), so a range query or a page of k items costs O(log n + k).
+ * Nodes are never changed once built: an update copies the O(log n) nodes on its path and
+ * shares the rest, so an older root still reads as the index it was.
+ *
+ * An index is built from the inventory list the first time its key is used, then kept
+ * current on every put and remove; keys nobody asked for cost nothing. Nodes hold the key
+ * read when the item was indexed, so an item whose key field changes must be put again.
+ * Methods are synchronized, stock changes may come from any thread.
+ *
+ * view() lists an index as an ObservableList for the tables, one view per key and
+ * direction, reading rows straight from the index instead of sorting a copy. A view holds
+ * the root it last told its listeners about, so its rows only move when it says so, and
+ * reads it from either end. The index notes which items changed since; at most once per
+ * pulse the views take the new root and fire one change covering just the rows that moved.
+ * @param <T> - Part or Product
+ */
+class SortedIndex<T> {
+    private static final Comparator<String> NAME_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final ToIntFunction<T> idOf;
+    private final BiFunction<Inventory.SortKey, T, Object> keyOf;
+    private final Supplier<Collection<T>> source;
+    private final Map<Inventory.SortKey, Tree> trees = new EnumMap<>(Inventory.SortKey.class);
+    private final List<View> views = new ArrayList<>();
+    private boolean refreshPending;
+
+    /**
+     * @param idOf - reads the ID of an item
+     * @param keyOf - reads a sort key of an item: Integer, Double or String
+     * @param source - every inventoried item, read when an index is first built
+     */
+    SortedIndex(ToIntFunction<T> idOf, BiFunction<Inventory.SortKey, T, Object> keyOf, Supplier<Collection<T>> source) {
+        this.idOf = idOf;
+        this.keyOf = keyOf;
+        this.source = source;
+    }
+
+    /**
+     * Index a new item, or re-index every key of a replaced one
+     * @param item - item to index
+     */
+    synchronized void put(T item) {
+        if (trees.isEmpty()) { return; }
+        for (Tree tree : trees.values()) { tree.put(item); }
+        schedule();
+    }
+
+    /**
+     * Re-index one key of an item whose field changed in place, e.g. its stock
+     * @param item - indexed item
+     * @param key - changed key
+     */
+    synchronized void reindex(T item, Inventory.SortKey key) {
+        Tree tree = trees.get(key);
+        if (tree == null) { return; }
+        tree.put(item);
+        schedule();
+    }
+
+    /**
+     * Remove an item from every index
+     * @param id - id of item
+     */
+    synchronized void remove(int id) {
+        if (trees.isEmpty()) { return; }
+        for (Tree tree : trees.values()) { tree.remove(id); }
+        schedule();
+    }
+
+    /**
+     * Drop every built index, they are built again on next use
+     */
+    synchronized void clear() {
+        trees.clear();
+        schedule();
+    }
+
+    /**
+     * Items whose key lies in from..to, both inclusive, in key order
+     * @param key - key to filter on
+     * @param from - lowest key, or null for no lower bound
+     * @param to - highest key, or null for no upper bound
+     * @return matching items
+     */
+    synchronized List<T> range(Inventory.SortKey key, Object from, Object to) {
+        Node<T> root = tree(key).root;
+        int start = from == null ? 0 : countBelow(root, from, false);
+        int end = to == null ? size(root) : countBelow(root, to, true);
+        return page(root, start, end - start, false);
+    }
+
+    /**
+     * One page of items in key order
+     * @param key - key to sort on
+     * @param descending - highest key first
+     * @param offset - items to skip
+     * @param limit - most items to return
+     * @return page of items
+     */
+    synchronized List<T> page(Inventory.SortKey key, boolean descending, int offset, int limit) {
+        return page(tree(key).root, offset, limit, descending);
+    }
+
+    /**
+     * @param key - key to sort on
+     * @param descending - highest key first
+     * @return live list of every item in key order, shared by every caller asking for the
+     *         same key and direction; call on the JavaFX thread
+     */
+    synchronized ObservableList<T> view(Inventory.SortKey key, boolean descending) {
+        Node<T> shown = null;
+        boolean keyShown = false;
+        for (View view : views) {
+            if (view.key != key) { continue; }
+            if (view.descending == descending) { return view; }
+            // The other direction is already tracked, start from the rows it shows
+            shown = view.rows;
+            keyShown = true;
+        }
+        Tree tree = tree(key);
+        if (!keyShown) {
+            tree.touched = new HashMap<>();
+            shown = tree.root;
+        }
+        View view = new View(key, descending, shown);
+        views.add(view);
+        return view;
+    }
+
+    private Tree tree(Inventory.SortKey key) {
+        Tree tree = trees.get(key);
+        if (tree == null) {
+            tree = new Tree(key);
+            for (T item : source.get()) { tree.put(item); }
+            for (View view : views) {
+                // Rebuilt after a clear: views reload, changes from here on are tracked
+                if (view.key == key) {
+                    tree.touched = new HashMap<>();
+                    tree.rebuilt = true;
+                    break;
+                }
+            }
+            trees.put(key, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Schedule one refresh of every view, unless one is already waiting
+     */
+    private void schedule() {
+        if (views.isEmpty() || refreshPending) { return; }
+        refreshPending = true;
+        Platform.runLater(this::refresh);
+    }
+
+    /**
+     * Hand every view the current root of its index with the items changed since it last
+     * refreshed, then let the views notify their listeners outside the lock
+     */
+    private void refresh() {
+        List<Runnable> updates = new ArrayList<>();
+        synchronized (this) {
+            refreshPending = false;
+            for (Inventory.SortKey key : Inventory.SortKey.values()) {
+                List<View> shown = new ArrayList<>(2);
+                for (View view : views) {
+                    if (view.key == key) { shown.add(view); }
+                }
+                if (shown.isEmpty()) { continue; }
+                Tree tree = tree(key);
+                if (!tree.rebuilt && tree.touched.isEmpty()) { continue; }
+                Node<T> root = tree.root;
+                List<Moved> moved = null;
+                if (!tree.rebuilt) {
+                    moved = new ArrayList<>(tree.touched.values());
+                    for (Moved m : moved) { m.after = tree.keysById.get(m.id); }
+                }
+                tree.touched = new HashMap<>();
+                tree.rebuilt = false;
+                List<Moved> changes = moved;
+                for (View view : shown) { updates.add(() -> view.update(root, changes)); }
+            }
+        }
+        for (Runnable update : updates) { update.run(); }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object a, Object b) {
+        if (a instanceof String) { return NAME_ORDER.compare((String) a, (String) b); }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static int compare(Object keyA, int idA, Object keyB, int idB) {
+        int c = compareKeys(keyA, keyB);
+        return c != 0 ? c : Integer.compare(idA, idB);
+    }
+
+    /**
+     * Treap node: one item under one key, never changed once built
+     */
+    private static final class Node<T> {
+        final T item;
+        final Object key;
+        final int id;
+        final int priority;
+        // Nodes in this subtree, this one included
+        final int size;
+        final Node<T> left;
+        final Node<T> right;
+
+        Node(T item, Object key, int id, int priority, Node<T> left, Node<T> right) {
+            this.item = item;
+            this.key = key;
+            this.id = id;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        /**
+         * @return copy of this node over other children
+         */
+        Node<T> with(Node<T> left, Node<T> right) {
+            return left == this.left && right == this.right ? this : new Node<>(item, key, id, priority, left, right);
+        }
+    }
+
+    private static int size(Node<?> node) { return node == null ? 0 : node.size; }
+
+    /**
+     * @return number of nodes ordered before key and id
+     */
+    private static int rank(Node<?> node, Object key, int id) {
+        int rank = 0;
+        while (node != null) {
+            int c = compare(key, id, node.key, node.id);
+            if (c == 0) { return rank + size(node.left); }
+            if (c < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param inclusive - also count nodes whose key equals k
+     * @return number of nodes with a key below k
+     */
+    private static int countBelow(Node<?> node, Object k, boolean inclusive) {
+        int count = 0;
+        while (node != null) {
+            // Names are bounded case-insensitively, NAME_ORDER only breaks ties among equals
+            int c = k instanceof String ? String.CASE_INSENSITIVE_ORDER.compare((String) node.key, (String) k)
+                    : compareKeys(node.key, k);
+            if (c < 0 || (inclusive && c == 0)) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private static <T> T select(Node<T> node, int rank) {
+        while (true) {
+            int left = size(node.left);
+            if (rank < left) {
+                node = node.left;
+            } else if (rank == left) {
+                return node.item;
+            } else {
+                rank -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static <T> List<T> page(Node<T> root, int offset, int limit, boolean descending) {
+        List<T> out = new ArrayList<>(Math.max(0, Math.min(limit, size(root) - offset)));
+        if (limit > 0) { collect(root, offset, limit, descending, out); }
+        return out;
+    }
+
+    /**
+     * In-order walk, from either end, that skips whole subtrees before offset, O(log n + k)
+     */
+    private static <T> void collect(Node<T> node, int offset, int limit, boolean descending, List<T> out) {
+        if (node == null || out.size() == limit) { return; }
+        Node<T> first = descending ? node.right : node.left;
+        Node<T> second = descending ? node.left : node.right;
+        int before = size(first);
+        if (offset < before) { collect(first, offset, limit, descending, out); }
+        if (out.size() < limit && offset <= before) { out.add(node.item); }
+        if (out.size() < limit) { collect(second, Math.max(0, offset - before - 1), limit, descending, out); }
+    }
+
+    private static <T> Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) { return added; }
+        if (added.priority > node.priority) {
+            // Split the subtree around the new node, which becomes its root
+            Node<T>[] parts = split(node, added.key, added.id);
+            return added.with(parts[0], parts[1]);
+        }
+        if (compare(added.key, added.id, node.key, node.id) < 0) {
+            return node.with(insert(node.left, added), node.right);
+        }
+        return node.with(node.left, insert(node.right, added));
+    }
+
+    private static <T> Node<T> delete(Node<T> node, Object key, int id) {
+        int c = compare(key, id, node.key, node.id);
+        if (c == 0) { return merge(node.left, node.right); }
+        if (c < 0) { return node.with(delete(node.left, key, id), node.right); }
+        return node.with(node.left, delete(node.right, key, id));
+    }
+
+    /**
+     * @return nodes ordered before key and id, and after them
+     */
+    private static <T> Node<T>[] split(Node<T> node, Object key, int id) {
+        if (node == null) { return newPair(); }
+        Node<T>[] parts;
+        if (compare(node.key, node.id, key, id) < 0) {
+            parts = split(node.right, key, id);
+            parts[0] = node.with(node.left, parts[0]);
+        } else {
+            parts = split(node.left, key, id);
+            parts[1] = node.with(parts[1], node.right);
+        }
+        return parts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] newPair() { return (Node<T>[]) new Node<?>[2]; }
+
+    private static <T> Node<T> merge(Node<T> low, Node<T> high) {
+        if (low == null) { return high; }
+        if (high == null) { return low; }
+        if (low.priority > high.priority) { return low.with(low.left, merge(low.right, high)); }
+        return high.with(merge(low, high.left), high.right);
+    }
+
+    /**
+     * An item changed since the views last refreshed: its key then, and its key now
+     */
+    private static final class Moved {
+        final int id;
+        // Key the views last saw, null if the item was not indexed
+        final Object before;
+        // Key at refresh, null once removed
+        Object after;
+
+        Moved(int id, Object before) {
+            this.id = id;
+            this.before = before;
+        }
+    }
+
+    /**
+     * Index over one key, with each item's key to find its node
+     */
+    private final class Tree {
+        final Inventory.SortKey key;
+        final Map<Integer, Object> keysById = new HashMap<>();
+        Node<T> root;
+        // Items changed since the views last refreshed, null while no view shows this key
+        Map<Integer, Moved> touched;
+        // Built after a clear while views showed this key, the views reload it whole
+        boolean rebuilt;
+
+        Tree(Inventory.SortKey key) { this.key = key; }
+
+        void put(T item) {
+            int id = idOf.applyAsInt(item);
+            remove(id);
+            Object k = keyOf.apply(key, item);
+            if (k == null) { k = ""; }
+            keysById.put(id, k);
+            root = insert(root, new Node<>(item, k, id, ThreadLocalRandom.current().nextInt(), null, null));
+        }
+
+        void remove(int id) {
+            if (touched != null && !touched.containsKey(id)) { touched.put(id, new Moved(id, keysById.get(id))); }
+            Object k = keysById.remove(id);
+            if (k != null) { root = delete(root, k, id); }
+        }
+    }
+
+    /**
+     * Read-only table list over one index, in either direction. Rows come from the root
+     * the view last refreshed to, so every row below size is there.
+     */
+    final class View extends ObservableListBase<T> {
+        final Inventory.SortKey key;
+        final boolean descending;
+        private Node<T> rows;
+
+        private View(Inventory.SortKey key, boolean descending, Node<T> rows) {
+            this.key = key;
+            this.descending = descending;
+            this.rows = rows;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) { throw new IndexOutOfBoundsException(index); }
+            return select(rows, descending ? size() - 1 - index : index);
+        }
+
+        @Override
+        public int size() { return SortedIndex.size(rows); }
+
+        /**
+         * Move to a newer root and fire one change for the rows that moved. Items that did not
+         * change keep their order, so each gap between them gets one remove, add or replace.
+         * @param root - current root of the index
+         * @param moved - items changed since the last refresh, or null to reload every row
+         */
+        private void update(Node<T> root, List<Moved> moved) {
+            Node<T> before = rows;
+            rows = root;
+            beginChange();
+            if (moved == null) {
+                List<T> removed = page(before, 0, SortedIndex.size(before), descending);
+                if (!removed.isEmpty()) { nextRemove(0, removed); }
+                if (size() > 0) { nextAdd(0, size()); }
+                endChange();
+                return;
+            }
+            List<int[]> removedRows = new ArrayList<>();
+            List<Integer> addedRows = new ArrayList<>();
+            for (Moved m : moved) {
+                if (m.before != null) {
+                    int rank = rank(before, m.before, m.id);
+                    removedRows.add(new int[] {index(rank, SortedIndex.size(before)), rank});
+                }
+                if (m.after != null) { addedRows.add(index(rank(root, m.after, m.id), SortedIndex.size(root))); }
+            }
+            removedRows.sort(Comparator.comparingInt(r -> r[0]));
+            addedRows.sort(null);
+            int r = 0;
+            int a = 0;
+            while (r < removedRows.size() || a < addedRows.size()) {
+                // Unchanged rows ahead of the next removed and the next added row
+                int removedGap = r < removedRows.size() ? removedRows.get(r)[0] - r : Integer.MAX_VALUE;
+                int addedGap = a < addedRows.size() ? addedRows.get(a) - a : Integer.MAX_VALUE;
+                int gap = Math.min(removedGap, addedGap);
+                int from = gap + a;
+                List<T> removed = new ArrayList<>();
+                while (r < removedRows.size() && removedRows.get(r)[0] - r == gap) {
+                    removed.add(select(before, removedRows.get(r)[1]));
+                    r++;
+                }
+                int added = 0;
+                while (a < addedRows.size() && addedRows.get(a) - a == gap) {
+                    a++;
+                    added++;
+                }
+                if (added == 0) {
+                    nextRemove(from, removed);
+                } else if (removed.isEmpty()) {
+                    nextAdd(from, from + added);
+                } else {
+                    nextReplace(from, from + added, removed);
+                }
+            }
+            endChange();
+        }
+
+        private int index(int rank, int size) { return descending ? size - 1 - rank : rank; }
+    }
+}
@@ -0,0 +1,207 @@
+package ims;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+
+/**
+ * Stock Watchlist - every part and product whose stock is at or below its min (low) or
+ * at or above its max (over), kept current on each stock change instead of found by scanning.
+ * Entries sit in a TreeSet ranked by shortfall: low items first, furthest below min first,
+ * then overstocked items, furthest above max first. An ID map finds an item's entry,
+ * so an update is one O(log n) removal plus one insertion.
+ *
+ * Updates may come from any thread. A change that leaves an unwatched item within bounds,
+ * the common case, returns without taking the lock; a locked update re-reads the stock
+ * until it settles, so a racing fast-path change cannot leave a stale entry behind.
+ * Reorder listeners hear about an item the moment it
+ * drops to its min, on the updating thread. The JavaFX view shows the top VIEW_LIMIT
+ * entries and is refreshed at most once per pulse however fast stock moves.
+ */
+class StockWatchlist {
+    // Entries shown in the JavaFX view
+    static final int VIEW_LIMIT = 500;
+
+    /**
+     * Immutable state of one watched item, replaced on every change
+     */
+    static final class Entry {
+        final boolean product;
+        final int id;
+        final String name;
+        final int stock;
+        final int min;
+        final int max;
+
+        private Entry(boolean product, int id, String name, int stock, int min, int max) {
+            this.product = product;
+            this.id = id;
+            this.name = name;
+            this.stock = stock;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * @return true if at or below min, false if at or above max
+         */
+        boolean isLow() { return stock <= min; }
+
+        /**
+         * @return units needed to get back above min, or units above max
+         */
+        int getShortfall() { return isLow() ? min - stock : stock - max; }
+
+        boolean isProduct() { return product; }
+        int getId() { return id; }
+        String getName() { return name; }
+        int getStock() { return stock; }
+        int getMin() { return min; }
+        int getMax() { return max; }
+    }
+
+    // Low before over, bigger shortfall first, then parts before products by ID
+    private static final Comparator<Entry> RANK = Comparator
+            .comparing((Entry e) -> !e.isLow())
+            .thenComparing(Comparator.comparingInt(Entry::getShortfall).reversed())
+            .thenComparing(e -> e.product)
+            .thenComparingInt(e -> e.id);
+
+    private final TreeSet<Entry> ranked = new TreeSet<>(RANK);
+    // part/product key -> entry in ranked, read without the lock by the fast path
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<Entry>> reorderListeners = new CopyOnWriteArrayList<>();
+    // JavaFX view, null until asked for
+    private volatile ObservableList<Entry> view;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    /**
+     * Re-check a part after it was added or its stock, min or max changed
+     * @param part - inventoried part
+     */
+    void update(Part part) {
+        int stock = part.getStock();
+        if (stock > part.getMin() && stock < part.getMax() && !entries.containsKey(key(false, part.getId()))) { return; }
+        synchronized (this) {
+            do {
+                stock = part.getStock();
+                update(false, part.getId(), part.getName(), stock, part.getMin(), part.getMax());
+            } while (part.getStock() != stock);
+        }
+    }
+
+    /**
+     * Re-check a product after it was added or its stock, min or max changed
+     * @param product - inventoried product
+     */
+    void update(Product product) {
+        int stock = product.getStock();
+        if (stock > product.getMin() && stock < product.getMax() && !entries.containsKey(key(true, product.getId()))) { return; }
+        synchronized (this) {
+            do {
+                stock = product.getStock();
+                update(true, product.getId(), product.getName(), stock, product.getMin(), product.getMax());
+            } while (product.getStock() != stock);
+        }
+    }
+
+    /**
+     * Stop watching a deleted part
+     * @param id - id of part
+     */
+    synchronized void removePart(int id) { if (remove(key(false, id)) != null) { changed(); } }
+
+    /**
+     * Stop watching a deleted product
+     * @param id - id of product
+     */
+    synchronized void removeProduct(int id) { if (remove(key(true, id)) != null) { changed(); } }
+
+    /**
+     * Forget every entry
+     */
+    synchronized void clear() {
+        ranked.clear();
+        entries.clear();
+        changed();
+    }
+
+    /**
+     * @return number of watched items
+     */
+    synchronized int size() { return ranked.size(); }
+
+    /**
+     * @param limit - most entries to return
+     * @return most urgent entries, in rank order
+     */
+    synchronized List<Entry> top(int limit) {
+        List<Entry> top = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Entry entry : ranked) {
+            if (top.size() == limit) { break; }
+            top.add(entry);
+        }
+        return top;
+    }
+
+    /**
+     * Call back whenever a part or product drops to or below its min, e.g. to place a reorder.
+     * Listeners run on the thread that changed the stock and must not block.
+     * @param listener - receives the item's new entry
+     */
+    void addReorderListener(Consumer<Entry> listener) { reorderListeners.add(listener); }
+
+    /**
+     * @return live list of the most urgent entries, call on the JavaFX thread
+     */
+    ObservableList<Entry> view() {
+        if (view == null) {
+            view = FXCollections.observableArrayList(top(VIEW_LIMIT));
+        }
+        return view;
+    }
+
+    private void update(boolean product, int id, String name, int stock, int min, int max) {
+        long key = key(product, id);
+        Entry old = remove(key);
+        if (stock > min && stock < max) {
+            if (old != null) { changed(); }
+            return;
+        }
+        Entry entry = new Entry(product, id, name, stock, min, max);
+        ranked.add(entry);
+        entries.put(key, entry);
+        changed();
+        if (entry.isLow() && (old == null || !old.isLow())) {
+            for (Consumer<Entry> listener : reorderListeners) { listener.accept(entry); }
+        }
+    }
+
+    private Entry remove(long key) {
+        Entry old = entries.remove(key);
+        if (old != null) { ranked.remove(old); }
+        return old;
+    }
+
+    /**
+     * Schedule one view refresh, unless one is already waiting
+     */
+    private void changed() {
+        if (view == null || !refreshPending.compareAndSet(false, true)) { return; }
+        Platform.runLater(() -> {
+            refreshPending.set(false);
+            view.setAll(top(VIEW_LIMIT));
+        });
+    }
+
+    private static long key(boolean product, int id) { return (product ? 1L << 32 : 0) | (id & 0xFFFFFFFFL); }
+}
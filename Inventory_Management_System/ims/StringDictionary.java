@@ -0,0 +1,66 @@
+package ims;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Append-only string dictionary: every distinct string is stored once and given a dense
+ * int code, 0, 1, 2, ... in order of first use. Items keep the 4-byte code instead of their
+ * own copy of a string that repeats across the catalog, and filters compare codes.
+ * Decoding is one array read. Codes are never reused, so only encode fields with a bounded
+ * set of values, e.g. supplier companies.
+ * Encoding a known string and decoding are lock-free and safe from any thread; adding a
+ * new string takes the dictionary's lock.
+ */
+final class StringDictionary {
+    // Code of null
+    static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // Strings by code, replaced by a larger copy when full
+    private volatile String[] strings = new String[16];
+    private int size;
+
+    /**
+     * @param s - string to encode, or null
+     * @return code of the string, added if new; NONE for null
+     */
+    int encode(String s) {
+        if (s == null) { return NONE; }
+        Integer code = codes.get(s);
+        return code != null ? code : add(s);
+    }
+
+    private synchronized int add(String s) {
+        Integer code = codes.get(s);
+        if (code != null) { return code; }
+        String[] table = strings;
+        if (size == table.length) { table = Arrays.copyOf(table, size * 2); }
+        table[size] = s;
+        // Publish the string before its code, so any thread holding the code can decode it
+        strings = table;
+        codes.put(s, size);
+        return size++;
+    }
+
+    /**
+     * @param code - code from encode
+     * @return string of the code, null for NONE
+     */
+    String decode(int code) { return code == NONE ? null : strings[code]; }
+
+    /**
+     * @param s - string to look up
+     * @return code of the string, or NONE if it was never encoded
+     */
+    int codeOf(String s) {
+        Integer code = s == null ? null : codes.get(s);
+        return code == null ? NONE : code;
+    }
+
+    /**
+     * @return number of distinct strings, one more than the highest code
+     */
+    int size() { return codes.size(); }
+}
@@ -0,0 +1,86 @@
+package ims;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+
+/**
+ * View Cache - loads each FXML view and its controller once and reuses the scene on
+ * every navigation. Switching screens resets the controller for add or modify mode
+ * instead of parsing FXML, building a new Scene and rebinding tables again, so it costs
+ * the same at any inventory size. Every switch is timed into InventoryMetrics.
+ * Use on the JavaFX thread only.
+ */
+class ViewCache {
+    /**
+     * Screens of the application
+     */
+    enum View {
+        MAIN("Main.fxml"), PART("Part.fxml"), PRODUCT("Product.fxml");
+
+        final String fxml;
+
+        View(String fxml) { this.fxml = fxml; }
+    }
+
+    /**
+     * Controller of a cached view, brought back to a fresh state each time the view is shown
+     */
+    interface Resettable {
+        /**
+         * Clear leftover input and show the current part/product, or an empty add form
+         */
+        void reset();
+    }
+
+    private static final Map<View, Scene> scenes = new EnumMap<>(View.class);
+    private static final Map<View, Object> controllers = new EnumMap<>(View.class);
+
+    private ViewCache() {}
+
+    /**
+     * Load every view up front, so the first navigation to each is fast too
+     * @throws IOException - an FXML file could not be loaded
+     */
+    static void preload() throws IOException {
+        for (View view : View.values()) { scene(view); }
+    }
+
+    /**
+     * @param view - screen to get
+     * @return cached scene of the view, loaded on first use
+     * @throws IOException - FXML file could not be loaded
+     */
+    static Scene scene(View view) throws IOException {
+        Scene scene = scenes.get(view);
+        if (scene == null) {
+            FXMLLoader loader = new FXMLLoader(ViewCache.class.getResource(view.fxml));
+            scene = new Scene(loader.load());
+            scenes.put(view, scene);
+            controllers.put(view, loader.getController());
+        }
+        return scene;
+    }
+
+    /**
+     * Reset a view's controller and show its scene in the window the event came from
+     * @param event - navigation action
+     * @param view - screen to show
+     * @throws IOException - FXML file could not be loaded
+     */
+    static void show(ActionEvent event, View view) throws IOException {
+        long start = System.nanoTime();
+        Scene scene = scene(view);
+        Object controller = controllers.get(view);
+        if (controller instanceof Resettable) { ((Resettable) controller).reset(); }
+        Stage window = (Stage) ((Node) event.getSource()).getScene().getWindow();
+        window.setScene(scene);
+        window.show();
+        InventoryMetrics.navigation(view).record(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,143 @@
+package ims;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BatchObservableListTest {
+    private final BatchObservableList<String> list = new BatchObservableList<>();
+    // Sub-changes of each notification, as "from..to -removed"
+    private final List<List<String>> changes = new ArrayList<>();
+    // Copy kept up to date from the change notifications alone
+    private final List<String> shadow = new ArrayList<>();
+
+    @BeforeEach
+    void listen() {
+        list.addAll(List.of("a", "b", "c", "d"));
+        shadow.addAll(list);
+        list.addListener((ListChangeListener<String>) c -> {
+            List<String> parts = new ArrayList<>();
+            while (c.next()) {
+                parts.add(c.getFrom() + ".." + c.getTo() + " -" + c.getRemoved());
+                for (int i = 0; i < c.getRemovedSize(); i++) { shadow.remove(c.getFrom()); }
+                shadow.addAll(c.getFrom(), c.getAddedSubList());
+            }
+            changes.add(parts);
+        });
+    }
+
+    @Test
+    void batchReportsOnlyTouchedRowsOnce() {
+        list.beginBatch();
+        list.set(1, "B");
+        list.add("e");
+        list.add("f");
+        list.endBatch();
+
+        assertEquals(List.of(List.of("1..2 -[b]", "4..6 -[]")), changes);
+        assertEquals(list, shadow);
+    }
+
+    @Test
+    void swapWithLastRemovalIsTwoRowsNotTheWholeList() {
+        // InventoryIndex removes row 1 by moving the last row into it
+        list.beginBatch();
+        list.set(1, list.get(3));
+        list.remove(3);
+        list.endBatch();
+
+        assertEquals(List.of(List.of("1..2 -[b]", "3..3 -[d]")), changes);
+        assertEquals(List.of("a", "d", "c"), shadow);
+    }
+
+    @Test
+    void rowsReplacedThenRemovedReportTheirOriginalValue() {
+        list.beginBatch();
+        list.set(3, "D");
+        list.remove(3);
+        list.remove(2);
+        list.add("x");
+        list.endBatch();
+
+        assertEquals(List.of(List.of("2..3 -[c, d]")), changes);
+        assertEquals(list, shadow);
+    }
+
+    @Test
+    void nestedBatchesNotifyAtTheOutermostEnd() {
+        list.beginBatch();
+        list.beginBatch();
+        list.add("e");
+        list.endBatch();
+        assertTrue(changes.isEmpty());
+        list.set(0, "A");
+        list.endBatch();
+
+        assertEquals(1, changes.size());
+        assertEquals(list, shadow);
+    }
+
+    @Test
+    void batchThatThrowsStillNotifiesWhatItChanged() {
+        assertThrows(IllegalStateException.class, () -> {
+            list.beginBatch();
+            try {
+                list.add("e");
+                throw new IllegalStateException();
+            } finally {
+                list.endBatch();
+            }
+        });
+
+        assertEquals(List.of(List.of("4..5 -[]")), changes);
+        assertEquals(list, shadow);
+    }
+
+    @Test
+    void emptyBatchIsSilent() {
+        list.beginBatch();
+        list.endBatch();
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    void middleChangesFallBackToOneWholeListChange() {
+        list.beginBatch();
+        list.set(0, "A");
+        list.remove(1);
+        list.add(0, "z");
+        list.endBatch();
+
+        assertEquals(List.of(List.of("0..4 -[a, b, c, d]")), changes);
+        assertEquals(list, shadow);
+    }
+
+    @Test
+    void randomBatchesKeepListenersInStep() {
+        Random random = new Random(4);
+        for (int batch = 0; batch < 300; batch++) {
+            list.beginBatch();
+            for (int op = random.nextInt(6); op > 0; op--) {
+                int choice = random.nextInt(10);
+                if (choice < 3 || list.isEmpty()) {
+                    list.add("n" + batch + "." + op);
+                } else if (choice < 6) {
+                    list.set(random.nextInt(list.size()), "s" + batch + "." + op);
+                } else if (choice < 9) {
+                    list.remove(list.size() - 1);
+                } else if (choice == 9 && random.nextBoolean()) {
+                    list.remove(random.nextInt(list.size()));
+                } else {
+                    list.clear();
+                }
+            }
+            list.endBatch();
+            assertEquals(list, shadow);
+        }
+    }
+}
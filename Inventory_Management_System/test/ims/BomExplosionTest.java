@@ -0,0 +1,106 @@
+package ims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BomExplosionTest {
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    private static List<Integer> partIds(List<BomExplosion.Requirement> requirements) {
+        return requirements.stream().map(BomExplosion.Requirement::getPartId).toList();
+    }
+
+    @Test
+    void partsListedTwiceAreNeededTwice() throws IVException {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Part nut = Items.inHouse(2, "Nut", 0.10);
+        Inventory.addPart(bolt);
+        Inventory.addPart(nut);
+        Inventory.addProduct(Items.product(1, "Frame", 5, bolt, bolt, nut));
+
+        BomExplosion.Plan plan = BomExplosion.explode(Map.of(1, 2));
+        assertEquals(List.of(1, 2), partIds(plan.getRequirements()));
+        assertEquals(4, plan.getRequirements().get(0).getRequired());
+        assertEquals(2, plan.getRequirements().get(1).getRequired());
+        assertTrue(plan.isBuildable());
+    }
+
+    @Test
+    void shortagesComeBiggestFirst() throws IVException {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Part nut = Items.inHouse(2, "Nut", 0.10);
+        Part cog = Items.inHouse(3, "Cog", 1);
+        Inventory.addPart(bolt);
+        Inventory.addPart(nut);
+        Inventory.addPart(cog);
+        Inventory.addProduct(Items.product(1, "Frame", 5, bolt, nut, nut, cog));
+
+        BomExplosion.Plan plan = BomExplosion.explode(Map.of(1, 6));
+        assertFalse(plan.isBuildable());
+        // Equal shortfalls are ordered by part ID
+        assertEquals(List.of(2, 1, 3), partIds(plan.getShortages()));
+        assertEquals(7, plan.getShortages().get(0).getShortfall());
+        assertEquals(5, plan.getShortages().get(0).getAvailable());
+    }
+
+    @Test
+    void unknownProductOrBadQuantityIsRejected() {
+        Inventory.addProduct(Items.product(1, "Frame", 5));
+        assertThrows(IVException.class, () -> BomExplosion.explode(Map.of(9, 1)));
+        assertThrows(IVException.class, () -> BomExplosion.explode(Map.of(1, 0)));
+    }
+
+    @Test
+    void largeOrdersMatchSequentialTotalsInBothTableModes() throws IVException {
+        Random random = new Random(2);
+        Part[] parts = new Part[500];
+        for (int id = 0; id < parts.length; id++) {
+            parts[id] = Items.inHouse(id, "Part " + id, 1);
+            Inventory.addPart(parts[id]);
+        }
+        Map<Integer, Integer> order = new HashMap<>();
+        Map<Integer, Long> expected = new HashMap<>();
+        for (int id = 0; id < 400; id++) {
+            // Few parts per product keeps the order sparse, many makes it dense
+            int count = id < 200 ? 1 : 1 + random.nextInt(6);
+            Part[] used = new Part[count];
+            for (int i = 0; i < count; i++) { used[i] = parts[random.nextInt(parts.length)]; }
+            Inventory.addProduct(Items.product(id, "Product " + id, 100, used));
+            int units = 1 + random.nextInt(5);
+            order.put(id, units);
+            for (Part part : used) { expected.merge(part.getId(), (long) units, Long::sum); }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Map<Integer, Integer> sparse = new HashMap<>();
+            Map<Integer, Long> sparseExpected = new HashMap<>();
+            for (int id = 0; id < 200; id++) {
+                sparse.put(id, order.get(id));
+                Part part = Inventory.lookupProduct(id).getAssociatedParts().get(0);
+                sparseExpected.merge(part.getId(), (long) order.get(id), Long::sum);
+            }
+            assertEquals(sparseExpected, totals(BomExplosion.explode(sparse, pool)));
+            assertEquals(expected, totals(BomExplosion.explode(order, pool)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Map<Integer, Long> totals(BomExplosion.Plan plan) {
+        Map<Integer, Long> totals = new HashMap<>();
+        for (BomExplosion.Requirement requirement : plan.getRequirements()) {
+            totals.put(requirement.getPartId(), requirement.getRequired());
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,91 @@
+package ims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CsvImporterTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    private CsvImporter.Report importLines(String... lines) throws IOException {
+        Path file = dir.resolve("import.csv");
+        Files.write(file, List.of(lines));
+        return new CsvImporter(Runnable::run).importFile(file);
+    }
+
+    private static List<Integer> errorLines(CsvImporter.Report report) {
+        return report.getErrors().stream().map(e -> e.lineNumber).toList();
+    }
+
+    @Test
+    void validRowsAreImported() throws IOException {
+        CsvImporter.Report report = importLines(
+                "type,id,name,price,stock,min,max,extra",
+                "inhouse,1,Bolt,0.25,5,1,10,42",
+                "outsourced,2,\"Nut, hex\",0.10,5,1,10,Acme",
+                "product,1,Frame,5.00,5,1,10,1;2");
+
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getErrorCount());
+        assertEquals("Nut, hex", Inventory.lookupPart(2).getName());
+        assertEquals(2, Inventory.lookupProduct(1).getAssociatedParts().size());
+    }
+
+    @Test
+    void badRowsAreReportedInLineOrder() throws IOException {
+        CsvImporter.Report report = importLines(
+                "inhouse,1,Bolt,0.25,5,1,10,42",
+                "inhouse,2,Nut,abc,5,1,10,42",
+                "product,1,Frame,5.00,5,1,10,1;99",
+                "inhouse,3,Washer,0.05,5,1,10",
+                "gadget,4,Spring,1,5,1,10,x",
+                "inhouse,5,Pin,0.05,50,1,10,42",
+                "",
+                "product,2,Cheap,0.10,5,1,10,1");
+
+        assertEquals(1, report.getImported());
+        assertEquals(6, report.getErrorCount());
+        // Parse errors and errors found while adding the rows are merged by line
+        assertEquals(List.of(2, 3, 4, 5, 6, 8), errorLines(report));
+        assertNull(Inventory.lookupPart(2));
+        assertNull(Inventory.lookupProduct(1));
+    }
+
+    @Test
+    void duplicateOfAnInventoriedPartIsRejected() throws IOException {
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        Part copy = Inventory.lookupPart(1);
+        CsvImporter.Report report = importLines(String.format("inhouse,,Bolt,%s,%d,%d,%d,%d",
+                copy.getPrice(), copy.getStock(), copy.getMin(), copy.getMax(), ((PartInHouse) copy).getMachineID()));
+
+        assertEquals(0, report.getImported());
+        assertTrue(report.getErrors().get(0).message.contains("Identical to part 1"));
+    }
+
+    @Test
+    void blankIdIsAllocatedAndKnownIdReplaces() throws IOException {
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        CsvImporter.Report report = importLines(
+                "inhouse,1,Hex Bolt,0.30,5,1,10,42",
+                "inhouse,,Washer,0.05,5,1,10,42");
+
+        assertEquals(2, report.getImported());
+        assertEquals("Hex Bolt", Inventory.lookupPart(1).getName());
+        assertEquals(2, Inventory.getInventoryPartCount());
+    }
+
+    @Test
+    void quotedFieldsSplit() {
+        assertEquals(List.of("a", "b, c", "say \"hi\"", ""), CsvImporter.split("a,\"b, c\",\"say \"\"hi\"\"\","));
+    }
+}
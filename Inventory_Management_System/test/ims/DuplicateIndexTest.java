@@ -0,0 +1,100 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class DuplicateIndexTest {
+    private final DuplicateIndex<Part> parts =
+            new DuplicateIndex<>(Part::getId, DuplicateIndex::fingerprint, DuplicateIndex::sameContent);
+
+    @Test
+    void findIgnoresIdStockCaseAndSpacing() {
+        parts.put(Items.inHouse(4, "Hex  Bolt", 1.5));
+        parts.put(Items.inHouse(2, "Washer", 1.5));
+        PartInHouse copy = Items.inHouse(9, " hex bolt ", 1.5);
+        copy.setMachineId(104);
+        copy.setStock(8);
+
+        assertEquals(4, parts.find(copy).getId());
+        copy.setPrice(1.51);
+        assertNull(parts.find(copy));
+    }
+
+    @Test
+    void findSkipsTheItemItselfAndPrefersLowestId() {
+        Part first = Items.outsourced(7, "Gear", 3, "Acme");
+        parts.put(first);
+        assertNull(parts.find(first));
+
+        parts.put(Items.outsourced(5, "gear", 3, "ACME"));
+        parts.put(Items.outsourced(6, "Gear", 3, "Acme"));
+        assertEquals(5, parts.find(first).getId());
+        assertTrue(parts.mayHaveDuplicates());
+
+        parts.remove(5);
+        assertEquals(6, parts.find(first).getId());
+    }
+
+    @Test
+    void productsMatchOnPartsInAnyOrder() {
+        DuplicateIndex<Product> products =
+                new DuplicateIndex<>(Product::getId, DuplicateIndex::fingerprint, DuplicateIndex::sameContent);
+        Part bolt = Items.inHouse(1, "Bolt", 1);
+        Part nut = Items.inHouse(2, "Nut", 1);
+        products.put(Items.product(10, "Kit", 5, bolt, nut));
+
+        assertEquals(10, products.find(Items.product(11, "Kit", 5, nut, bolt)).getId());
+        assertNull(products.find(Items.product(11, "Kit", 5, bolt)));
+    }
+
+    @Test
+    void collidingFingerprintsAreConfirmedByContent() {
+        DuplicateIndex<Part> colliding = new DuplicateIndex<>(Part::getId, part -> 42L, DuplicateIndex::sameContent);
+        colliding.put(Items.inHouse(1, "Bolt", 1));
+        colliding.put(Items.inHouse(2, "Nut", 1));
+
+        assertNull(colliding.find(Items.inHouse(3, "Cog", 1)));
+        PartInHouse nut = Items.inHouse(3, "Nut", 1);
+        nut.setMachineId(102);
+        assertEquals(2, colliding.find(nut).getId());
+    }
+
+    @Test
+    void bulkRepeatsMatchSequentialScan() {
+        Random random = new Random(5);
+        List<Part> list = new ArrayList<>();
+        for (int i = 0; i < 3 * DuplicateIndex.LEAF_ITEMS; i++) {
+            PartOutsourced part = Items.outsourced(i, "Part " + random.nextInt(5000), random.nextInt(3), "Acme");
+            list.add(part);
+        }
+        Set<String> seen = new HashSet<>();
+        boolean[] expected = new boolean[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            Part part = list.get(i);
+            expected[i] = !seen.add(part.getName() + "/" + part.getPrice());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            boolean[] repeats = DuplicateIndex.findRepeats(list, DuplicateIndex::fingerprint,
+                    DuplicateIndex::sameContent, pool);
+            assertArrayEquals(expected, repeats);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void bulkRepeatsOfEmptyList() {
+        boolean[] repeats = DuplicateIndex.findRepeats(List.<Part>of(), DuplicateIndex::fingerprint,
+                DuplicateIndex::sameContent, ForkJoinPool.commonPool());
+        assertEquals(0, repeats.length);
+    }
+}
@@ -0,0 +1,93 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class IdAllocatorTest {
+
+    @Test
+    void idsIncreaseWithinAThread() {
+        IdAllocator ids = new IdAllocator();
+        int previous = ids.next();
+        for (int i = 0; i < 3 * IdAllocator.BLOCK_SIZE; i++) {
+            int id = ids.next();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void threadsNeverShareAnId() throws InterruptedException {
+        IdAllocator ids = new IdAllocator();
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) { assertTrue(seen.add(ids.next())); }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) { thread.join(); }
+        assertEquals(threads.length * 5000, seen.size());
+    }
+
+    @Test
+    void seedSkipsLoadedIds() {
+        IdAllocator ids = new IdAllocator();
+        ids.seed(500);
+        assertEquals(500, ids.peek());
+        assertEquals(500, ids.next());
+    }
+
+    @Test
+    void seedInsideALeasedBlockSkipsTheIdsBelowIt() throws InterruptedException {
+        IdAllocator ids = new IdAllocator();
+        assertEquals(0, ids.next());
+        ids.seed(IdAllocator.BLOCK_SIZE / 2);
+        assertEquals(IdAllocator.BLOCK_SIZE / 2, ids.peek());
+        assertEquals(IdAllocator.BLOCK_SIZE / 2, ids.next());
+
+        // Another thread's block is checked too, and one wholly below the floor is dropped
+        int[] other = new int[1];
+        Thread thread = new Thread(() -> {
+            ids.next();
+            ids.seed(3 * IdAllocator.BLOCK_SIZE);
+            other[0] = ids.next();
+        });
+        thread.start();
+        thread.join();
+        assertEquals(3 * IdAllocator.BLOCK_SIZE, other[0]);
+        assertTrue(ids.next() > other[0]);
+    }
+
+    @Test
+    void storeFileResumesPastEveryHandedOutId(@TempDir Path dir) throws Exception {
+        Path store = dir.resolve("part.ids");
+        IdAllocator first = new IdAllocator();
+        first.open(store);
+        int last = 0;
+        for (int i = 0; i < 10; i++) { last = first.next(); }
+
+        IdAllocator restarted = new IdAllocator();
+        restarted.open(store);
+        assertTrue(restarted.next() > last);
+    }
+
+    @Test
+    void sharedSourceLeasesSmallBlocks() {
+        AtomicInteger counter = new AtomicInteger();
+        IdAllocator ids = new IdAllocator();
+        ids.leaseFrom(counter::getAndAdd);
+
+        assertEquals(0, ids.next());
+        assertEquals(IdAllocator.SHARED_BLOCK_SIZE, counter.get());
+        for (int i = 1; i <= IdAllocator.SHARED_BLOCK_SIZE; i++) { ids.next(); }
+        assertEquals(2 * IdAllocator.SHARED_BLOCK_SIZE, counter.get());
+    }
+}
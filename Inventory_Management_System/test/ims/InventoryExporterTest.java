@@ -0,0 +1,87 @@
+package ims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class InventoryExporterTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    private Path export(InventoryExporter.Format format) throws IOException {
+        Path file = dir.resolve("export." + format.name().toLowerCase());
+        try (InventorySnapshot snapshot = Inventory.pin()) {
+            new InventoryExporter().export(snapshot, file, format, part -> true, product -> true);
+        }
+        return file;
+    }
+
+    private static void addTrickyItems() {
+        Part bolt = Items.inHouse(1, "Bolt, \"hex\"", 0.25);
+        Part nut = Items.outsourced(2, "Nut\nsecond line", 0.1, "Acme, \"Ltd\"\nEast");
+        Inventory.addPart(bolt);
+        Inventory.addPart(nut);
+        Inventory.addProduct(Items.product(3, "Frame \u00e9\u20ac\ud83d\udd27, \"deluxe\"", 5, bolt, nut, nut));
+    }
+
+    @Test
+    void csvExportImportsBackUnchanged() throws IOException {
+        addTrickyItems();
+        Path file = export(InventoryExporter.Format.CSV);
+
+        Inventory.clear();
+        CsvImporter.Report report = new CsvImporter(Runnable::run).importFile(file);
+        assertEquals(List.of(), report.getErrors());
+        assertEquals(3, report.getImported());
+
+        Part bolt = Inventory.lookupPart(1);
+        assertEquals("Bolt, \"hex\"", bolt.getName());
+        assertEquals(101, ((PartInHouse) bolt).getMachineID());
+        PartOutsourced nut = (PartOutsourced) Inventory.lookupPart(2);
+        assertEquals("Nut\nsecond line", nut.getName());
+        assertEquals("Acme, \"Ltd\"\nEast", nut.getCompanyName());
+        assertEquals(0.1, nut.getPrice());
+        Product frame = Inventory.lookupProduct(3);
+        assertEquals("Frame \u00e9\u20ac\ud83d\udd27, \"deluxe\"", frame.getName());
+        assertEquals(List.of(1, 2, 2), frame.getAssociatedParts().stream().map(Part::getId).toList());
+        assertEquals(5, frame.getStock());
+    }
+
+    @Test
+    void multiLineRecordsReportTheLineTheyStartOn() throws IOException {
+        Path file = dir.resolve("import.csv");
+        Files.writeString(file, "outsourced,1,\"Nut\nsecond\nthird\",0.1,5,1,10,Acme\n"
+                + "inhouse,2,Bolt,abc,5,1,10,42\n", StandardCharsets.UTF_8);
+
+        CsvImporter.Report report = new CsvImporter(Runnable::run).importFile(file);
+        assertEquals(1, report.getImported());
+        assertEquals("Nut\nsecond\nthird", Inventory.lookupPart(1).getName());
+        assertEquals(4, report.getErrors().get(0).lineNumber);
+    }
+
+    @Test
+    void jsonExportEscapesEveryString() throws IOException {
+        addTrickyItems();
+        String json = Files.readString(export(InventoryExporter.Format.JSON), StandardCharsets.UTF_8);
+
+        assertEquals("{\"parts\":["
+                + "{\"type\":\"inhouse\",\"id\":1,\"name\":\"Bolt, \\\"hex\\\"\",\"price\":0.25,\"stock\":5,\"min\":1,\"max\":10,"
+                + "\"machineId\":101},"
+                + "{\"type\":\"outsourced\",\"id\":2,\"name\":\"Nut\\u000asecond line\",\"price\":0.1,\"stock\":5,\"min\":1,"
+                + "\"max\":10,\"companyName\":\"Acme, \\\"Ltd\\\"\\u000aEast\"}"
+                + "],\"products\":["
+                + "{\"id\":3,\"name\":\"Frame \u00e9\u20ac\ud83d\udd27, \\\"deluxe\\\"\",\"price\":5.0,\"stock\":5,\"min\":1,"
+                + "\"max\":10,\"partIds\":[1,2,2]}"
+                + "]}\n", json);
+    }
+}
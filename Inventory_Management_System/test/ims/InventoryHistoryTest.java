@@ -0,0 +1,94 @@
+package ims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class InventoryHistoryTest {
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    private static void assertSnapshotMatchesLive() {
+        try (InventorySnapshot snapshot = Inventory.pin()) {
+            assertEquals(Inventory.getInventoryPartCount(), snapshot.getPartCount());
+            assertEquals(Inventory.getInventoryProductCount(), snapshot.getProductCount());
+            for (Part part : snapshot.getParts()) { assertSame(Inventory.lookupPart(part.getId()), part); }
+            for (Product product : snapshot.getProducts()) {
+                assertSame(Inventory.lookupProduct(product.getId()), product);
+            }
+        }
+    }
+
+    @Test
+    void pinnedSnapshotIgnoresLaterChanges() {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(bolt);
+        Inventory.addPart(Items.inHouse(2, "Nut", 0.10));
+        Product frame = Items.product(3, "Frame", 5, bolt);
+        Inventory.addProduct(frame);
+
+        InventorySnapshot snapshot = Inventory.pin();
+        assertEquals(1, Inventory.getPinnedSnapshotCount());
+        Inventory.addPart(Items.inHouse(4, "Washer", 0.05));
+        Inventory.modifyPart(Items.inHouse(1, "Hex Bolt", 0.30));
+        Inventory.deletePart(2);
+        Inventory.deleteProduct(3);
+
+        assertEquals(2, snapshot.getPartCount());
+        assertSame(bolt, snapshot.lookupPart(1));
+        assertEquals("Nut", snapshot.lookupPart(2).getName());
+        assertNull(snapshot.lookupPart(4));
+        assertSame(frame, snapshot.lookupProduct(3));
+        assertArrayEquals(new int[] {1}, snapshot.partIds(frame));
+        try (InventorySnapshot later = Inventory.pin()) {
+            assertEquals("Hex Bolt", later.lookupPart(1).getName());
+            assertEquals(2, Inventory.getPinnedSnapshotCount());
+        }
+
+        snapshot.close();
+        snapshot.close();
+        assertEquals(0, Inventory.getPinnedSnapshotCount());
+    }
+
+    @Test
+    void undoRecordsTheProductsARestoredPartRelinks() {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(bolt);
+        Inventory.addProduct(Items.product(2, "Frame", 5, bolt));
+        Inventory.addProduct(Items.product(3, "Stand", 8, bolt, bolt));
+        Inventory.saveSnapshot("start");
+        Inventory.modifyPart(Items.inHouse(1, "Hex Bolt", 0.30));
+        Inventory.modifyProduct(Items.product(2, "Frame XL", 6, Inventory.lookupPart(1)));
+
+        assertTrue(Inventory.undo());
+        assertSnapshotMatchesLive();
+        assertTrue(Inventory.undo());
+        assertSnapshotMatchesLive();
+        assertSame(bolt, Inventory.lookupProduct(3).getAssociatedParts().get(1));
+        assertTrue(Inventory.redo());
+        assertSnapshotMatchesLive();
+        assertTrue(Inventory.restoreSnapshot("start"));
+        assertSnapshotMatchesLive();
+        assertTrue(Inventory.undo());
+        assertSnapshotMatchesLive();
+        assertEquals("Hex Bolt", Inventory.lookupProduct(3).getAssociatedParts().get(0).getName());
+    }
+
+    @Test
+    void undoRecordsTheCopyOfAProductRestoredWithAReplacedPart() {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(bolt);
+        Inventory.modifyPart(Items.inHouse(1, "Hex Bolt", 0.30));
+        // Added holding the part it replaced, so restoring it relinks a copy
+        Inventory.addProduct(Items.product(2, "Frame", 5, bolt));
+        Inventory.modifyPart(Items.inHouse(1, "Carriage Bolt", 0.35));
+
+        assertTrue(Inventory.undo());
+        assertSnapshotMatchesLive();
+        assertEquals("Hex Bolt", Inventory.lookupProduct(2).getAssociatedParts().get(0).getName());
+        assertTrue(Inventory.redo());
+        assertSnapshotMatchesLive();
+    }
+}
@@ -0,0 +1,72 @@
+package ims;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class InventoryIndexTest {
+    private final InventoryIndex<Part> index = new InventoryIndex<>(Part::getId);
+
+    private void putAll(int... ids) {
+        for (int id : ids) { index.put(Items.inHouse(id, "Part " + id, 1)); }
+    }
+
+    private List<Integer> viewIds() { return index.view().stream().map(Part::getId).toList(); }
+
+    @Test
+    void removeMovesTheLastItemIntoTheFreedSlot() {
+        putAll(5, 3, 9, 1, 7);
+        index.remove(3);
+        index.remove(7);
+
+        assertEquals(List.of(5, 1, 9), viewIds());
+        // The moved item's slot was updated, so replacing by ID still hits the right row
+        Part one = Items.inHouse(1, "One", 2);
+        assertTrue(index.replace(one));
+        assertSame(one, index.view().get(1));
+    }
+
+    @Test
+    void putReplacesExistingIdInPlace() {
+        putAll(1, 2, 3);
+        Part two = Items.inHouse(2, "Two", 4);
+        index.put(two);
+
+        assertEquals(List.of(1, 2, 3), viewIds());
+        assertSame(two, index.get(2));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void unknownIdsAreIgnored() {
+        putAll(1);
+        assertNull(index.remove(2));
+        assertFalse(index.replace(Items.inHouse(2, "Two", 1)));
+        assertFalse(index.contains(2));
+    }
+
+    @Test
+    void putAllAppendsAfterExistingItems() {
+        putAll(1);
+        index.putAll(List.of(Items.inHouse(4, "Four", 1), Items.inHouse(2, "Two", 1)));
+        index.remove(1);
+
+        assertEquals(List.of(2, 4), viewIds());
+        assertSame(index.view().get(0), index.get(2));
+    }
+
+    @Test
+    void batchNotifiesOnce() {
+        int[] changes = new int[1];
+        index.view().addListener((ListChangeListener<Part>) c -> changes[0]++);
+        index.beginBatch();
+        putAll(1, 2, 3);
+        index.remove(2);
+        index.endBatch();
+
+        assertEquals(1, changes[0]);
+        assertEquals(List.of(1, 3), viewIds());
+    }
+}
@@ -0,0 +1,144 @@
+package ims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class InventoryJournalTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    @AfterEach
+    void closeJournal() throws IOException { Inventory.close(); }
+
+    /**
+     * Close the journal, forget everything in memory and recover from disk
+     */
+    private void restart() throws IOException {
+        Inventory.close();
+        Inventory.clear();
+        Inventory.open(dir);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    @Test
+    void replayRestoresEveryChange() throws IOException {
+        Inventory.open(dir);
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(bolt);
+        Inventory.addPart(Items.outsourced(2, "Nut", 0.10, "Acme"));
+        Inventory.addProduct(Items.product(1, "Frame", 5, bolt));
+        Inventory.modifyPart(Items.inHouse(1, "Hex Bolt", 0.30));
+        Inventory.deletePart(2);
+        assertTrue(Inventory.adjustPartStock(1, 3));
+
+        restart();
+
+        assertEquals(1, Inventory.getInventoryPartCount());
+        Part recovered = Inventory.lookupPart(1);
+        assertEquals("Hex Bolt", recovered.getName());
+        assertEquals(8, recovered.getStock());
+        Product frame = Inventory.lookupProduct(1);
+        assertSame(recovered, frame.getAssociatedParts().get(0));
+        assertFalse(Inventory.canUndo());
+    }
+
+    @Test
+    void tornTailIsCutOffAndLaterAppendsSurvive() throws IOException {
+        Inventory.open(dir);
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        Inventory.addPart(Items.inHouse(2, "Nut", 0.10));
+        Inventory.close();
+        Path segment = segments().get(segments().size() - 1);
+        long good = Files.size(segment);
+        // Half a record: a length header promising more bytes than follow
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        restart();
+        assertEquals(2, Inventory.getInventoryPartCount());
+        assertEquals(good, Files.size(segment));
+
+        Inventory.addPart(Items.inHouse(3, "Washer", 0.05));
+        restart();
+        assertEquals(3, Inventory.getInventoryPartCount());
+    }
+
+    @Test
+    void corruptRecordStopsReplay() throws IOException {
+        Inventory.open(dir);
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        Inventory.addPart(Items.inHouse(2, "Nut", 0.10));
+        Inventory.close();
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        // Flip a payload byte of the last record, its checksum no longer matches
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(segment, bytes);
+
+        restart();
+        assertEquals(1, Inventory.getInventoryPartCount());
+        assertNotNull(Inventory.lookupPart(1));
+    }
+
+    @Test
+    void itemsReplayedAfterASnapshotLoadStaySearchable() throws IOException, InterruptedException {
+        Inventory.open(dir);
+        Inventory.addPart(Items.inHouse(1, "Replayed Bolt", 0.25));
+        Inventory.close();
+        // A large snapshot keeps the background name index build busy while the journal replays
+        List<Part> loaded = new ArrayList<>();
+        for (int id = 100; id < 20_100; id++) { loaded.add(Items.inHouse(id, "Loaded " + id, 1)); }
+        SnapshotFile.write(dir.resolve("inventory.snapshot"), 0, loaded, List.of());
+
+        restart();
+
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (Inventory.searchParts("loaded 20099").isEmpty() && System.nanoTime() < deadline) { Thread.sleep(10); }
+        assertEquals(1, Inventory.searchParts("loaded 20099").size());
+        assertEquals(List.of(Inventory.lookupPart(1)), Inventory.searchParts("replayed"));
+    }
+
+    @Test
+    void snapshotRollDropsCoveredSegments() throws IOException {
+        Inventory.open(dir);
+        int count = InventoryJournal.SNAPSHOT_INTERVAL + 10;
+        Inventory.beginBatch();
+        try {
+            for (int id = 0; id < count; id++) { Inventory.addPart(Items.inHouse(id, "Part " + id, 1)); }
+        } finally {
+            Inventory.commit();
+        }
+        // The first roll pinned the version from before the open batch, the second one holds
+        // the whole batch; stock records are not part of any version, so their segment stays
+        for (int i = 0; i < InventoryJournal.SNAPSHOT_INTERVAL; i++) { assertTrue(Inventory.adjustPartStock(i % count, i % 2 == 0 ? 1 : -1)); }
+        int[] stock = new int[count];
+        for (int id = 0; id < count; id++) { stock[id] = Inventory.lookupPart(id).getStock(); }
+        Inventory.close();
+
+        assertTrue(Files.exists(dir.resolve("inventory.snapshot")));
+        List<Path> kept = segments();
+        assertEquals(2, kept.size());
+        assertNotEquals(String.format("journal-%020d.log", 1), kept.get(0).getFileName().toString());
+        restart();
+        assertEquals(count, Inventory.getInventoryPartCount());
+        for (int id = 0; id < count; id++) { assertEquals(stock[id], Inventory.lookupPart(id).getStock()); }
+    }
+}
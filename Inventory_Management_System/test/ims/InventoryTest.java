@@ -0,0 +1,150 @@
+package ims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class InventoryTest {
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    @Test
+    void addedItemsAreFoundById() {
+        Part part = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(part);
+        Inventory.addProduct(Items.product(1, "Frame", 5, part));
+
+        assertSame(part, Inventory.lookupPart(1));
+        assertEquals("Frame", Inventory.lookupProduct(1).getName());
+        assertEquals(1, Inventory.getInventoryPartCount());
+        assertEquals(1, Inventory.getInventoryProductCount());
+        assertNull(Inventory.lookupPart(2));
+    }
+
+    @Test
+    void modifyReplacesTheItemAtItsPosition() {
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        Inventory.addPart(Items.inHouse(2, "Nut", 0.10));
+        Part renamed = Items.inHouse(1, "Hex Bolt", 0.30);
+        Inventory.modifyPart(renamed);
+
+        assertSame(renamed, Inventory.lookupPart(1));
+        assertSame(renamed, Inventory.getInventoryParts().get(0));
+        assertEquals(List.of(renamed), Inventory.searchParts("hex"));
+        assertTrue(Inventory.searchParts("bolt").contains(renamed));
+    }
+
+    @Test
+    void modifyOfUnknownIdAddsNothing() {
+        Inventory.modifyPart(Items.inHouse(7, "Ghost", 1));
+        assertEquals(0, Inventory.getInventoryPartCount());
+    }
+
+    @Test
+    void deleteRemovesFromEveryLookup() {
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        Inventory.deletePart(1);
+
+        assertNull(Inventory.lookupPart(1));
+        assertTrue(Inventory.getInventoryParts().isEmpty());
+        assertTrue(Inventory.searchParts("bolt").isEmpty());
+    }
+
+    @Test
+    void partInUseCannotBeDeleted() {
+        Part part = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(part);
+        Inventory.addProduct(Items.product(1, "Frame", 5, part));
+
+        assertFalse(Inventory.validatePartDeletion(part));
+        assertEquals(1, Inventory.getProductsUsingPart(1).size());
+    }
+
+    @Test
+    void productFailsValidationWhenMinAboveMax() {
+        Product product = new Product(1, "Frame", 5, 5, 10, 2);
+        assertThrows(IVException.class, product::validateProduct);
+    }
+
+    @Test
+    void concurrentStockChangesAllApply() throws InterruptedException {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        bolt.setMax(1_000_000);
+        Inventory.addPart(bolt);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            boolean useCas = t % 2 == 0;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    if (!useCas) {
+                        assertTrue(Inventory.adjustPartStock(1, 1));
+                        continue;
+                    }
+                    int stock;
+                    do {
+                        stock = Inventory.lookupPart(1).getStock();
+                    } while (!Inventory.compareAndSetPartStock(1, stock, stock + 1));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) { thread.join(); }
+        assertEquals(5 + 8000, Inventory.lookupPart(1).getStock());
+    }
+
+    @Test
+    void stockChangesOutsideMinMaxAreRefused() {
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        Inventory.addProduct(Items.product(1, "Frame", 5));
+
+        assertFalse(Inventory.adjustPartStock(1, 6));
+        assertFalse(Inventory.adjustPartStock(1, -5));
+        assertFalse(Inventory.compareAndSetPartStock(1, 5, 11));
+        assertFalse(Inventory.compareAndSetPartStock(1, 4, 6));
+        assertFalse(Inventory.adjustProductStock(1, 6));
+        assertFalse(Inventory.compareAndSetProductStock(1, 5, 0));
+        assertFalse(Inventory.adjustPartStock(2, 1));
+        assertEquals(5, Inventory.lookupPart(1).getStock());
+        assertEquals(5, Inventory.lookupProduct(1).getStock());
+
+        assertTrue(Inventory.adjustPartStock(1, 5));
+        assertTrue(Inventory.compareAndSetProductStock(1, 5, 1));
+        assertEquals(10, Inventory.lookupPart(1).getStock());
+        assertEquals(1, Inventory.lookupProduct(1).getStock());
+    }
+
+    @Test
+    void stockChangesRacingAPartModificationAreKept() throws InterruptedException {
+        Inventory.addPart(Items.inHouse(1, "Bolt", 0.25));
+        Product frame = new Product(1, "Frame", 5, 0, 0, 1_000_000);
+        frame.addAssociatedPart(Inventory.lookupPart(1));
+        Inventory.addProduct(frame);
+
+        AtomicBoolean modifying = new AtomicBoolean(true);
+        AtomicInteger applied = new AtomicInteger();
+        Thread[] threads = new Thread[3];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000 && modifying.get(); i++) {
+                    assertTrue(Inventory.adjustProductStock(1, 1));
+                    applied.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        // Every modification swaps in a copy of the product pointing at the new part
+        for (int i = 0; i < 5000; i++) { Inventory.modifyPart(Items.inHouse(1, "Bolt " + i, 0.25)); }
+        modifying.set(false);
+        for (Thread thread : threads) { thread.join(); }
+
+        Product live = Inventory.lookupProduct(1);
+        assertSame(Inventory.lookupPart(1), live.getAssociatedParts().get(0));
+        assertEquals(applied.get(), live.getStock());
+    }
+}
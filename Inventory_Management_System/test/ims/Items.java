@@ -0,0 +1,39 @@
+package ims;
+
+
+/**
+ * Test fixtures - valid parts and products built in one call
+ */
+final class Items {
+    private Items() {}
+
+    static PartInHouse inHouse(int id, String name, double price) {
+        PartInHouse part = new PartInHouse();
+        part.setId(id);
+        part.setName(name);
+        part.setPrice(price);
+        part.setStock(5);
+        part.setMin(1);
+        part.setMax(10);
+        part.setMachineId(100 + id);
+        return part;
+    }
+
+    static PartOutsourced outsourced(int id, String name, double price, String company) {
+        PartOutsourced part = new PartOutsourced();
+        part.setId(id);
+        part.setName(name);
+        part.setPrice(price);
+        part.setStock(5);
+        part.setMin(1);
+        part.setMax(10);
+        part.setCompanyName(company);
+        return part;
+    }
+
+    static Product product(int id, String name, double price, Part... parts) {
+        Product product = new Product(id, name, price, 5, 1, 10);
+        for (Part part : parts) { product.addAssociatedPart(part); }
+        return product;
+    }
+}
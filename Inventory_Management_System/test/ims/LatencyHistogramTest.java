@@ -0,0 +1,41 @@
+package ims;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class LatencyHistogramTest {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    void everyValueFallsInABucketWhoseEdgeCoversIt() {
+        for (long value = 0; value < 100_000; value += 7) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperEdge(bucket));
+            if (bucket > 0) { assertTrue(value > LatencyHistogram.upperEdge(bucket - 1)); }
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperEdge(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentilesStayWithinRelativeError() {
+        for (long nanos = 1; nanos <= 10_000; nanos++) { histogram.record(nanos * 1000); }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(5_000_000, histogram.percentileNanos(0.5), 5_000_000.0 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(9_900_000, histogram.percentileNanos(0.99), 9_900_000.0 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(10_000_000, histogram.percentileNanos(1.0));
+        assertEquals(5000.5, histogram.getMeanMicros(), 1e-6);
+    }
+
+    @Test
+    void negativeValuesCountAsZeroAndResetClears() {
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.percentileNanos(0.5));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+    }
+}
@@ -0,0 +1,111 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class NameIndexTest {
+    private final NameIndex<Part> index = new NameIndex<>(Part::getId, Part::getName, new LatencyHistogram());
+
+    private static List<Integer> ids(List<Part> parts) { return parts.stream().map(Part::getId).toList(); }
+
+    @Test
+    void shortAndLongQueriesMatchSubstringsIgnoringCase() {
+        index.index(Items.inHouse(3, "Hex Bolt", 1));
+        index.index(Items.inHouse(1, "Carriage Bolt", 1));
+        index.index(Items.inHouse(2, "Washer", 1));
+
+        assertEquals(List.of(1, 3), ids(index.search("b")));
+        assertEquals(List.of(1, 3), ids(index.search("BOL")));
+        assertEquals(List.of(1, 3), ids(index.search("bolt")));
+        assertEquals(List.of(3), ids(index.search("hex b")));
+        assertEquals(List.of(), ids(index.search("bolts")));
+        assertEquals(List.of(), ids(index.search("")));
+    }
+
+    @Test
+    void exactIdMatchesToo() {
+        index.index(Items.inHouse(12, "Washer", 1));
+        index.index(Items.inHouse(7, "Part 12", 1));
+
+        assertEquals(List.of(7, 12), ids(index.search("12")));
+        assertEquals(List.of(), ids(index.search("012")));
+    }
+
+    @Test
+    void renameAndUnindexDropOldPostings() {
+        index.index(Items.inHouse(1, "Spring", 1));
+        index.index(Items.inHouse(1, "Gear", 1));
+        assertEquals(List.of(), ids(index.search("spring")));
+        assertEquals(List.of(1), ids(index.search("gear")));
+
+        index.unindex(1);
+        assertEquals(List.of(), ids(index.search("gear")));
+    }
+
+    @Test
+    void narrowingMatchesFullSearch() {
+        index.index(Items.inHouse(1, "Gear Shaft", 1));
+        index.index(Items.inHouse(2, "Gear", 1));
+        index.index(Items.inHouse(3, "Shaft", 1));
+        List<Part> gear = index.search("gear");
+
+        assertEquals(index.search("gear s"), index.search("gear s", gear));
+    }
+
+    @Test
+    void rebuildReplacesContents() {
+        index.index(Items.inHouse(9, "Stale", 1));
+        index.rebuild(List.of(Items.inHouse(1, "Fresh", 1)));
+
+        assertEquals(List.of(), ids(index.search("stale")));
+        assertEquals(List.of(1), ids(index.search("fresh")));
+    }
+
+    @Test
+    void updatesAfterPreparingARebuildAreKept() {
+        Runnable build = index.prepareRebuild(List.of(Items.inHouse(1, "Loaded", 1)));
+        // Replayed before the build thread gets going
+        index.index(Items.inHouse(2, "Replayed", 1));
+        build.run();
+
+        assertEquals(List.of(1), ids(index.search("loaded")));
+        assertEquals(List.of(2), ids(index.search("replayed")));
+    }
+
+    @Test
+    void clearDuringRebuildIsKept() {
+        Runnable build = index.prepareRebuild(List.of(Items.inHouse(1, "Loaded", 1)));
+        index.clear();
+        index.index(Items.inHouse(2, "After", 1));
+        assertNull(index.prepareRebuild(List.of(Items.inHouse(3, "Second", 1))));
+        build.run();
+
+        assertEquals(List.of(), ids(index.search("loaded")));
+        assertEquals(List.of(2), ids(index.search("after")));
+        assertEquals(List.of(3), ids(index.search("second")));
+    }
+
+    @Test
+    void agreesWithLinearScan() {
+        Random random = new Random(42);
+        List<Part> parts = new ArrayList<>();
+        for (int id = 0; id < 500; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int c = 3 + random.nextInt(8); c > 0; c--) { name.append((char) ('a' + random.nextInt(4))); }
+            Part part = Items.inHouse(id, name.toString(), 1);
+            parts.add(part);
+            index.index(part);
+        }
+        for (String query : List.of("a", "ab", "abc", "abca", "dcba", "aaaaa", "bcdab")) {
+            List<Integer> expected = new ArrayList<>();
+            for (Part part : parts) {
+                if (part.getName().contains(query)) { expected.add(part.getId()); }
+            }
+            assertEquals(expected, ids(index.search(query)), query);
+        }
+    }
+}
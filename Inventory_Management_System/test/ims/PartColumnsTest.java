@@ -0,0 +1,89 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class PartColumnsTest {
+    private final PartColumns columns = new PartColumns();
+
+    private static int[] sorted(int[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Test
+    void scansReadTheStoredColumns() {
+        Part bolt = Items.inHouse(1, "Bolt", 2);
+        Part nut = Items.outsourced(2, "Nut", 0.5, "Acme");
+        nut.setStock(1);
+        columns.put(bolt);
+        columns.put(nut);
+        columns.put(Items.outsourced(3, "Bolt", 1, "Acme"));
+
+        assertEquals(5 * 2 + 1 * 0.5 + 5 * 1, columns.totalStockValue(), 1e-9);
+        assertArrayEquals(new int[] {2}, columns.lowStockIds());
+        assertArrayEquals(new int[] {1, 3}, sorted(columns.idsNamed("Bolt")));
+        assertArrayEquals(new int[0], columns.idsNamed("Cog"));
+        int acme = ((PartOutsourced) nut).getCompanyCode();
+        assertArrayEquals(new int[] {2, 3}, sorted(columns.idsOfCompany(acme)));
+        assertEquals(2, columns.companyCounts(PartOutsourced.getCompanies().size())[acme]);
+    }
+
+    @Test
+    void stockChangesLandInTheColumn() {
+        columns.put(Items.inHouse(1, "Bolt", 2));
+        columns.addStock(1, -4);
+        assertArrayEquals(new int[] {1}, columns.lowStockIds());
+
+        columns.setStock(1, 6);
+        assertEquals(12, columns.totalStockValue(), 1e-9);
+    }
+
+    @Test
+    void removalKeepsTheOtherRowsAcrossPages() {
+        Random random = new Random(9);
+        Map<Integer, Part> parts = new HashMap<>();
+        int count = PartColumns.PAGE_SIZE * 2 + 100;
+        for (int id = 0; id < count; id++) {
+            Part part = Items.inHouse(id, "Part " + (id % 10), 1);
+            part.setStock(1 + random.nextInt(5));
+            parts.put(id, part);
+            columns.put(part);
+        }
+        for (int i = 0; i < count / 2; i++) {
+            int id = random.nextInt(count);
+            columns.remove(id);
+            parts.remove(id);
+        }
+
+        assertEquals(parts.size(), columns.size());
+        double value = 0;
+        List<Integer> low = new ArrayList<>();
+        List<Integer> named = new ArrayList<>();
+        for (Part part : parts.values()) {
+            value += part.getStock() * part.getPrice();
+            if (part.getStock() <= part.getMin()) { low.add(part.getId()); }
+            if (part.getName().equals("Part 3")) { named.add(part.getId()); }
+        }
+        assertEquals(value, columns.totalStockValue(), 1e-6);
+        assertArrayEquals(low.stream().mapToInt(Integer::intValue).sorted().toArray(), sorted(columns.lowStockIds()));
+        assertArrayEquals(named.stream().mapToInt(Integer::intValue).sorted().toArray(), sorted(columns.idsNamed("Part 3")));
+    }
+
+    @Test
+    void clearDropsEveryRow() {
+        columns.put(Items.inHouse(1, "Bolt", 2));
+        columns.clear();
+
+        assertEquals(0, columns.size());
+        assertEquals(0, columns.totalStockValue());
+        assertArrayEquals(new int[0], columns.idsNamed("Bolt"));
+    }
+}
@@ -0,0 +1,61 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class PartUsageIndexTest {
+    private final PartUsageIndex usage = new PartUsageIndex();
+    private final Part bolt = Items.inHouse(1, "Bolt", 0.25);
+    private final Part nut = Items.inHouse(2, "Nut", 0.10);
+
+    @Test
+    void tracksEveryProductUsingAPart() {
+        usage.track(Items.product(10, "Frame", 5, bolt, nut));
+        usage.track(Items.product(11, "Wheel", 5, bolt));
+
+        assertEquals(Set.of(10, 11), usage.productsUsing(1));
+        assertEquals(Set.of(10), usage.productsUsing(2));
+        assertFalse(usage.isUsed(3));
+    }
+
+    @Test
+    void followsPartListChanges() {
+        Product frame = Items.product(10, "Frame", 5, bolt, bolt);
+        usage.track(frame);
+
+        // A part listed twice stays linked until both are gone
+        frame.getAssociatedParts().remove(bolt);
+        assertTrue(usage.isUsed(1));
+        frame.getAssociatedParts().remove(bolt);
+        assertFalse(usage.isUsed(1));
+
+        frame.addAssociatedPart(nut);
+        assertEquals(Set.of(10), usage.productsUsing(2));
+    }
+
+    @Test
+    void retrackingReplacesOldLinks() {
+        Product frame = Items.product(10, "Frame", 5, bolt);
+        usage.track(frame);
+        usage.track(Items.product(10, "Frame", 5, nut));
+
+        assertFalse(usage.isUsed(1));
+        // The replaced product's list is no longer watched
+        frame.addAssociatedPart(nut);
+        frame.addAssociatedPart(bolt);
+        assertFalse(usage.isUsed(1));
+    }
+
+    @Test
+    void untrackAndClearDropLinks() {
+        usage.track(Items.product(10, "Frame", 5, bolt));
+        usage.track(Items.product(11, "Wheel", 5, nut));
+        usage.untrack(10);
+        assertFalse(usage.isUsed(1));
+
+        usage.clear();
+        assertFalse(usage.isUsed(2));
+    }
+}
@@ -0,0 +1,93 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class PersistentIntMapTest {
+
+    private static List<String> values(PersistentIntMap<String> map) {
+        List<String> out = new ArrayList<>();
+        for (String value : map) { out.add(value); }
+        return out;
+    }
+
+    @Test
+    void updatesLeaveEarlierMapsUnchanged() {
+        PersistentIntMap<String> empty = PersistentIntMap.empty();
+        PersistentIntMap<String> one = empty.put(7, "bolt", null);
+        PersistentIntMap<String> two = one.put(40, "nut", null);
+        PersistentIntMap<String> replaced = two.put(7, "gear", null);
+        PersistentIntMap<String> removed = replaced.remove(40, null);
+
+        assertEquals(0, empty.size());
+        assertEquals(List.of("bolt"), values(one));
+        assertEquals(List.of("bolt", "nut"), values(two));
+        assertEquals(List.of("gear", "nut"), values(replaced));
+        assertEquals(List.of("gear"), values(removed));
+        assertNull(removed.get(40));
+        assertEquals("nut", two.get(40));
+    }
+
+    @Test
+    void unchangedUpdatesReturnTheSameMap() {
+        String bolt = "bolt";
+        PersistentIntMap<String> map = PersistentIntMap.<String>empty().put(1, bolt, null);
+
+        assertSame(map, map.put(1, bolt, null));
+        assertSame(map, map.remove(2, null));
+    }
+
+    @Test
+    void editTokenUpdatesOwnNodesInPlace() {
+        Object edit = new Object();
+        PersistentIntMap<String> map = PersistentIntMap.<String>empty().put(1, "bolt", edit);
+        PersistentIntMap<String> shared = map.put(2, "nut", null);
+
+        assertSame(map, map.put(1, "gear", edit));
+        assertEquals("gear", map.get(1));
+        // A map built without the token copied its path and is not affected
+        assertEquals("bolt", shared.get(1));
+    }
+
+    @Test
+    void randomUpdatesMatchTreeMap() {
+        Random random = new Random(11);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key, null);
+            } else {
+                String value = "v" + i;
+                expected.put(key, value);
+                map = map.put(key, value, null);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), values(map));
+        for (int key = 0; key < 3000; key++) { assertEquals(expected.get(key), map.get(key)); }
+    }
+
+    @Test
+    void diffReportsChangedKeysInOrder() {
+        PersistentIntMap<String> before = PersistentIntMap.empty();
+        for (int key = 0; key < 1000; key++) { before = before.put(key, "v" + key, null); }
+        PersistentIntMap<String> after = before.put(500, "changed", null).remove(3, null).put(2000, "added", null);
+        List<String> changes = new ArrayList<>();
+
+        PersistentIntMap.diff(before, after, (key, from, to) -> changes.add(key + ":" + from + "->" + to));
+        assertEquals(List.of("3:v3->null", "500:v500->changed", "2000:null->added"), changes);
+
+        changes.clear();
+        PersistentIntMap.diff(after, after, (key, from, to) -> changes.add(key + ""));
+        assertEquals(List.of(), changes);
+    }
+}
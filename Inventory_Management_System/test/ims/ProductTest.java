@@ -0,0 +1,69 @@
+package ims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ProductTest {
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    @Test
+    void partsCostIsExactToTheCent() {
+        Product product = Items.product(1, "Frame", 0.30, Items.inHouse(1, "A", 0.10), Items.inHouse(2, "B", 0.20));
+
+        assertEquals(0.30, product.getPartsCost());
+        assertFalse(product.isPricedBelowParts());
+        product.setPrice(0.29);
+        assertTrue(product.isPricedBelowParts());
+    }
+
+    @Test
+    void partsCostSurvivesManyChanges() {
+        Product product = Items.product(1, "Frame", 1);
+        Part dime = Items.inHouse(1, "Dime", 0.10);
+        for (int i = 0; i < 10_000; i++) { product.addAssociatedPart(dime); }
+        for (int i = 0; i < 9_990; i++) { product.getAssociatedParts().remove(0); }
+
+        assertEquals(1.00, product.getPartsCost());
+        assertFalse(product.isPricedBelowParts());
+    }
+
+    @Test
+    void modifiedPartReplacesUsingProductsWithCopies() {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(bolt);
+        Product frame = Items.product(1, "Frame", 1, bolt);
+        Inventory.addProduct(frame);
+
+        try (InventorySnapshot snapshot = Inventory.pin()) {
+            Part dearer = Items.inHouse(1, "Bolt", 2.00);
+            Inventory.modifyPart(dearer);
+
+            Product live = Inventory.lookupProduct(1);
+            assertNotSame(frame, live);
+            assertSame(dearer, live.getAssociatedParts().get(0));
+            assertTrue(Inventory.getUnderpricedProducts().contains(live));
+            // The pinned version and the product it holds are untouched
+            assertSame(frame, snapshot.lookupProduct(1));
+            assertSame(bolt, frame.getAssociatedParts().get(0));
+        }
+        assertEquals(1, Inventory.getProductsUsingPart(1).size());
+    }
+
+    @Test
+    void undoRestoresProductsPointingAtLiveParts() {
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        Inventory.addPart(bolt);
+        Inventory.addProduct(Items.product(1, "Frame", 1, bolt));
+        Inventory.modifyPart(Items.inHouse(1, "Bolt", 2.00));
+
+        assertTrue(Inventory.undo());
+        Product frame = Inventory.lookupProduct(1);
+        assertSame(Inventory.lookupPart(1), frame.getAssociatedParts().get(0));
+        assertEquals(0.25, frame.getPartsCost());
+        assertFalse(Inventory.getUnderpricedProducts().contains(frame));
+    }
+}
@@ -0,0 +1,82 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class SearchServiceTest {
+    // Long enough for a debounced query to run and publish
+    private static final long WAIT_MILLIS = SearchService.DEBOUNCE_MILLIS * 4;
+    private final NameIndex<Part> index = new NameIndex<>(Part::getId, Part::getName, new LatencyHistogram());
+    private final BlockingQueue<List<Integer>> published = new LinkedBlockingQueue<>();
+    // Publishes straight from the search thread, there is no JavaFX thread in tests
+    private final SearchService<Part> search = new SearchService<>(index,
+            results -> published.add(results.stream().map(Part::getId).toList()), Runnable::run);
+
+    private List<Integer> next() throws InterruptedException { return published.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS); }
+
+    @Test
+    void keystrokesInQuickSuccessionPublishOnlyTheLastQuery() throws InterruptedException {
+        index.index(Items.inHouse(1, "Gear", 1));
+        index.index(Items.inHouse(2, "Gasket", 1));
+
+        search.submit("g");
+        search.submit("ge");
+        search.submit("gea");
+        assertEquals(List.of(1), next());
+        assertNull(next());
+    }
+
+    @Test
+    void cancelledQueryIsNeverPublished() throws InterruptedException {
+        index.index(Items.inHouse(1, "Gear", 1));
+
+        search.submit("gear");
+        search.cancel();
+        assertNull(next());
+    }
+
+    @Test
+    void narrowedQueryMatchesAFullSearch() throws InterruptedException {
+        index.index(Items.inHouse(1, "Gear Shaft", 1));
+        index.index(Items.inHouse(2, "Gear", 1));
+        index.index(Items.inHouse(3, "Shaft", 1));
+
+        search.submit("gear");
+        assertEquals(List.of(1, 2), next());
+        search.submit("gear s");
+        assertEquals(List.of(1), next());
+    }
+
+    @Test
+    void narrowingIsSkippedOnceTheIndexChanged() throws InterruptedException {
+        index.index(Items.inHouse(1, "Gear", 1));
+        search.submit("gea");
+        assertEquals(List.of(1), next());
+
+        // Not among the previous results, a narrowed search would miss it
+        index.index(Items.inHouse(2, "Gear Shaft", 1));
+        search.submit("gear");
+        assertEquals(List.of(1, 2), next());
+    }
+
+    @Test
+    void refreshRunsTheCurrentQueryAgain() throws InterruptedException {
+        index.index(Items.inHouse(1, "Gear", 1));
+        search.submit("gear");
+        assertEquals(List.of(1), next());
+
+        index.index(Items.inHouse(2, "Gear Shaft", 1));
+        index.unindex(1);
+        search.refresh();
+        assertEquals(List.of(2), next());
+
+        search.cancel();
+        search.refresh();
+        assertNull(next());
+    }
+}
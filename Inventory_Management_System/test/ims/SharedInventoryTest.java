@@ -0,0 +1,134 @@
+package ims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class SharedInventoryTest {
+    @TempDir
+    Path dir;
+    private SharedInventory shared;
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    @AfterEach
+    void detach() throws IOException {
+        if (shared != null) { shared.close(); }
+    }
+
+    private SharedInventory attach(int heapBytes) throws IOException {
+        if (shared != null) { shared.close(); }
+        shared = SharedInventory.attach(dir.resolve("inventory.shm"), 64, 64, 256, heapBytes);
+        return shared;
+    }
+
+    @Test
+    void concurrentStockDeltasAllApply() throws Exception {
+        SharedInventory file = attach(4096);
+        Part bolt = Items.inHouse(1, "Bolt", 0.25);
+        bolt.setStock(0);
+        bolt.setMin(0);
+        bolt.setMax(1_000_000);
+        file.publishPart(bolt, null);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) { assertTrue(file.adjustPartStock(1, 1)); }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) { thread.join(); }
+        assertEquals(8000, file.partStock(1));
+    }
+
+    @Test
+    void stockChangesRespectSlotBounds() throws IOException {
+        SharedInventory file = attach(4096);
+        file.publishProduct(Items.product(3, "Frame", 5), null);
+
+        assertFalse(file.adjustProductStock(3, 6));
+        assertTrue(file.adjustProductStock(3, 5));
+        assertFalse(file.compareAndSetProductStock(3, 5, 7));
+        assertTrue(file.compareAndSetProductStock(3, 10, 1));
+        assertFalse(file.compareAndSetProductStock(3, 1, 0));
+        assertEquals(1, file.productStock(3));
+        assertFalse(file.adjustPartStock(4, 1));
+    }
+
+    @Test
+    void publishingAModifiedItemKeepsConcurrentStockDeltas() throws IOException {
+        SharedInventory file = attach(4096);
+        Product frame = Items.product(3, "Frame", 5);
+        file.publishProduct(frame, null);
+        assertTrue(file.adjustProductStock(3, 2));
+
+        // Renamed from the copy read before the delta, the slot keeps the delta
+        Product renamed = Items.product(3, "Frame XL", 5);
+        assertFalse(file.publishProduct(renamed, frame));
+        assertEquals(7, file.productStock(3));
+
+        // A stock edit moves it from the stock it replaced, only if that is still current
+        Product edited = Items.product(3, "Frame XL", 5);
+        edited.setStock(9);
+        assertFalse(file.publishProduct(edited, frame));
+        assertEquals(7, file.productStock(3));
+        renamed.setStock(7);
+        assertTrue(file.publishProduct(edited, renamed));
+        assertEquals(9, file.productStock(3));
+    }
+
+    @Test
+    void heapIsCompactedInsteadOfFillingUp() throws IOException {
+        SharedInventory file = attach(4096);
+        List<Part> parts = new ArrayList<>();
+        for (int id = 0; id < 8; id++) {
+            Part part = Items.outsourced(id, "Part " + id, 1, "Acme");
+            parts.add(part);
+            file.publishPart(part, null);
+        }
+        // Every publish writes a new name and part list, far more than the heap holds at once
+        for (int i = 0; i < 2000; i++) {
+            Product product = Items.product(i % 4, "Product " + i, 50, parts.get(i % 8), parts.get((i + 3) % 8));
+            file.publishProduct(product, null);
+            assertTrue(file.adjustProductStock(i % 4, i / 4 % 2 == 0 ? 1 : -1));
+        }
+
+        attach(4096).start();
+        assertEquals(8, Inventory.getInventoryPartCount());
+        assertEquals("Acme", ((PartOutsourced) Inventory.lookupPart(5)).getCompanyName());
+        Product last = Inventory.lookupProduct(3);
+        assertEquals("Product 1999", last.getName());
+        assertEquals(List.of(7, 2), last.getAssociatedParts().stream().map(Part::getId).toList());
+        // Republishing leaves stock alone, every delta applied in turn
+        assertEquals(5, last.getStock());
+    }
+
+    @Test
+    void heapFullOnlyWhenLiveDataDoesNotFit() throws IOException {
+        SharedInventory file = attach(1024);
+        String longName = "x".repeat(100);
+        int published = 0;
+        try {
+            for (int id = 0; id < 64; id++) {
+                file.publishPart(Items.inHouse(id, longName + id, 1), null);
+                published++;
+            }
+            fail("heap should fill up");
+        } catch (IllegalStateException expected) {
+            assertTrue(published > 0);
+        }
+
+        attach(1024).start();
+        assertEquals(published, Inventory.getInventoryPartCount());
+        assertEquals(longName + 0, Inventory.lookupPart(0).getName());
+    }
+}
@@ -0,0 +1,77 @@
+package ims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class SnapshotFileTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void reset() { Inventory.clear(); }
+
+    @Test
+    void roundTripKeepsEveryField() throws IOException {
+        Part bolt = Items.inHouse(4, "Bolt", 0.25);
+        bolt.setStock(7);
+        Part nut = Items.outsourced(9, "Nüt ✓", 1.5, "Acme");
+        Product frame = Items.product(3, "Frame", 12.75, bolt, nut, bolt);
+        frame.setMin(2);
+        Path file = dir.resolve("inventory.snapshot");
+        SnapshotFile.write(file, 42, List.of(bolt, nut), List.of(frame));
+
+        assertEquals(42, SnapshotFile.load(file));
+
+        PartInHouse loadedBolt = (PartInHouse) Inventory.lookupPart(4);
+        assertEquals("Bolt", loadedBolt.getName());
+        assertEquals(0.25, loadedBolt.getPrice());
+        assertEquals(7, loadedBolt.getStock());
+        assertEquals(1, loadedBolt.getMin());
+        assertEquals(10, loadedBolt.getMax());
+        assertEquals(104, loadedBolt.getMachineID());
+        PartOutsourced loadedNut = (PartOutsourced) Inventory.lookupPart(9);
+        assertEquals("Nüt ✓", loadedNut.getName());
+        assertEquals("Acme", loadedNut.getCompanyName());
+
+        Product loadedFrame = Inventory.lookupProduct(3);
+        assertEquals("Frame", loadedFrame.getName());
+        assertEquals(12.75, loadedFrame.getPrice());
+        assertEquals(2, loadedFrame.getMin());
+        assertEquals(List.of(loadedBolt, loadedNut, loadedBolt), loadedFrame.getAssociatedParts());
+    }
+
+    @Test
+    void sharedStringsAreStoredOnce() throws IOException {
+        List<Part> parts = new ArrayList<>();
+        for (int id = 0; id < 1000; id++) { parts.add(Items.outsourced(id, "Washer", 0.05, "Acme Fasteners Incorporated")); }
+        Path file = dir.resolve("inventory.snapshot");
+        SnapshotFile.write(file, 1, parts, List.of());
+
+        // Fixed-size records, the two strings appear once
+        assertTrue(Files.size(file) < 1000L * (SnapshotFile.PART_RECORD_SIZE + 8) + 1024);
+        SnapshotFile.load(file);
+        assertEquals(1000, Inventory.getInventoryPartCount());
+        assertEquals("Acme Fasteners Incorporated", ((PartOutsourced) Inventory.lookupPart(999)).getCompanyName());
+    }
+
+    @Test
+    void missingFileLoadsNothing() throws IOException {
+        assertEquals(0, SnapshotFile.load(dir.resolve("none")));
+        assertEquals(0, Inventory.getInventoryPartCount());
+    }
+
+    @Test
+    void foreignFileIsRejected() throws IOException {
+        Path file = dir.resolve("inventory.snapshot");
+        Files.write(file, new byte[128]);
+        assertThrows(IOException.class, () -> SnapshotFile.load(file));
+    }
+}
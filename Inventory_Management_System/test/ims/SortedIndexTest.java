@@ -0,0 +1,107 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class SortedIndexTest {
+    private final Map<Integer, Part> parts = new LinkedHashMap<>();
+    private final SortedIndex<Part> index = new SortedIndex<>(Part::getId, SortedIndexTest::key, parts::values);
+
+    private static Object key(Inventory.SortKey key, Part part) {
+        switch (key) {
+            case NAME: return part.getName();
+            case PRICE: return part.getPrice();
+            case STOCK: return part.getStock();
+            default: return part.getId();
+        }
+    }
+
+    private static List<Integer> ids(List<Part> parts) { return parts.stream().map(Part::getId).toList(); }
+
+    private void put(Part part) {
+        parts.put(part.getId(), part);
+        index.put(part);
+    }
+
+    private void remove(int id) {
+        parts.remove(id);
+        index.remove(id);
+    }
+
+    @Test
+    void pagesSelectByRankInBothDirections() {
+        put(Items.inHouse(1, "Bolt", 3));
+        put(Items.inHouse(2, "Nut", 1));
+        put(Items.inHouse(3, "Gear", 2));
+        put(Items.inHouse(4, "Cog", 2));
+
+        assertEquals(List.of(2, 3, 4, 1), ids(index.page(Inventory.SortKey.PRICE, false, 0, 10)));
+        assertEquals(List.of(3, 4), ids(index.page(Inventory.SortKey.PRICE, false, 1, 2)));
+        assertEquals(List.of(4, 3), ids(index.page(Inventory.SortKey.PRICE, true, 1, 2)));
+        assertEquals(List.of(), ids(index.page(Inventory.SortKey.PRICE, false, 4, 2)));
+    }
+
+    @Test
+    void rangesIncludeBothBoundsAndIgnoreNameCase() {
+        put(Items.inHouse(1, "bolt", 1));
+        put(Items.inHouse(2, "Bracket", 2));
+        put(Items.inHouse(3, "Cog", 3));
+        put(Items.inHouse(4, "BOLT", 4));
+
+        assertEquals(List.of(4, 1, 2), ids(index.range(Inventory.SortKey.NAME, "b", "brz")));
+        assertEquals(List.of(4, 1), ids(index.range(Inventory.SortKey.NAME, "Bolt", "bolt")));
+        assertEquals(List.of(2, 3), ids(index.range(Inventory.SortKey.PRICE, 2.0, 3.0)));
+        assertEquals(List.of(1, 2), ids(index.range(Inventory.SortKey.PRICE, null, 2.0)));
+    }
+
+    @Test
+    void reindexMovesAnItemWhoseKeyChanged() {
+        Part bolt = Items.inHouse(1, "Bolt", 1);
+        put(bolt);
+        put(Items.inHouse(2, "Nut", 1));
+        assertEquals(List.of(1, 2), ids(index.page(Inventory.SortKey.STOCK, false, 0, 10)));
+
+        bolt.setStock(9);
+        index.reindex(bolt, Inventory.SortKey.STOCK);
+        assertEquals(List.of(2, 1), ids(index.page(Inventory.SortKey.STOCK, false, 0, 10)));
+    }
+
+    @Test
+    void clearedIndexIsRebuiltFromTheSource() {
+        put(Items.inHouse(1, "Bolt", 2));
+        assertEquals(List.of(1), ids(index.page(Inventory.SortKey.PRICE, false, 0, 10)));
+
+        index.clear();
+        parts.put(2, Items.inHouse(2, "Nut", 1));
+        assertEquals(List.of(2, 1), ids(index.page(Inventory.SortKey.PRICE, false, 0, 10)));
+    }
+
+    @Test
+    void randomChangesMatchSortedCopy() {
+        Random random = new Random(3);
+        // Build the index first so every change below goes through the treap
+        assertEquals(List.of(), index.page(Inventory.SortKey.PRICE, false, 0, 10));
+        for (int i = 0; i < 2000; i++) {
+            int id = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                remove(id);
+            } else {
+                put(Items.inHouse(id, "Part " + random.nextInt(50), random.nextInt(20)));
+            }
+        }
+        List<Part> sorted = new ArrayList<>(parts.values());
+        sorted.sort(Comparator.comparingDouble(Part::getPrice).thenComparingInt(Part::getId));
+
+        assertEquals(ids(sorted), ids(index.page(Inventory.SortKey.PRICE, false, 0, sorted.size())));
+        assertEquals(ids(sorted.subList(40, 60)), ids(index.page(Inventory.SortKey.PRICE, false, 40, 20)));
+        List<Part> cheap = sorted.stream().filter(p -> p.getPrice() >= 5 && p.getPrice() <= 9).toList();
+        assertEquals(ids(cheap), ids(index.range(Inventory.SortKey.PRICE, 5.0, 9.0)));
+    }
+}
@@ -0,0 +1,76 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class StockWatchlistTest {
+    private final StockWatchlist watchlist = new StockWatchlist();
+
+    private static Part part(int id, int stock) {
+        Part part = Items.inHouse(id, "Part " + id, 1);
+        part.setStock(stock);
+        return part;
+    }
+
+    private List<Integer> topIds() { return watchlist.top(10).stream().map(StockWatchlist.Entry::getId).toList(); }
+
+    @Test
+    void onlyItemsAtOrPastTheirBoundsAreWatched() {
+        watchlist.update(part(1, 5));
+        watchlist.update(part(2, 1));
+        watchlist.update(part(3, 10));
+
+        assertEquals(2, watchlist.size());
+        assertEquals(List.of(2, 3), topIds());
+    }
+
+    @Test
+    void lowItemsRankFirstByShortfallThenOverstock() {
+        Part low = part(1, 0);
+        low.setMin(3);
+        watchlist.update(low);
+        watchlist.update(part(2, 1));
+        Part over = part(3, 12);
+        over.setMax(10);
+        watchlist.update(over);
+        Product product = Items.product(2, "Kit", 5);
+        product.setStock(0);
+        watchlist.update(product);
+
+        assertEquals(List.of(1, 2, 2, 3), topIds());
+        assertTrue(watchlist.top(10).get(1).isProduct());
+        assertEquals(3, watchlist.top(1).get(0).getShortfall());
+    }
+
+    @Test
+    void itemsBackWithinBoundsAreDropped() {
+        Part part = part(1, 1);
+        watchlist.update(part);
+        part.setStock(4);
+        watchlist.update(part);
+        assertEquals(0, watchlist.size());
+
+        watchlist.update(part(2, 0));
+        watchlist.removePart(2);
+        assertEquals(0, watchlist.size());
+    }
+
+    @Test
+    void reorderListenersHearEachDropOnce() {
+        List<Integer> reorders = new ArrayList<>();
+        watchlist.addReorderListener(entry -> reorders.add(entry.getId()));
+        Part part = part(1, 1);
+        watchlist.update(part);
+        part.setStock(0);
+        watchlist.update(part);
+        part.setStock(3);
+        watchlist.update(part);
+        part.setStock(1);
+        watchlist.update(part);
+
+        assertEquals(List.of(1, 1), reorders);
+    }
+}
@@ -0,0 +1,58 @@
+package ims;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class StringDictionaryTest {
+    private final StringDictionary dictionary = new StringDictionary();
+
+    @Test
+    void codesAreDenseInOrderOfFirstUse() {
+        assertEquals(0, dictionary.encode("Acme"));
+        assertEquals(1, dictionary.encode("Globex"));
+        assertEquals(0, dictionary.encode(new String("Acme")));
+        assertEquals(2, dictionary.size());
+        assertEquals("Globex", dictionary.decode(1));
+    }
+
+    @Test
+    void nullAndUnknownStringsHaveNoCode() {
+        assertEquals(StringDictionary.NONE, dictionary.encode(null));
+        assertNull(dictionary.decode(StringDictionary.NONE));
+        assertEquals(StringDictionary.NONE, dictionary.codeOf("Initech"));
+        assertEquals(0, dictionary.size());
+    }
+
+    @Test
+    void growsPastItsFirstArray() {
+        for (int i = 0; i < 100; i++) { assertEquals(i, dictionary.encode("Company " + i)); }
+        for (int i = 0; i < 100; i++) { assertEquals("Company " + i, dictionary.decode(i)); }
+    }
+
+    @Test
+    void concurrentEncodersAgreeOnCodes() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    int[] codes = new int[500];
+                    for (int i = 0; i < codes.length; i++) { codes[i] = dictionary.encode("Company " + i); }
+                    return codes;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) { assertArrayEquals(first, result.get()); }
+            assertEquals(500, dictionary.size());
+            for (int i = 0; i < first.length; i++) { assertEquals("Company " + i, dictionary.decode(first[i])); }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
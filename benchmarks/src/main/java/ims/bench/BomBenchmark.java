@@ -0,0 +1,63 @@
+package ims.bench;
+import ims.BomExplosion;
+import ims.IVException;
+import ims.Inventory;
+import ims.Part;
+import ims.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bill-of-materials explosion of a large order, single worker vs all cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class BomBenchmark {
+    @Param({"10000", "100000"})
+    public int orderLines;
+    @Param({"1", "0"})
+    public int workers;
+
+    private final Map<Integer, Integer> order = new HashMap<>();
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void fillCatalog() {
+        Part[] parts = Catalogs.fill(100_000, 0.5, 42);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int id = 0; id < orderLines; id++) {
+            Product product = Catalogs.product(id, parts, 20, random);
+            Inventory.addProduct(product);
+            order.put(id, random.nextInt(1, 10));
+        }
+        // 0 workers means every core
+        pool = new ForkJoinPool(workers == 0 ? Runtime.getRuntime().availableProcessors() : workers);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopPool() { pool.shutdown(); }
+
+    @Benchmark
+    public BomExplosion.Plan explode() throws IVException { return BomExplosion.explode(order, pool); }
+}
@@ -0,0 +1,72 @@
+package ims.bench;
+import ims.Inventory;
+import ims.Part;
+import ims.PartInHouse;
+import ims.PartOutsourced;
+import ims.Product;
+import java.util.SplittableRandom;
+
+
+/**
+ * Builds synthetic catalogs for the benchmarks.
+ * Names share prefixes and suppliers repeat, the way real catalogs do.
+ */
+final class Catalogs {
+    private static final String[] NOUNS = {"Bolt", "Nut", "Wheel", "Gear", "Spring", "Bearing", "Washer", "Axle"};
+    private static final String[] COMPANIES = {"Acme Supply", "Globex", "Initech", "Umbrella Parts", "Stark Metals"};
+
+    private Catalogs() {}
+
+    /**
+     * Create one part, in-house with probability inHouseRatio
+     */
+    static Part part(int id, double inHouseRatio, SplittableRandom random) {
+        Part part;
+        if (random.nextDouble() < inHouseRatio) {
+            PartInHouse inHouse = new PartInHouse();
+            inHouse.setMachineId(random.nextInt(1, 500));
+            part = inHouse;
+        } else {
+            PartOutsourced outsourced = new PartOutsourced();
+            outsourced.setCompanyName(COMPANIES[random.nextInt(COMPANIES.length)]);
+            part = outsourced;
+        }
+        part.setId(id);
+        part.setName(NOUNS[random.nextInt(NOUNS.length)] + " " + id);
+        part.setPrice(1 + random.nextInt(10_000) / 100.0);
+        part.setMin(1);
+        part.setMax(100);
+        part.setStock(random.nextInt(1, 101));
+        return part;
+    }
+
+    /**
+     * Create one product priced above the sum of its parts
+     */
+    static Product product(int id, Part[] parts, int partsPerProduct, SplittableRandom random) {
+        Product product = new Product(id, "Assembly " + id, 0, 5, 1, 10);
+        double cost = 0;
+        for (int i = 0; i < partsPerProduct; i++) {
+            Part part = parts[random.nextInt(parts.length)];
+            product.addAssociatedPart(part);
+            cost += part.getPrice();
+        }
+        product.setPrice(cost + 1);
+        return product;
+    }
+
+    /**
+     * Replace the inventory with a fresh catalog of the given size
+     * @return the parts that were added, indexed by ID
+     */
+    static Part[] fill(int size, double inHouseRatio, long seed) {
+        Inventory.clear();
+        SplittableRandom random = new SplittableRandom(seed);
+        Part[] parts = new Part[size];
+        for (int id = 0; id < size; id++) {
+            parts[id] = part(id, inHouseRatio, random);
+            Inventory.addPart(parts[id]);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,99 @@
+package ims.bench;
+import ims.Inventory;
+import ims.Part;
+import ims.PartInHouse;
+import ims.PartOutsourced;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Duplicate detection: checking one new part against the inventory, and cleaning an imported
+ * list in which every tenth row repeats an earlier one with its name in other case,
+ * single worker vs all cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class DedupeBenchmark {
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+    @Param({"1", "0"})
+    public int workers;
+
+    private final List<Part> imported = new ArrayList<>();
+    private Part[] candidates;
+    private int next;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void fillCatalog() {
+        Part[] parts = Catalogs.fill(catalogSize, 0.5, 42);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int id = 0; id < catalogSize; id++) {
+            imported.add(id % 10 == 9 ? copy(parts[random.nextInt(id)], catalogSize + id) : parts[id]);
+        }
+        candidates = new Part[1024];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = i % 2 == 0 ? copy(parts[random.nextInt(catalogSize)], -1)
+                    : Catalogs.part(-1, 0.5, random);
+        }
+        // 0 workers means every core
+        pool = new ForkJoinPool(workers == 0 ? Runtime.getRuntime().availableProcessors() : workers);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopPool() { pool.shutdown(); }
+
+    /**
+     * Same content under another ID, name in upper case
+     */
+    private static Part copy(Part part, int id) {
+        Part copy;
+        if (part instanceof PartInHouse) {
+            PartInHouse inHouse = new PartInHouse();
+            inHouse.setMachineId(((PartInHouse) part).getMachineID());
+            copy = inHouse;
+        } else {
+            PartOutsourced outsourced = new PartOutsourced();
+            outsourced.setCompanyName(((PartOutsourced) part).getCompanyName());
+            copy = outsourced;
+        }
+        copy.setId(id);
+        copy.setName(part.getName().toUpperCase());
+        copy.setPrice(part.getPrice());
+        copy.setMin(part.getMin());
+        copy.setMax(part.getMax());
+        copy.setStock(part.getStock());
+        return copy;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Part checkOnAdd() {
+        next = (next + 1) & (candidates.length - 1);
+        return Inventory.findDuplicatePart(candidates[next]);
+    }
+
+    @Benchmark
+    public List<Part> dedupeImport() { return Inventory.dedupeParts(imported, pool); }
+}
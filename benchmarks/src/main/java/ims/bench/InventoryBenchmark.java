@@ -0,0 +1,62 @@
+package ims.bench;
+import ims.Inventory;
+import ims.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Inventory add/modify/delete/lookup against a pre-filled catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class InventoryBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+    // Share of PartInHouse among the parts, the rest are PartOutsourced
+    @Param({"0.0", "0.5", "1.0"})
+    public double inHouseRatio;
+
+    private Part[] parts;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void fillCatalog() {
+        parts = Catalogs.fill(catalogSize, inHouseRatio, 42);
+        random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public Part lookupPart() {
+        return Inventory.lookupPart(random.nextInt(catalogSize));
+    }
+
+    @Benchmark
+    public void modifyPart() {
+        int id = random.nextInt(catalogSize);
+        Inventory.modifyPart(Catalogs.part(id, inHouseRatio, random));
+    }
+
+    @Benchmark
+    public void deleteAndAddPart() {
+        int id = random.nextInt(catalogSize);
+        Inventory.deletePart(id);
+        Inventory.addPart(parts[id]);
+    }
+}
@@ -0,0 +1,68 @@
+package ims.bench;
+import ims.Inventory;
+import ims.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Range queries and sorted pages: filter-and-sort over the part list vs the sorted indexes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RangeBenchmark {
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+
+    @Setup(Level.Trial)
+    public void fillCatalog() {
+        Catalogs.fill(catalogSize, 0.5, 42);
+        // Build the indexes outside the measurement
+        Inventory.getPartPage(Inventory.SortKey.PRICE, false, 0, 1);
+        Inventory.getPartPage(Inventory.SortKey.STOCK, false, 0, 1);
+    }
+
+    @Benchmark
+    public List<Part> priceRangeScan() {
+        List<Part> found = new ArrayList<>();
+        for (Part part : Inventory.getInventoryParts()) {
+            if (part.getPrice() >= 10 && part.getPrice() <= 10.5) { found.add(part); }
+        }
+        found.sort(Comparator.comparingDouble(Part::getPrice));
+        return found;
+    }
+
+    @Benchmark
+    public List<Part> priceRangeIndexed() { return Inventory.getPartsInRange(Inventory.SortKey.PRICE, 10, 10.5); }
+
+    @Benchmark
+    public List<Part> stockPageSort() {
+        List<Part> sorted = new ArrayList<>(Inventory.getInventoryParts());
+        sorted.sort(Comparator.comparingInt(Part::getStock).reversed());
+        return sorted.subList(1000, 1050);
+    }
+
+    @Benchmark
+    public List<Part> stockPageIndexed() { return Inventory.getPartPage(Inventory.SortKey.STOCK, true, 1000, 50); }
+
+    @Benchmark
+    public void stockUpdate() { Inventory.adjustPartStock(catalogSize / 2, 0); }
+}
@@ -0,0 +1,61 @@
+package ims.bench;
+import ims.Inventory;
+import ims.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Full-catalog scans over Part objects vs the columnar part store, including filtering and
+ * grouping by company on dictionary codes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ScanBenchmark {
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+    @Param({"false", "true"})
+    public boolean columnar;
+
+    private String name;
+
+    @Setup(Level.Trial)
+    public void fillCatalog() {
+        Inventory.disablePartColumns();
+        Catalogs.fill(catalogSize, 0.5, 42);
+        if (columnar) { Inventory.enablePartColumns(); }
+        name = Inventory.lookupPart(catalogSize / 2).getName();
+    }
+
+    @Benchmark
+    public double totalStockValue() { return Inventory.getTotalPartStockValue(); }
+
+    @Benchmark
+    public List<Part> lowStockParts() { return Inventory.getLowStockParts(); }
+
+    @Benchmark
+    public List<Part> partsNamed() { return Inventory.getPartsNamed(name); }
+
+    @Benchmark
+    public List<Part> partsOfCompany() { return Inventory.getPartsOfCompany("Globex"); }
+
+    @Benchmark
+    public Map<String, Integer> countPartsByCompany() { return Inventory.countPartsByCompany(); }
+}
@@ -0,0 +1,59 @@
+package ims.bench;
+import ims.Inventory;
+import ims.Part;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Search bar queries: the full-scan predicate the search listeners used to run on every
+ * keystroke, against the name index answering the same query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class SearchBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+    @Param({"0.5"})
+    public double inHouseRatio;
+    @Param({"b", "gear", "wheel 12", "4711"})
+    public String query;
+
+    @Setup(Level.Trial)
+    public void fillCatalog() {
+        Catalogs.fill(catalogSize, inHouseRatio, 42);
+    }
+
+    @Benchmark
+    public void predicateScan(Blackhole hole) {
+        String nameValue = query.toLowerCase();
+        for (Part part : Inventory.getInventoryParts()) {
+            if (part.getName().toLowerCase().contains(nameValue)
+                    || Integer.valueOf(part.getId()).toString().equals(query)) {
+                hole.consume(part);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Part> nameIndex() {
+        return Inventory.searchParts(query);
+    }
+}
@@ -0,0 +1,59 @@
+package ims.bench;
+import ims.Inventory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Concurrent stock movements. Run with -t 1, 2, 4 ... to see how throughput scales with writer threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class StockBenchmark {
+    @Param({"100000"})
+    public int catalogSize;
+    // Number of distinct parts the writers hit, 1 puts every thread on the same part
+    @Param({"1", "1000", "100000"})
+    public int hotParts;
+
+    @State(Scope.Thread)
+    public static class Feed {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void seed() { random = new SplittableRandom(Thread.currentThread().getId()); }
+    }
+
+    @Setup(Level.Trial)
+    public void fillCatalog() { Catalogs.fill(catalogSize, 0.5, 42); }
+
+    @Benchmark
+    public boolean adjustPartStock(Feed feed) {
+        return Inventory.adjustPartStock(feed.random.nextInt(hotParts), feed.random.nextBoolean() ? 1 : -1);
+    }
+
+    @Benchmark
+    public boolean compareAndSetPartStock(Feed feed) {
+        int id = feed.random.nextInt(hotParts);
+        int stock = Inventory.lookupPart(id).getStock();
+        return Inventory.compareAndSetPartStock(id, stock, feed.random.nextInt(1, 101));
+    }
+}
@@ -0,0 +1,65 @@
+package ims.bench;
+import ims.IVException;
+import ims.Part;
+import ims.PartInHouse;
+import ims.PartOutsourced;
+import ims.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Part and product validation as run on every save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidateBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int partsPerProduct;
+    @Param({"0.0", "0.5", "1.0"})
+    public double inHouseRatio;
+
+    private Part part;
+    private Product product;
+
+    @Setup(Level.Trial)
+    public void build() {
+        SplittableRandom random = new SplittableRandom(42);
+        Part[] parts = new Part[1000];
+        for (int id = 0; id < parts.length; id++) { parts[id] = Catalogs.part(id, inHouseRatio, random); }
+        part = parts[0];
+        product = Catalogs.product(0, parts, partsPerProduct, random);
+    }
+
+    @Benchmark
+    public Part validatePart() throws IVException {
+        if (part instanceof PartInHouse) {
+            ((PartInHouse) part).validatePart();
+        } else {
+            ((PartOutsourced) part).validatePart();
+        }
+        return part;
+    }
+
+    @Benchmark
+    public Product validateProduct() throws IVException {
+        product.validateProduct();
+        return product;
+    }
+}